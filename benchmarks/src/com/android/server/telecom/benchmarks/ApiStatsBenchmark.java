@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.junit.Assert.assertTrue;
+
+import android.os.HandlerThread;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.server.telecom.metrics.ApiStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ApiStats}, which records every Telecom API call. Stats are created in test mode
+ * so that nothing is read from or written to disk.
+ */
+@RunWith(JUnit4.class)
+public class ApiStatsBenchmark extends TelecomBenchmarkCase {
+    private static final int NUM_CALLERS = 20;
+    private static final int EVENTS_PER_ITERATION = 100;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private static final int[] APIS = {
+            ApiStats.API_GETCALLSTATE,
+            ApiStats.API_ISINCALL,
+            ApiStats.API_GETPHONEACCOUNT,
+            ApiStats.API_GETDEFAULTDIALERPACKAGE,
+            ApiStats.API_PLACECALL,
+    };
+
+    private HandlerThread mHandlerThread;
+    private ApiStats mApiStats;
+    private ApiStats.ApiEvent[] mEvents;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mHandlerThread = new HandlerThread("ApiStatsBenchmark");
+        mHandlerThread.start();
+        mApiStats = new ApiStats(mContext, mHandlerThread.getLooper(), true /* isTestMode */);
+        mEvents = new ApiStats.ApiEvent[APIS.length * NUM_CALLERS];
+        for (int i = 0; i < mEvents.length; i++) {
+            mEvents[i] = new ApiStats.ApiEvent(APIS[i % APIS.length], 10000 + i / APIS.length,
+                    ApiStats.RESULT_NORMAL);
+        }
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        mHandlerThread.quitSafely();
+        super.tearDown();
+    }
+
+    /**
+     * Time to log and aggregate {@link #EVENTS_PER_ITERATION} events, including the work done on
+     * the stats handler, into stats which already hold every event seen.
+     */
+    @Test
+    public void log() throws Exception {
+        logAll();
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int i = 0; i < EVENTS_PER_ITERATION; i++) {
+                mApiStats.log(mEvents[i % mEvents.length]);
+            }
+            waitForStatsHandler();
+        }
+    }
+
+    @Test
+    public void onAggregate() throws Exception {
+        logAll();
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mApiStats.onAggregate();
+        }
+    }
+
+    private void logAll() throws InterruptedException {
+        for (ApiStats.ApiEvent event : mEvents) {
+            mApiStats.log(event);
+        }
+        waitForStatsHandler();
+    }
+
+    private void waitForStatsHandler() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        // ApiStats is itself the stats handler, so this runs after every event logged so far.
+        mApiStats.post(latch::countDown);
+        assertTrue(latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.Mockito.mock;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.telecom.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.test.InstrumentationRegistry;
+
+import com.android.server.telecom.Call;
+import com.android.server.telecom.CallState;
+import com.android.server.telecom.CallsManager;
+import com.android.server.telecom.ClockProxy;
+import com.android.server.telecom.PhoneNumberUtilsAdapter;
+import com.android.server.telecom.ui.ToastFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.ref.Reference;
+import java.util.function.Supplier;
+
+/**
+ * Measures the heap retained by each {@link Call}, and the time taken to create one, for the
+ * kinds of call a device keeps alive. The retained size is sent as an instrumentation status
+ * with key {@code <test>_retained_bytes}, next to the timings.
+ */
+@RunWith(JUnit4.class)
+public class CallFootprintBenchmark extends TelecomBenchmarkCase {
+    private static final int NUM_CALLS = 1000;
+    private static final int NUM_CHILDREN = 3;
+
+    // Shared by every call, so that only what each call allocates is counted.
+    private CallsManager mCallsManager;
+    private ClockProxy mClockProxy;
+    private PhoneNumberUtilsAdapter mPhoneNumberUtilsAdapter;
+    private ToastFactory mToastFactory;
+    private int mNextCallId;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mCallsManager = createMockCallsManager();
+        mClockProxy = mock(ClockProxy.class);
+        mPhoneNumberUtilsAdapter = mock(PhoneNumberUtilsAdapter.class);
+        mToastFactory = mock(ToastFactory.class);
+    }
+
+    @Test
+    public void incomingCall() {
+        measure("incomingCall", () -> newCall(false /* isConference */));
+    }
+
+    /** A call kept until post-call processing, such as call diagnostics, is done. */
+    @Test
+    public void disconnectedCall() {
+        measure("disconnectedCall", () -> {
+            Call call = newCall(false /* isConference */);
+            call.setState(CallState.DISCONNECTED, "benchmark");
+            return call;
+        });
+    }
+
+    /** A conference host, including its children. */
+    @Test
+    public void conferenceWithChildren() {
+        measure("conferenceWithChildren", () -> {
+            Call conference = newCall(true /* isConference */);
+            for (int i = 0; i < NUM_CHILDREN; i++) {
+                newCall(false /* isConference */).setChildOf(conference);
+            }
+            return conference;
+        });
+    }
+
+    private void measure(String name, Supplier<Call> newCall) {
+        Call[] calls = new Call[NUM_CALLS];
+        long startBytes = getUsedHeapBytes();
+        for (int i = 0; i < NUM_CALLS; i++) {
+            calls[i] = newCall.get();
+        }
+        long retainedBytes = (getUsedHeapBytes() - startBytes) / NUM_CALLS;
+        Reference.reachabilityFence(calls);
+        Log.i(this, "%s: retainedBytes=%d", name, retainedBytes);
+        Bundle status = new Bundle();
+        status.putLong(name + "_retained_bytes", retainedBytes);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            newCall.get();
+        }
+    }
+
+    private Call newCall(boolean isConference) {
+        String callId = Integer.toString(mNextCallId++);
+        return new Call(callId,
+                mContext,
+                mCallsManager,
+                mLock,
+                null /* ConnectionServiceRepository */,
+                mPhoneNumberUtilsAdapter,
+                Uri.fromParts("tel", "650555" + callId, null),
+                null /* GatewayInfo */,
+                null /* connectionMgr */,
+                SIM_HANDLE,
+                Call.CALL_DIRECTION_INCOMING,
+                false /* shouldAttachToExistingConnection */,
+                isConference,
+                mClockProxy,
+                mToastFactory,
+                mFeatureFlags);
+    }
+
+    private static long getUsedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.runFinalization();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
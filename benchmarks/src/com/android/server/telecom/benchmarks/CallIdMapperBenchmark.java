@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.server.telecom.Call;
+import com.android.server.telecom.CallIdMapper;
+import com.android.server.telecom.CallsManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Measures the lookups {@link CallIdMapper} serves for every call made by a ConnectionService
+ * or InCallService.
+ */
+@RunWith(JUnit4.class)
+public class CallIdMapperBenchmark extends TelecomBenchmarkCase {
+    private static final int NUM_CALLS = 20;
+    // The conference and its participants, as resolved by each adapter callback about it.
+    private static final int NUM_CONFERENCE_CALLS = 7;
+
+    private final CallIdMapper mCallIdMapper = new CallIdMapper(Call::getId);
+    private Call[] mCalls;
+    // Copies of the call ids, as ids arrive over binder as new strings.
+    private String[] mIncomingIds;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        CallsManager callsManager = createMockCallsManager();
+        mCalls = new Call[NUM_CALLS];
+        mIncomingIds = new String[NUM_CALLS];
+        for (int i = 0; i < NUM_CALLS; i++) {
+            mCalls[i] = createCall("TC@" + i, callsManager, SIM_HANDLE);
+            mCallIdMapper.addCall(mCalls[i]);
+            mIncomingIds[i] = new String(mCalls[i].getId());
+        }
+    }
+
+    @Test
+    public void getCall() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            mCallIdMapper.getCall(mIncomingIds[i]);
+            i = (i + 1) % NUM_CALLS;
+        }
+    }
+
+    /**
+     * A busy conference, where each callback from the ConnectionService about the conference
+     * resolves the conference and every participant.
+     */
+    @Test
+    public void getCall_conferenceCallback() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int i = 0; i < NUM_CONFERENCE_CALLS; i++) {
+                mCallIdMapper.getCall(mIncomingIds[i]);
+            }
+        }
+    }
+
+    @Test
+    public void getCallId() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            mCallIdMapper.getCallId(mCalls[i]);
+            i = (i + 1) % NUM_CALLS;
+        }
+    }
+
+    @Test
+    public void addAndRemoveCall() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        Call call = mCalls[0];
+        mCallIdMapper.removeCall(call);
+        while (state.keepRunning()) {
+            mCallIdMapper.addCall(call);
+            mCallIdMapper.removeCall(call);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+
+import android.content.ComponentName;
+import android.os.UserHandle;
+import android.telecom.PhoneAccountHandle;
+import android.telephony.TelephonyManager;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.server.telecom.AsyncRingtonePlayer;
+import com.android.server.telecom.Call;
+import com.android.server.telecom.CallAnomalyWatchdog;
+import com.android.server.telecom.CallAudioCommunicationDeviceTracker;
+import com.android.server.telecom.CallAudioManager;
+import com.android.server.telecom.CallAudioModeStateMachine;
+import com.android.server.telecom.CallAudioRouteStateMachine;
+import com.android.server.telecom.CallDiagnosticServiceController;
+import com.android.server.telecom.CallEndpointControllerFactory;
+import com.android.server.telecom.CallState;
+import com.android.server.telecom.CallStateSnapshot;
+import com.android.server.telecom.CallerInfoLookupHelper;
+import com.android.server.telecom.CallsManager;
+import com.android.server.telecom.ClockProxy;
+import com.android.server.telecom.ConnectionServiceFocusManager;
+import com.android.server.telecom.DefaultDialerCache;
+import com.android.server.telecom.EmergencyCallDiagnosticLogger;
+import com.android.server.telecom.EmergencyCallHelper;
+import com.android.server.telecom.HeadsetMediaButtonFactory;
+import com.android.server.telecom.InCallControllerFactory;
+import com.android.server.telecom.InCallTonePlayer;
+import com.android.server.telecom.InCallWakeLockControllerFactory;
+import com.android.server.telecom.MissedCallNotifier;
+import com.android.server.telecom.PhoneAccountRegistrar;
+import com.android.server.telecom.PhoneNumberUtilsAdapter;
+import com.android.server.telecom.ProximitySensorManagerFactory;
+import com.android.server.telecom.Ringer;
+import com.android.server.telecom.RoleManagerAdapter;
+import com.android.server.telecom.SystemStateHelper;
+import com.android.server.telecom.Timeouts;
+import com.android.server.telecom.WiredHeadsetManager;
+import com.android.server.telecom.bluetooth.BluetoothDeviceManager;
+import com.android.server.telecom.bluetooth.BluetoothRouteManager;
+import com.android.server.telecom.bluetooth.BluetoothStateReceiver;
+import com.android.server.telecom.callfiltering.BlockedNumbersAdapter;
+import com.android.server.telecom.callfiltering.IncomingCallFilterGraph;
+import com.android.server.telecom.callsequencing.TransactionManager;
+import com.android.server.telecom.metrics.TelecomMetricsController;
+import com.android.server.telecom.ui.AudioProcessingNotification;
+import com.android.server.telecom.ui.CallStreamingNotification;
+import com.android.server.telecom.ui.DisconnectedCallNotifier;
+import com.android.server.telecom.ui.ToastFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the call state queries apps make through TelecomManager, both by scanning the calls
+ * held by {@link CallsManager} and by reading a {@link CallStateSnapshot}.
+ */
+@RunWith(JUnit4.class)
+public class CallsManagerBenchmark extends TelecomBenchmarkCase {
+    private static final int NUM_CALLS = 12;
+    private static final int[] CALL_STATES = {CallState.ACTIVE, CallState.ON_HOLD,
+            CallState.RINGING, CallState.DIALING};
+
+    private CallsManager mCallsManager;
+    private CallStateSnapshot mCallStateSnapshot;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        // Every collaborator is a mock which returns mocks, since only the calls matter here.
+        mCallsManager = new CallsManager(
+                mContext,
+                mLock,
+                stub(CallerInfoLookupHelper.class),
+                stub(MissedCallNotifier.class),
+                stub(DisconnectedCallNotifier.Factory.class),
+                stub(PhoneAccountRegistrar.class),
+                stub(HeadsetMediaButtonFactory.class),
+                stub(ProximitySensorManagerFactory.class),
+                stub(InCallWakeLockControllerFactory.class),
+                stub(ConnectionServiceFocusManager.ConnectionServiceFocusManagerFactory.class),
+                stub(CallAudioManager.AudioServiceFactory.class),
+                stub(BluetoothRouteManager.class),
+                stub(WiredHeadsetManager.class),
+                stub(SystemStateHelper.class),
+                stub(DefaultDialerCache.class),
+                stub(Timeouts.Adapter.class),
+                stub(AsyncRingtonePlayer.class),
+                stub(PhoneNumberUtilsAdapter.class),
+                stub(EmergencyCallHelper.class),
+                stub(InCallTonePlayer.ToneGeneratorFactory.class),
+                stub(ClockProxy.class),
+                stub(AudioProcessingNotification.class),
+                stub(BluetoothStateReceiver.class),
+                stub(CallAudioRouteStateMachine.Factory.class),
+                stub(CallAudioModeStateMachine.Factory.class),
+                stub(InCallControllerFactory.class),
+                stub(CallDiagnosticServiceController.class),
+                stub(RoleManagerAdapter.class),
+                stub(ToastFactory.class),
+                stub(CallEndpointControllerFactory.class),
+                stub(CallAnomalyWatchdog.class),
+                stub(Ringer.AccessibilityManagerAdapter.class),
+                Runnable::run,
+                Runnable::run,
+                stub(BlockedNumbersAdapter.class),
+                TransactionManager.getTestInstance(),
+                stub(EmergencyCallDiagnosticLogger.class),
+                stub(CallAudioCommunicationDeviceTracker.class),
+                stub(CallStreamingNotification.class),
+                stub(BluetoothDeviceManager.class),
+                mFeatureFlags,
+                stub(com.android.internal.telephony.flags.FeatureFlags.class),
+                (call, listener, context, timeoutsAdapter, featureFlags, lock) ->
+                        stub(IncomingCallFilterGraph.class),
+                stub(TelecomMetricsController.class));
+
+        List<Call> calls = new ArrayList<>(NUM_CALLS);
+        for (int i = 0; i < NUM_CALLS; i++) {
+            PhoneAccountHandle handle = new PhoneAccountHandle(
+                    new ComponentName("com.example.voip" + (i % 3), "Service"), "id" + i);
+            Call call = createCall(Integer.toString(i), mCallsManager, handle);
+            call.setState(CALL_STATES[i % CALL_STATES.length], "benchmark");
+            mCallsManager.addCall(call);
+            calls.add(call);
+        }
+        mCallStateSnapshot = CallStateSnapshot.create(calls, TelephonyManager.CALL_STATE_OFFHOOK);
+    }
+
+    @Test
+    public void getNumCallsWithState_ongoing() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mCallsManager.getNumCallsWithState(CallsManager.CALL_FILTER_ALL, null /* exclude */,
+                    UserHandle.CURRENT, true /* hasCrossUserAccess */,
+                    null /* phoneAccountHandle */, CallsManager.ONGOING_CALL_STATES);
+        }
+    }
+
+    @Test
+    public void getNumCallsWithState_underLock() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            synchronized (mLock) {
+                mCallsManager.getNumCallsWithState(CallsManager.CALL_FILTER_ALL,
+                        null /* exclude */, UserHandle.CURRENT, true /* hasCrossUserAccess */,
+                        null /* phoneAccountHandle */, CallsManager.ONGOING_CALL_STATES);
+            }
+        }
+    }
+
+    @Test
+    public void callStateSnapshot_hasOngoingCalls() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mCallStateSnapshot.hasOngoingCalls(UserHandle.CURRENT,
+                    true /* hasCrossUserAccess */);
+        }
+    }
+
+    private static <T> T stub(Class<T> classToMock) {
+        return mock(classToMock, RETURNS_MOCKS);
+    }
+}
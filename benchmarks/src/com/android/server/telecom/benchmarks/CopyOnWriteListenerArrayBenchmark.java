@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.server.telecom.CopyOnWriteListenerArray;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares notifying listeners from a {@link CopyOnWriteListenerArray} with iterating the
+ * concurrent set it replaced.
+ */
+@RunWith(JUnit4.class)
+public class CopyOnWriteListenerArrayBenchmark extends TelecomBenchmarkCase {
+    private static final int NUM_LISTENERS = 16;
+
+    private final CopyOnWriteListenerArray<Runnable> mListenerArray =
+            new CopyOnWriteListenerArray<>(new Runnable[0]);
+    private final Set<Runnable> mListenerSet =
+            Collections.newSetFromMap(new ConcurrentHashMap<>(8, 0.9f, 1));
+    private int mNotifications;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        for (int i = 0; i < NUM_LISTENERS; i++) {
+            Runnable listener = () -> mNotifications++;
+            mListenerArray.add(listener);
+            mListenerSet.add(listener);
+        }
+    }
+
+    @Test
+    public void notify_copyOnWriteListenerArray() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (Runnable listener : mListenerArray.snapshot()) {
+                listener.run();
+            }
+        }
+    }
+
+    @Test
+    public void notify_concurrentSet() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (Runnable listener : mListenerSet) {
+                listener.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.telecom.Log;
+import android.telephony.TelephonyManager;
+import android.telephony.emergency.EmergencyNumber;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.test.InstrumentationRegistry;
+
+import com.android.server.telecom.Call;
+import com.android.server.telecom.CallsManager;
+import com.android.server.telecom.ClockProxy;
+import com.android.server.telecom.EmergencyNumberIndex;
+import com.android.server.telecom.PhoneNumberUtilsAdapter;
+import com.android.server.telecom.ui.ToastFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the emergency number checks made while placing an emergency call: creating the
+ * outgoing {@link Call}, which classifies its handle, followed by the checks made by
+ * NewOutgoingCallIntentBroadcaster and call redirection. Runs with and without
+ * {@link EmergencyNumberIndex}.
+ * <p>
+ * Telephony is a mock here, so its binder calls cost nothing; the number of calls made into
+ * Telephony per dial is sent as an instrumentation status with key
+ * {@code <test>_telephony_calls}, next to the timings.
+ */
+@RunWith(JUnit4.class)
+public class EmergencyDialPathBenchmark extends TelecomBenchmarkCase {
+    private static final String EMERGENCY_NUMBER = "911";
+    private static final Uri EMERGENCY_HANDLE = Uri.fromParts("tel", EMERGENCY_NUMBER, null);
+
+    private CallsManager mCallsManager;
+    private TelephonyManager mTelephonyManager;
+    private ClockProxy mClockProxy;
+    private PhoneNumberUtilsAdapter mPhoneNumberUtilsAdapter;
+    private ToastFactory mToastFactory;
+    private int mNextCallId;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mCallsManager = createMockCallsManager();
+        mClockProxy = mock(ClockProxy.class);
+        mPhoneNumberUtilsAdapter = mock(PhoneNumberUtilsAdapter.class);
+        mToastFactory = mock(ToastFactory.class);
+        mTelephonyManager = mComponentContextFixture.getTelephonyManager();
+        List<EmergencyNumber> numbers = List.of(new EmergencyNumber(EMERGENCY_NUMBER, "US", null,
+                0, Collections.EMPTY_LIST, EmergencyNumber.EMERGENCY_NUMBER_SOURCE_DATABASE, 0));
+        when(mTelephonyManager.getEmergencyNumberList()).thenReturn(Map.of(0, numbers));
+        when(mTelephonyManager.isEmergencyNumber(anyString())).thenAnswer(
+                invocation -> EMERGENCY_NUMBER.equals(invocation.getArgument(0)));
+    }
+
+    @Test
+    public void emergencyDial_telephony() {
+        when(mCallsManager.getEmergencyNumberIndex()).thenReturn(null);
+        measure("emergencyDial_telephony");
+    }
+
+    @Test
+    public void emergencyDial_indexed() {
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+        when(mCallsManager.getEmergencyNumberIndex()).thenReturn(index);
+        // Load the index outside of the measured loop, as it is once the first call is placed.
+        index.isEmergencyNumber(EMERGENCY_NUMBER);
+        measure("emergencyDial_indexed");
+    }
+
+    private void measure(String name) {
+        clearInvocations(mTelephonyManager);
+        dial();
+        long telephonyCalls = mockingDetails(mTelephonyManager).getInvocations().stream()
+                .filter(invocation -> {
+                    String method = invocation.getMethod().getName();
+                    return method.equals("isEmergencyNumber")
+                            || method.equals("getEmergencyNumberList");
+                })
+                .count();
+        Log.i(this, "%s: telephonyCalls=%d", name, telephonyCalls);
+        Bundle status = new Bundle();
+        status.putLong(name + "_telephony_calls", telephonyCalls);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            dial();
+        }
+    }
+
+    private void dial() {
+        Call call = new Call(Integer.toString(mNextCallId++),
+                mContext,
+                mCallsManager,
+                mLock,
+                null /* ConnectionServiceRepository */,
+                mPhoneNumberUtilsAdapter,
+                EMERGENCY_HANDLE,
+                null /* GatewayInfo */,
+                null /* connectionMgr */,
+                SIM_HANDLE,
+                Call.CALL_DIRECTION_OUTGOING,
+                false /* shouldAttachToExistingConnection */,
+                false /* isConference */,
+                mClockProxy,
+                mToastFactory,
+                mFeatureFlags);
+        // NewOutgoingCallIntentBroadcaster and call redirection check the same handle again.
+        call.isEmergencyNumber(EMERGENCY_NUMBER);
+        call.isEmergencyNumber(EMERGENCY_NUMBER);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.Mockito.when;
+
+import android.telephony.TelephonyManager;
+import android.telephony.emergency.EmergencyNumber;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.server.telecom.EmergencyNumberIndex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures emergency number checks answered from {@link EmergencyNumberIndex}, which are made
+ * for every outgoing call and every call filtering pass.
+ */
+@RunWith(JUnit4.class)
+public class EmergencyNumberIndexBenchmark extends TelecomBenchmarkCase {
+    private static final int NUM_NUMBERS = 30;
+
+    private EmergencyNumberIndex mIndex;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        List<EmergencyNumber> numbers = new ArrayList<>(NUM_NUMBERS);
+        for (int i = 0; i < NUM_NUMBERS; i++) {
+            numbers.add(new EmergencyNumber(Integer.toString(900 + i), "US", null, 0,
+                    Collections.EMPTY_LIST, EmergencyNumber.EMERGENCY_NUMBER_SOURCE_DATABASE, 0));
+        }
+        TelephonyManager telephonyManager = mComponentContextFixture.getTelephonyManager();
+        when(telephonyManager.getEmergencyNumberList()).thenReturn(Map.of(0, numbers));
+        mIndex = new EmergencyNumberIndex(mContext, Runnable::run);
+        // Build the index outside of the measured loop.
+        mIndex.isEmergencyNumber("911");
+    }
+
+    @Test
+    public void isEmergencyNumber_listed() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mIndex.isEmergencyNumber("9-1-1");
+        }
+    }
+
+    @Test
+    public void getEmergencyNumber() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mIndex.getEmergencyNumber("911");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.provider.CallLog;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.server.telecom.Call;
+import com.android.server.telecom.Timeouts;
+import com.android.server.telecom.callfiltering.CallFilter;
+import com.android.server.telecom.callfiltering.CallFilteringResult;
+import com.android.server.telecom.callfiltering.IncomingCallFilterGraph;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of filtering an incoming call: building the filter graph and running
+ * filters which answer immediately, as the block checker and DND filters do in the common case.
+ */
+@RunWith(JUnit4.class)
+public class IncomingCallFilterGraphBenchmark extends TelecomBenchmarkCase {
+    private static final int NUM_FILTERS = 3;
+    private static final long TIMEOUT_MILLIS = 5000L;
+
+    private static final CallFilteringResult ALLOW_RESULT = new CallFilteringResult.Builder()
+            .setShouldAllowCall(true)
+            .setShouldReject(false)
+            .setShouldSilence(false)
+            .setShouldAddToCallLog(true)
+            .setShouldShowNotification(true)
+            .build();
+
+    private static class ImmediateFilter extends CallFilter {
+        @Override
+        public CompletionStage<CallFilteringResult> startFilterLookup(
+                CallFilteringResult priorStageResult) {
+            return CompletableFuture.completedFuture(ALLOW_RESULT);
+        }
+    }
+
+    private Call mCall;
+    private Timeouts.Adapter mTimeoutsAdapter;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mCall = createCall("1", createMockCallsManager(), SIM_HANDLE);
+        mTimeoutsAdapter = mock(Timeouts.Adapter.class);
+        when(mTimeoutsAdapter.getCallScreeningTimeoutMillis(any())).thenReturn(TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void performFiltering_immediateFilters() throws Exception {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            CompletableFuture<CallFilteringResult> done = new CompletableFuture<>();
+            IncomingCallFilterGraph graph = new IncomingCallFilterGraph(mCall,
+                    (call, result, timeout) -> done.complete(result), mContext,
+                    mTimeoutsAdapter, mFeatureFlags, mLock);
+            ImmediateFilter previous = null;
+            for (int i = 0; i < NUM_FILTERS; i++) {
+                ImmediateFilter filter = new ImmediateFilter();
+                graph.addFilter(filter);
+                if (previous != null) {
+                    IncomingCallFilterGraph.addEdge(previous, filter);
+                }
+                previous = filter;
+            }
+            graph.performFiltering();
+            done.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void combine() {
+        CallFilteringResult blocked = new CallFilteringResult.Builder()
+                .setShouldAllowCall(false)
+                .setShouldReject(true)
+                .setShouldSilence(false)
+                .setShouldAddToCallLog(true)
+                .setShouldShowNotification(false)
+                .setCallBlockReason(CallLog.Calls.BLOCK_REASON_BLOCKED_NUMBER)
+                .build();
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ALLOW_RESULT.combine(blocked);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import android.os.Bundle;
+import android.telecom.Connection;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.server.telecom.Call;
+import com.android.server.telecom.CallState;
+import com.android.server.telecom.ParcelableCallUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Measures building the {@link android.telecom.ParcelableCall} sent to each InCallService on
+ * every call update.
+ */
+@RunWith(JUnit4.class)
+public class ParcelableCallUtilsBenchmark extends TelecomBenchmarkCase {
+    private Call mCall;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        when(mComponentContextFixture.getTelephonyManager().isEmergencyNumber(any()))
+                .thenReturn(false);
+        mCall = createCall("1", createMockCallsManager(), SIM_HANDLE);
+        Bundle extras = new Bundle();
+        extras.putString(Connection.EXTRA_CALL_SUBJECT, "Lunch?");
+        extras.putString("SomeExtra", "value");
+        mCall.putConnectionServiceExtras(extras);
+        mCall.setState(CallState.ACTIVE, "benchmark");
+    }
+
+    @Test
+    public void toParcelableCall_systemInCallService() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ParcelableCallUtils.toParcelableCall(mCall,
+                    false /* includeVideoProvider */,
+                    null /* phoneAccountRegistrar */,
+                    true /* supportsExternalCalls */,
+                    false /* includeRttCall */,
+                    true /* isForSystemInCallService */);
+        }
+    }
+
+    @Test
+    public void toParcelableCall_nonSystemInCallService() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ParcelableCallUtils.toParcelableCall(mCall,
+                    false /* includeVideoProvider */,
+                    null /* phoneAccountRegistrar */,
+                    false /* supportsExternalCalls */,
+                    false /* includeRttCall */,
+                    false /* isForSystemInCallService */);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentName;
+import android.os.UserHandle;
+import android.telecom.PhoneAccount;
+import android.telecom.PhoneAccountHandle;
+import android.util.Xml;
+
+import androidx.benchmark.BenchmarkState;
+
+import com.android.internal.telephony.flags.FeatureFlags;
+import com.android.internal.util.FastXmlSerializer;
+import com.android.server.telecom.AppLabelProxy;
+import com.android.server.telecom.DefaultDialerCache;
+import com.android.server.telecom.PhoneAccountRegistrar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+/**
+ * Measures querying phone accounts, and writing and reading the registrar's state, with a
+ * device-like number of accounts registered.
+ */
+@RunWith(JUnit4.class)
+public class PhoneAccountRegistrarBenchmark extends TelecomBenchmarkCase {
+    private static final String FILE_NAME = "phone-account-registrar-benchmark.xml";
+    private static final int NUM_ACCOUNTS = 20;
+
+    private FeatureFlags mTelephonyFeatureFlags;
+    private PhoneAccountRegistrar mRegistrar;
+    private PhoneAccountRegistrar.State mState;
+    private byte[] mStateXml;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        getFile().delete();
+        mTelephonyFeatureFlags = mock(FeatureFlags.class);
+        DefaultDialerCache defaultDialerCache = mock(DefaultDialerCache.class);
+        AppLabelProxy appLabelProxy = mock(AppLabelProxy.class);
+        when(defaultDialerCache.getDefaultDialerApplication(anyInt()))
+                .thenReturn("com.android.dialer");
+        when(appLabelProxy.getAppLabel(anyString(), any())).thenReturn("Benchmark");
+        mRegistrar = new PhoneAccountRegistrar(mContext, mLock, FILE_NAME, defaultDialerCache,
+                appLabelProxy, mTelephonyFeatureFlags, mFeatureFlags);
+
+        mState = new PhoneAccountRegistrar.State();
+        for (int i = 0; i < NUM_ACCOUNTS; i++) {
+            PhoneAccount account = new PhoneAccount.Builder(
+                    new PhoneAccountHandle(new ComponentName("com.example.voip" + i, "Service"),
+                            "id" + i, UserHandle.CURRENT),
+                    "label" + i)
+                    .setCapabilities(i % 2 == 0
+                            ? PhoneAccount.CAPABILITY_SELF_MANAGED
+                            : PhoneAccount.CAPABILITY_CALL_PROVIDER)
+                    .addSupportedUriScheme(PhoneAccount.SCHEME_TEL)
+                    .setIsEnabled(true)
+                    .build();
+            mRegistrar.registerPhoneAccount(account);
+            mState.accounts.add(account);
+        }
+        mStateXml = toXml(mState);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        getFile().delete();
+        super.tearDown();
+    }
+
+    @Test
+    public void getPhoneAccounts_allForUser() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mRegistrar.getPhoneAccounts(0 /* capabilities */, 0 /* excludedCapabilities */,
+                    null /* uriScheme */, null /* packageName */,
+                    false /* includeDisabledAccounts */, UserHandle.CURRENT,
+                    false /* crossUserAccess */, false /* includeAll */);
+        }
+    }
+
+    @Test
+    public void getPhoneAccounts_selfManagedForPackage() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mRegistrar.getPhoneAccounts(PhoneAccount.CAPABILITY_SELF_MANAGED,
+                    0 /* excludedCapabilities */, null /* uriScheme */, "com.example.voip4",
+                    false /* includeDisabledAccounts */, UserHandle.CURRENT,
+                    false /* crossUserAccess */, false /* includeAll */);
+        }
+    }
+
+    @Test
+    public void write() throws Exception {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            toXml(mState);
+        }
+    }
+
+    @Test
+    public void read() throws Exception {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(new BufferedInputStream(new ByteArrayInputStream(mStateXml)), null);
+            parser.nextTag();
+            PhoneAccountRegistrar.sStateXml.readFromXml(parser, Integer.MAX_VALUE, mContext,
+                    mTelephonyFeatureFlags, mFeatureFlags);
+        }
+    }
+
+    /** The part of a write made under the Telecom lock when serializing off the lock. */
+    @Test
+    public void copyState() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            PhoneAccountRegistrar.copyState(mState);
+        }
+    }
+
+    private byte[] toXml(PhoneAccountRegistrar.State registrarState) throws Exception {
+        XmlSerializer serializer = new FastXmlSerializer();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        serializer.setOutput(new BufferedOutputStream(os), "utf-8");
+        PhoneAccountRegistrar.sStateXml.writeToXml(registrarState, serializer, mContext,
+                mTelephonyFeatureFlags);
+        serializer.flush();
+        return os.toByteArray();
+    }
+
+    private File getFile() {
+        return new File(mContext.getFilesDir(), FILE_NAME);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.telecom.Log;
+import android.telecom.PhoneAccountHandle;
+
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.InstrumentationRegistry;
+
+import com.android.server.telecom.Call;
+import com.android.server.telecom.CallerInfoLookupHelper;
+import com.android.server.telecom.CallsManager;
+import com.android.server.telecom.ClockProxy;
+import com.android.server.telecom.PhoneAccountRegistrar;
+import com.android.server.telecom.PhoneNumberUtilsAdapter;
+import com.android.server.telecom.TelecomSystem;
+import com.android.server.telecom.flags.FeatureFlags;
+import com.android.server.telecom.tests.ComponentContextFixture;
+import com.android.server.telecom.tests.MockitoHelper;
+import com.android.server.telecom.ui.ToastFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.mockito.Mockito;
+
+/**
+ * Base class for Telecom benchmarks. Sets up the same {@link ComponentContextFixture} the unit
+ * tests use, with every feature flag off unless a benchmark turns it on.
+ */
+public abstract class TelecomBenchmarkCase {
+    protected static final String BENCHMARK_TAG = "Telecom-BENCH";
+    protected static final PhoneAccountHandle SIM_HANDLE = new PhoneAccountHandle(
+            ComponentName.unflattenFromString("com.android.phone/.TelephonyConnectionService"),
+            "1");
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    protected final TelecomSystem.SyncRoot mLock = new TelecomSystem.SyncRoot() { };
+    protected Context mContext;
+    protected FeatureFlags mFeatureFlags;
+    protected ComponentContextFixture mComponentContextFixture;
+    private final MockitoHelper mMockitoHelper = new MockitoHelper();
+
+    @Before
+    public void setUp() throws Exception {
+        Log.setTag(BENCHMARK_TAG);
+        mMockitoHelper.setUp(InstrumentationRegistry.getContext(), getClass());
+        mFeatureFlags = mock(FeatureFlags.class);
+        mComponentContextFixture = new ComponentContextFixture(mFeatureFlags);
+        mContext = mComponentContextFixture.getTestDouble().getApplicationContext();
+        Log.setSessionManager(mContext, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mComponentContextFixture.destroy();
+        mComponentContextFixture = null;
+        mMockitoHelper.tearDown();
+        Mockito.framework().clearInlineMocks();
+    }
+
+    /**
+     * Creates an incoming call, as the unit tests do, owned by {@code callsManager}.
+     */
+    protected Call createCall(String callId, CallsManager callsManager,
+            PhoneAccountHandle phoneAccountHandle) {
+        ClockProxy clockProxy = mock(ClockProxy.class);
+        when(clockProxy.currentTimeMillis()).thenReturn(System.currentTimeMillis());
+        when(clockProxy.elapsedRealtime()).thenReturn(SystemClock.elapsedRealtime());
+        return new Call(callId,
+                mContext,
+                callsManager,
+                mLock,
+                null /* ConnectionServiceRepository */,
+                mock(PhoneNumberUtilsAdapter.class),
+                Uri.fromParts("tel", "650555" + callId, null),
+                null /* GatewayInfo */,
+                null /* connectionMgr */,
+                phoneAccountHandle,
+                Call.CALL_DIRECTION_INCOMING,
+                false /* shouldAttachToExistingConnection */,
+                false /* isConference */,
+                clockProxy,
+                mock(ToastFactory.class),
+                mFeatureFlags);
+    }
+
+    /**
+     * @return A mocked {@link CallsManager} with just enough behaviour for {@link Call}s which
+     * aren't added to it.
+     */
+    protected CallsManager createMockCallsManager() {
+        CallsManager callsManager = mock(CallsManager.class);
+        PhoneAccountRegistrar phoneAccountRegistrar = mock(PhoneAccountRegistrar.class);
+        when(callsManager.getCallerInfoLookupHelper())
+                .thenReturn(mock(CallerInfoLookupHelper.class));
+        when(callsManager.getPhoneAccountRegistrar()).thenReturn(phoneAccountRegistrar);
+        when(callsManager.getCurrentUserHandle()).thenReturn(UserHandle.CURRENT);
+        when(phoneAccountRegistrar.getPhoneAccountUnchecked(any())).thenReturn(null);
+        return callsManager;
+    }
+}
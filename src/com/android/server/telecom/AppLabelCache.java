@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.UserHandle;
+import android.telecom.Log;
+import android.util.Pair;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
+import com.android.server.telecom.flags.FeatureFlags;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link AppLabelProxy} which remembers the labels it has looked up. Labels are dropped when the
+ * package changes and all labels are dropped when the locale changes.
+ */
+public class AppLabelCache implements AppLabelProxy {
+    @VisibleForTesting
+    public static final int MAX_ENTRIES = 32;
+
+    private final Context mContext;
+    private final FeatureFlags mFeatureFlags;
+    private final LinkedHashMap<Pair<UserHandle, String>, CharSequence> mLabels =
+            new LinkedHashMap<>(16, 0.75f, true /* accessOrder */) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Pair<UserHandle, String>, CharSequence> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+    private int mHits = 0;
+    private int mMisses = 0;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Log.startSession("ALC.oR");
+            try {
+                if (Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+                    invalidateAll();
+                } else if (intent.getData() != null) {
+                    invalidatePackage(intent.getData().getSchemeSpecificPart());
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+    };
+
+    public AppLabelCache(Context context, FeatureFlags featureFlags) {
+        mContext = context;
+        mFeatureFlags = featureFlags;
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        mContext.registerReceiverAsUser(mReceiver, UserHandle.ALL, packageFilter, null, null);
+        mContext.registerReceiverAsUser(mReceiver, UserHandle.ALL,
+                new IntentFilter(Intent.ACTION_LOCALE_CHANGED), null, null);
+    }
+
+    @Override
+    public CharSequence getAppLabel(String packageName, UserHandle userHandle) {
+        Pair<UserHandle, String> key = new Pair<>(userHandle, packageName);
+        synchronized (mLabels) {
+            CharSequence label = mLabels.get(key);
+            if (label != null) {
+                mHits++;
+                return label;
+            }
+            mMisses++;
+        }
+        CharSequence label = AppLabelProxy.Util.getAppLabel(mContext, userHandle, packageName,
+                mFeatureFlags);
+        if (label != null) {
+            synchronized (mLabels) {
+                mLabels.put(key, label);
+            }
+        }
+        return label;
+    }
+
+    @VisibleForTesting
+    public void invalidatePackage(String packageName) {
+        synchronized (mLabels) {
+            Iterator<Pair<UserHandle, String>> iterator = mLabels.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().second.equals(packageName)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    public void invalidateAll() {
+        synchronized (mLabels) {
+            mLabels.clear();
+        }
+    }
+
+    public void dump(IndentingPrintWriter pw) {
+        synchronized (mLabels) {
+            int lookups = mHits + mMisses;
+            pw.println("AppLabelCache: entries=" + mLabels.size() + ", hits=" + mHits
+                    + ", misses=" + mMisses + ", hitRate="
+                    + (lookups == 0 ? 0 : (100 * mHits / lookups)) + "%");
+        }
+    }
+}
@@ -97,9 +97,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -131,6 +129,13 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     private static final char NO_DTMF_TONE = '\0';
 
+    /** Shared by every call, since {@link DisconnectCause} is immutable. */
+    private static final DisconnectCause UNKNOWN_DISCONNECT_CAUSE =
+            new DisconnectCause(DisconnectCause.UNKNOWN);
+
+    /** Used until {@link #initAnalytics} is called; does nothing and holds no state. */
+    private static final Analytics.CallInfo NO_OP_ANALYTICS = new Analytics.CallInfo();
+
     /**
      * The following simultaneous call types will be set on each call on creation and may be updated
      * according to priority level. CALL_DIRECTION_DUAL_DIFF_ACCOUNT holds the highest priority.
@@ -153,14 +158,18 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         void onCallStateChanged(int newCallState);
     }
 
-    public List<CallStateListener> mCallStateListeners = new ArrayList<>();
+    /** Only transactions verifying a call state change listen; created on first use. */
+    private List<CallStateListener> mCallStateListeners;
 
     public void addCallStateListener(CallStateListener newListener) {
+        if (mCallStateListeners == null) {
+            mCallStateListeners = new ArrayList<>(1);
+        }
         mCallStateListeners.add(newListener);
     }
 
     public boolean removeCallStateListener(CallStateListener newListener) {
-        return mCallStateListeners.remove(newListener);
+        return mCallStateListeners != null && mCallStateListeners.remove(newListener);
     }
 
     /**
@@ -193,6 +202,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         default void onCallDirectionChanged(Call call) {};
         default void onVideoStateChanged(Call call, int previousVideoState, int newVideoState) {};
         default void onTargetPhoneAccountChanged(Call call) {};
+        default void onAssociatedUserChanged(Call call) {};
         default void onConnectionManagerPhoneAccountChanged(Call call) {};
         default void onPhoneAccountChanged(Call call) {};
         default void onConferenceableCallsChanged(Call call) {};
@@ -276,6 +286,8 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         @Override
         public void onTargetPhoneAccountChanged(Call call) {}
         @Override
+        public void onAssociatedUserChanged(Call call) {}
+        @Override
         public void onConnectionManagerPhoneAccountChanged(Call call) {}
         @Override
         public void onPhoneAccountChanged(Call call) {}
@@ -419,9 +431,17 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     private UserHandle mAssociatedUser;
 
-    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    /** Only needed for post-call diagnostics; created on first use. */
+    private Handler mHandler;
 
-    private final List<Call> mConferenceableCalls = new ArrayList<>();
+    /** Created on first use; most calls are never conferenceable. */
+    private List<Call> mConferenceableCalls;
+
+    /**
+     * Immutable snapshot of the IDs of {@link #mConferenceableCalls}, built on demand when the
+     * call is parceled and dropped whenever the conferenceable calls change.
+     */
+    private List<String> mConferenceableCallIds = null;
 
     /** The state of the call. */
     private int mState;
@@ -476,6 +496,14 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     private boolean mIsEmergencyCall;
 
+    /**
+     * The number last checked by {@link #isEmergencyNumber(String)}, whether it is an emergency
+     * number, and the {@link EmergencyNumberIndex#getGeneration()} it was checked against.
+     */
+    private String mEmergencyCheckedNumber;
+    private boolean mIsEmergencyNumber;
+    private int mEmergencyCheckedGeneration = EmergencyNumberIndex.NO_GENERATION;
+
     /**
      * Flag indicating if ECBM is active for the target phone account. This only applies to MT calls
      * in the scenario of work profiles (when the profile is paused and the user has only registered
@@ -509,14 +537,14 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
      * Disconnect cause for the call. Only valid if the state of the call is STATE_DISCONNECTED.
      * See {@link android.telecom.DisconnectCause}.
      */
-    private DisconnectCause mDisconnectCause = new DisconnectCause(DisconnectCause.UNKNOWN);
+    private DisconnectCause mDisconnectCause = UNKNOWN_DISCONNECT_CAUSE;
 
     /**
      * Override the disconnect cause set by the connection service. Used for audio processing and
      * simulated ringing calls as well as the condition when an emergency call is ended due to
      * an emergency call being placed.
      */
-    private DisconnectCause mOverrideDisconnectCause = new DisconnectCause(DisconnectCause.UNKNOWN);
+    private DisconnectCause mOverrideDisconnectCause = UNKNOWN_DISCONNECT_CAUSE;
 
     /**
      * Simultaneous type of the call.
@@ -528,7 +556,8 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
      */
     boolean mHasVideoCall;
 
-    private Bundle mIntentExtras = new Bundle();
+    /** Created on first use; most calls have their extras set when they are created. */
+    private Bundle mIntentExtras;
 
     /**
      * The {@link Intent} which originally created this call.  Only populated when we are putting a
@@ -536,14 +565,12 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
      */
     private Intent mOriginalCallIntent = null;
 
-    /** Set of listeners on this call.
-     *
-     * ConcurrentHashMap constructor params: 8 is initial table size, 0.9f is
-     * load factor before resizing, 1 means we only expect a single thread to
-     * access the map so make only a single shard
+    /**
+     * Set of listeners on this call. Copied on write, since every call event is dispatched to each
+     * listener while listeners are only added and removed as the call comes and goes.
      */
-    private final Set<Listener> mListeners = Collections.newSetFromMap(
-            new ConcurrentHashMap<Listener, Boolean>(8, 0.9f, 1));
+    private final CopyOnWriteListenerArray<Listener> mListeners =
+            new CopyOnWriteListenerArray<>(new Listener[0]);
 
     private CreateConnectionProcessor mCreateConnectionProcessor;
 
@@ -576,7 +603,14 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     private Call mParentCall = null;
 
-    private List<Call> mChildCalls = new LinkedList<>();
+    /** Created on first use; only conferences have children. */
+    private List<Call> mChildCalls;
+
+    /**
+     * Immutable snapshot of the IDs of {@link #mChildCalls}, built on demand when the call is
+     * parceled and dropped whenever the children change.
+     */
+    private List<String> mChildCallIds = null;
 
     /** Set of text message responses allowed for this call, if applicable. */
     private List<String> mCannedSmsResponses = Collections.EMPTY_LIST;
@@ -589,6 +623,17 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     private boolean mIsVoipAudioMode;
     private StatusHints mStatusHints;
     private Bundle mExtras;
+
+    /**
+     * Incremented every time {@link #mExtras} is modified, so that the sanitized copies made by
+     * {@link ParcelableCallUtils} can be reused for as long as the extras are unchanged.
+     */
+    private int mExtrasVersion = 0;
+    private Bundle mSanitizedExtras;
+    private int mSanitizedExtrasVersion = -1;
+    private Bundle mSanitizedScreeningExtras;
+    private int mSanitizedScreeningExtrasVersion = -1;
+
     private final ConnectionServiceRepository mRepository;
     private final Context mContext;
     private final CallsManager mCallsManager;
@@ -597,7 +642,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     private final TelecomSystem.SyncRoot mLock;
     private final String mId;
     private String mConnectionId;
-    private Analytics.CallInfo mAnalytics = new Analytics.CallInfo();
+    private Analytics.CallInfo mAnalytics = NO_OP_ANALYTICS;
     private CallStateChangedAtomWriter mCallStateChangedAtomWriter =
             new CallStateChangedAtomWriter();
     private char mPlayingDtmfTone;
@@ -1515,7 +1560,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                 Log.addEvent(this, event, stringData);
             }
 
-            if (mFlags.transactionalCsVerifier()) {
+            if (mFlags.transactionalCsVerifier() && mCallStateListeners != null) {
                 for (CallStateListener listener : mCallStateListeners) {
                     listener.onCallStateChanged(newState);
                 }
@@ -1535,7 +1580,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     void setRingbackRequested(boolean ringbackRequested) {
         mRingbackRequested = ringbackRequested;
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onRingbackRequested(this, mRingbackRequested);
         }
     }
@@ -1629,8 +1674,9 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     public void setCallerNumberVerificationStatus(
             @Connection.VerificationStatus int callerNumberVerificationStatus) {
         mCallerNumberVerificationStatus = callerNumberVerificationStatus;
-        mListeners.forEach(l -> l.onCallerNumberVerificationStatusChanged(this,
-                callerNumberVerificationStatus));
+        for (Listener l : mListeners.snapshot()) {
+            l.onCallerNumberVerificationStatusChanged(this, callerNumberVerificationStatus);
+        }
     }
 
     public @Connection.VerificationStatus int getCallerNumberVerificationStatus() {
@@ -1662,8 +1708,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             if (!mIsEmergencyCall) {
                 try {
                     mIsEmergencyCall = mHandle != null &&
-                            getTelephonyManager().isEmergencyNumber(
-                                    mHandle.getSchemeSpecificPart());
+                            isEmergencyNumber(mHandle.getSchemeSpecificPart());
                 } catch (UnsupportedOperationException use) {
                     Log.i(this, "setHandle: no FEATURE_TELEPHONY; emergency state unknown.");
                     mIsEmergencyCall = false;
@@ -1687,14 +1732,47 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             } else {
                 Log.i(this, "skip incoming caller info lookup");
             }
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onHandleChanged(this);
             }
         }
     }
 
+    /**
+     * Checks whether {@code number} is an emergency number. When emergency numbers are indexed,
+     * the result for the last number checked is remembered until the emergency number list
+     * changes, so the checks made of the same handle while placing the call only go to Telephony
+     * once.
+     *
+     * @throws RuntimeException if Telephony can't determine it, as
+     * {@link TelephonyManager#isEmergencyNumber} does.
+     */
+    public boolean isEmergencyNumber(String number) {
+        EmergencyNumberIndex index = mCallsManager.getEmergencyNumberIndex();
+        if (index == null) {
+            return getTelephonyManager().isEmergencyNumber(number);
+        }
+        if (number == null) {
+            return false;
+        }
+        // Read before checking, so that a refresh made during the check isn't missed.
+        int generation = index.getGeneration();
+        if (generation == EmergencyNumberIndex.NO_GENERATION
+                || generation != mEmergencyCheckedGeneration
+                || !number.equals(mEmergencyCheckedNumber)) {
+            mIsEmergencyNumber = index.isEmergencyNumber(number);
+            mEmergencyCheckedNumber = number;
+            mEmergencyCheckedGeneration = generation;
+        }
+        return mIsEmergencyNumber;
+    }
+
     private boolean isTestEmergencyCall(String number) {
+        EmergencyNumberIndex index = mCallsManager.getEmergencyNumberIndex();
         try {
+            if (index != null) {
+                return index.isTestEmergencyNumber(number);
+            }
             Map<Integer, List<EmergencyNumber>> eMap =
                     getTelephonyManager().getEmergencyNumberList();
             return eMap.values().stream().flatMap(Collection::stream)
@@ -1728,7 +1806,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                 presentation != mCallerDisplayNamePresentation) {
             mCallerDisplayName = callerDisplayName;
             mCallerDisplayNamePresentation = presentation;
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onCallerDisplayNameChanged(this);
             }
         }
@@ -1865,7 +1943,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     public void setConnectionManagerPhoneAccount(PhoneAccountHandle accountHandle) {
         if (!Objects.equals(mConnectionManagerPhoneAccountHandle, accountHandle)) {
             mConnectionManagerPhoneAccountHandle = accountHandle;
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onConnectionManagerPhoneAccountChanged(this);
             }
         }
@@ -1924,7 +2002,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                 mCallsManager.getEmergencyCallHelper().setLastOutgoingEmergencyCallPAH(
                         accountHandle);
             }
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onTargetPhoneAccountChanged(this);
             }
             configureCallAttributes();
@@ -2384,7 +2462,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         if (forceUpdate || mConnectionCapabilities != connectionCapabilities) {
             int previousCapabilities = mConnectionCapabilities;
             mConnectionCapabilities = connectionCapabilities;
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onConnectionCapabilitiesChanged(this);
             }
 
@@ -2463,7 +2541,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             mWasHighDefAudio = (connectionProperties & Connection.PROPERTY_HIGH_DEF_AUDIO) ==
                     Connection.PROPERTY_HIGH_DEF_AUDIO;
             mWasWifi = (connectionProperties & Connection.PROPERTY_WIFI) > 0;
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onConnectionPropertiesChanged(this, didRttChange);
             }
 
@@ -2481,7 +2559,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                     boolean isInEmergencyCall = mCallsManager.isInEmergencyCall();
                     setIsPullExternalCallSupported(!isInEmergencyCall);
                 }
-                for (Listener l : mListeners) {
+                for (Listener l : mListeners.snapshot()) {
                     l.onExternalCallChanged(this, isExternal);
                 }
             }
@@ -2524,7 +2602,45 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     @VisibleForTesting
     public List<Call> getChildCalls() {
-        return mChildCalls;
+        return mChildCalls != null ? mChildCalls : Collections.emptyList();
+    }
+
+    /**
+     * @return An immutable list of the IDs of the children of this call. The same instance is
+     * returned until the children change, so a large conference doesn't rebuild the list for
+     * every update sent to the InCallServices.
+     */
+    public List<String> getChildCallIds() {
+        List<String> childCallIds = mChildCallIds;
+        if (childCallIds == null) {
+            childCallIds = toCallIds(getChildCalls());
+            mChildCallIds = childCallIds;
+        }
+        return childCallIds;
+    }
+
+    /**
+     * @return An immutable list of the IDs of the calls this call can be conferenced with. The
+     * same instance is returned until the conferenceable calls change.
+     */
+    public List<String> getConferenceableCallIds() {
+        List<String> conferenceableCallIds = mConferenceableCallIds;
+        if (conferenceableCallIds == null) {
+            conferenceableCallIds = toCallIds(getConferenceableCalls());
+            mConferenceableCallIds = conferenceableCallIds;
+        }
+        return conferenceableCallIds;
+    }
+
+    private static List<String> toCallIds(List<Call> calls) {
+        if (calls.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> callIds = new ArrayList<>(calls.size());
+        for (Call call : calls) {
+            callIds.add(call.getId());
+        }
+        return Collections.unmodifiableList(callIds);
     }
 
     @VisibleForTesting
@@ -2695,12 +2811,12 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             case CALL_DIRECTION_INCOMING:
                 // Listeners (just CallsManager for now) will be responsible for checking whether
                 // the call should be blocked.
-                for (Listener l : mListeners) {
+                for (Listener l : mListeners.snapshot()) {
                     l.onSuccessfulIncomingCall(this);
                 }
                 break;
             case CALL_DIRECTION_OUTGOING:
-                for (Listener l : mListeners) {
+                for (Listener l : mListeners.snapshot()) {
                     l.onSuccessfulOutgoingCall(this,
                             getStateFromConnectionState(conference.getState()));
                 }
@@ -2729,10 +2845,13 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         setStatusHints(connection.getStatusHints());
         putConnectionServiceExtras(connection.getExtras());
 
-        mConferenceableCalls.clear();
+        if (mConferenceableCalls != null) {
+            mConferenceableCalls.clear();
+        }
         for (String id : connection.getConferenceableConnectionIds()) {
-            mConferenceableCalls.add(idMapper.getCall(id));
+            getOrCreateConferenceableCalls().add(idMapper.getCall(id));
         }
+        mConferenceableCallIds = null;
 
         switch (mCallDirection) {
             case CALL_DIRECTION_INCOMING:
@@ -2740,18 +2859,18 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
                 // Listeners (just CallsManager for now) will be responsible for checking whether
                 // the call should be blocked.
-                for (Listener l : mListeners) {
+                for (Listener l : mListeners.snapshot()) {
                     l.onSuccessfulIncomingCall(this);
                 }
                 break;
             case CALL_DIRECTION_OUTGOING:
-                for (Listener l : mListeners) {
+                for (Listener l : mListeners.snapshot()) {
                     l.onSuccessfulOutgoingCall(this,
                             getStateFromConnectionState(connection.getState()));
                 }
                 break;
             case CALL_DIRECTION_UNKNOWN:
-                for (Listener l : mListeners) {
+                for (Listener l : mListeners.snapshot()) {
                     l.onSuccessfulUnknownCall(this, getStateFromConnectionState(connection
                             .getState()));
                 }
@@ -2769,12 +2888,12 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
         switch (mCallDirection) {
             case CALL_DIRECTION_INCOMING:
-                for (Listener listener : mListeners) {
+                for (Listener listener : mListeners.snapshot()) {
                     listener.onFailedIncomingCall(this);
                 }
                 break;
             case CALL_DIRECTION_OUTGOING:
-                for (Listener listener : mListeners) {
+                for (Listener listener : mListeners.snapshot()) {
                     listener.onFailedOutgoingCall(this, disconnectCause);
                 }
                 break;
@@ -2791,17 +2910,17 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
         switch (mCallDirection) {
             case CALL_DIRECTION_INCOMING:
-                for (Listener listener : mListeners) {
+                for (Listener listener : mListeners.snapshot()) {
                     listener.onFailedIncomingCall(this);
                 }
                 break;
             case CALL_DIRECTION_OUTGOING:
-                for (Listener listener : mListeners) {
+                for (Listener listener : mListeners.snapshot()) {
                     listener.onFailedOutgoingCall(this, disconnectCause);
                 }
                 break;
             case CALL_DIRECTION_UNKNOWN:
-                for (Listener listener : mListeners) {
+                for (Listener listener : mListeners.snapshot()) {
                     listener.onFailedUnknownCall(this);
                 }
                 break;
@@ -2951,7 +3070,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                 // the second call so that in-call only ever sees a single call...eliminating the
                 // jank altogether. The app will also be able to set the timeout via an extra on
                 // the ordered broadcast.
-                for (Listener listener : mListeners) {
+                for (Listener listener : mListeners.snapshot()) {
                     if (listener.onCanceledViaNewOutgoingCallBroadcast(
                             this, disconnectionTimeout)) {
                         // The first listener to handle this wins. A return value of true means that
@@ -3351,6 +3470,33 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         return mExtras;
     }
 
+    /**
+     * @return The extras sanitized for non-system InCallServices, or {@code null} if the extras
+     * changed since they were last sanitized.
+     */
+    Bundle getSanitizedExtras() {
+        return mSanitizedExtrasVersion == mExtrasVersion ? mSanitizedExtras : null;
+    }
+
+    void setSanitizedExtras(Bundle sanitizedExtras) {
+        mSanitizedExtras = sanitizedExtras;
+        mSanitizedExtrasVersion = mExtrasVersion;
+    }
+
+    /**
+     * @return The restricted extras sanitized for call screening services, or {@code null} if the
+     * extras changed since they were last sanitized.
+     */
+    Bundle getSanitizedScreeningExtras() {
+        return mSanitizedScreeningExtrasVersion == mExtrasVersion
+                ? mSanitizedScreeningExtras : null;
+    }
+
+    void setSanitizedScreeningExtras(Bundle sanitizedExtras) {
+        mSanitizedScreeningExtras = sanitizedExtras;
+        mSanitizedScreeningExtrasVersion = mExtrasVersion;
+    }
+
     /**
      * Adds extras to the extras bundle associated with this {@link Call}, as made by a
      * {@link ConnectionService} or other non {@link android.telecom.InCallService} source.
@@ -3398,8 +3544,9 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             mExtras = new Bundle();
         }
         mExtras.putAll(extras);
+        mExtrasVersion++;
 
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onExtrasChanged(this, source, extras, requestingPackageName);
         }
 
@@ -3442,6 +3589,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         if (mExtras.containsKey(TelecomManager.EXTRA_DO_NOT_LOG_CALL)) {
             if (source != SOURCE_CONNECTION_SERVICE || !mIsModifyStatePermissionGranted) {
                 mExtras.remove(TelecomManager.EXTRA_DO_NOT_LOG_CALL);
+                mExtrasVersion++;
             }
         }
 
@@ -3486,8 +3634,9 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         for (String key : keys) {
             mExtras.remove(key);
         }
+        mExtrasVersion++;
 
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onExtrasRemoved(this, source, keys);
         }
 
@@ -3506,6 +3655,9 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     @VisibleForTesting
     public Bundle getIntentExtras() {
+        if (mIntentExtras == null) {
+            mIntentExtras = new Bundle();
+        }
         return mIntentExtras;
     }
 
@@ -3537,13 +3689,13 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     }
 
     void onPostDialWait(String remaining) {
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onPostDialWait(this, remaining);
         }
     }
 
     void onPostDialChar(char nextChar) {
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onPostDialChar(this, nextChar);
         }
     }
@@ -3603,21 +3755,22 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         } else if (can(Connection.CAPABILITY_SWAP_CONFERENCE)) {
             Log.addEvent(this, LogUtils.Events.SWAP);
             mConnectionService.swapConference(this);
-            switch (mChildCalls.size()) {
+            List<Call> childCalls = getChildCalls();
+            switch (childCalls.size()) {
                 case 1:
-                    mConferenceLevelActiveCall = mChildCalls.get(0);
+                    mConferenceLevelActiveCall = childCalls.get(0);
                     break;
                 case 2:
                     // swap
-                    mConferenceLevelActiveCall = mChildCalls.get(0) == mConferenceLevelActiveCall ?
-                            mChildCalls.get(1) : mChildCalls.get(0);
+                    mConferenceLevelActiveCall = childCalls.get(0) == mConferenceLevelActiveCall ?
+                            childCalls.get(1) : childCalls.get(0);
                     break;
                 default:
                     // For anything else 0, or 3+, set it to null since it is impossible to tell.
                     mConferenceLevelActiveCall = null;
                     break;
             }
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onCdmaConferenceSwap(this);
             }
         }
@@ -3732,7 +3885,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
      */
     void notifyBluetoothCallQualityReport(@NonNull BluetoothCallQualityReport report) {
         Log.addEvent(this, LogUtils.Events.BT_QUALITY_REPORT, "choppy=" + report.isChoppyVoice());
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onBluetoothCallQualityReport(this, report);
         }
     }
@@ -3769,7 +3922,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
      */
     void notifyParentChanged(Call parentCall) {
         Log.addEvent(this, LogUtils.Events.SET_PARENT, parentCall);
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onParentChanged(this);
         }
     }
@@ -3811,8 +3964,13 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     }
 
     void setConferenceableCalls(List<Call> conferenceableCalls) {
-        mConferenceableCalls.clear();
-        mConferenceableCalls.addAll(conferenceableCalls);
+        if (mConferenceableCalls != null) {
+            mConferenceableCalls.clear();
+        }
+        if (!conferenceableCalls.isEmpty()) {
+            getOrCreateConferenceableCalls().addAll(conferenceableCalls);
+        }
+        mConferenceableCallIds = null;
         String confCallIds = "";
         if (!conferenceableCalls.isEmpty()) {
             confCallIds = conferenceableCalls.stream()
@@ -3821,13 +3979,20 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         }
         Log.addEvent(this, LogUtils.Events.CONF_CALLS_CHANGED, confCallIds);
 
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onConferenceableCallsChanged(this);
         }
     }
 
     @VisibleForTesting
     public List<Call> getConferenceableCalls() {
+        return mConferenceableCalls != null ? mConferenceableCalls : Collections.emptyList();
+    }
+
+    private List<Call> getOrCreateConferenceableCalls() {
+        if (mConferenceableCalls == null) {
+            mConferenceableCalls = new ArrayList<>();
+        }
         return mConferenceableCalls;
     }
 
@@ -3842,12 +4007,16 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     }
 
     private void addChildCall(Call call) {
+        if (mChildCalls == null) {
+            mChildCalls = new LinkedList<>();
+        }
         if (!mChildCalls.contains(call)) {
             mHadChildren = true;
             // Set the pseudo-active call to the latest child added to the conference.
             // See definition of mConferenceLevelActiveCall for more detail.
             mConferenceLevelActiveCall = call;
             mChildCalls.add(call);
+            mChildCallIds = null;
 
             // When adding a child, we will potentially adjust the various times from the calls
             // based on the children being added.  This ensures the parent of the conference has a
@@ -3856,7 +4025,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
             Log.addEvent(this, LogUtils.Events.ADD_CHILD, call);
 
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onChildrenChanged(this);
             }
         }
@@ -3887,9 +4056,10 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     }
 
     private void removeChildCall(Call call) {
-        if (mChildCalls.remove(call)) {
+        if (mChildCalls != null && mChildCalls.remove(call)) {
+            mChildCallIds = null;
             Log.addEvent(this, LogUtils.Events.REMOVE_CHILD, call);
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onChildrenChanged(this);
             }
         }
@@ -4039,7 +4209,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
         if (mCallerInfo.getContactDisplayPhotoUri() == null || mCallerInfo.cachedPhotoIcon != null
             || mCallerInfo.cachedPhoto != null || contactNameChanged) {
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onCallerInfoChanged(this);
             }
         }
@@ -4062,7 +4232,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                             if (result.length > 0) {
                                 Log.d(this, "maybeLoadCannedSmsResponses: got %s", result[0]);
                                 mCannedSmsResponses = result[0];
-                                for (Listener l : mListeners) {
+                                for (Listener l : mListeners.snapshot()) {
                                     l.onCannedSmsResponsesLoaded(Call.this);
                                 }
                             }
@@ -4144,7 +4314,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     public void onRttConnectionFailure(int reason) {
         Log.i(this, "Got RTT initiation failure with reason %d", reason);
         Log.addEvent(this, LogUtils.Events.ON_RTT_FAILED, "reason="  + reason);
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onRttInitiationFailure(this, reason);
         }
     }
@@ -4157,7 +4327,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         }
 
         mPendingRttRequestId = mCallsManager.getNextRttRequestId();
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onRemoteRttRequest(this, mPendingRttRequestId);
         }
     }
@@ -4240,7 +4410,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             }
         }
 
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onVideoCallProviderChanged(Call.this);
         }
     }
@@ -4319,7 +4489,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                 Log.addEvent(this, LogUtils.Events.VIDEO_STATE_CHANGED,
                         VideoProfile.videoStateToString(videoState));
             }
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onVideoStateChanged(this, previousVideoState, mVideoState);
             }
         }
@@ -4356,7 +4526,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             Log.addEvent(this, LogUtils.Events.SET_VOIP_MODE, audioModeIsVoip ? "Y" : "N");
         }
         mIsVoipAudioMode = audioModeIsVoip;
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onIsVoipAudioModeChanged(this);
         }
     }
@@ -4367,7 +4537,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
 
     public void setStatusHints(StatusHints statusHints) {
         mStatusHints = statusHints;
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onStatusHintsChanged(this);
         }
     }
@@ -4418,7 +4588,13 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     public void setAssociatedUser(UserHandle associatedUser) {
         Log.i(this, "Setting associated user for call: %s", associatedUser);
         Preconditions.checkNotNull(associatedUser);
+        if (associatedUser.equals(mAssociatedUser)) {
+            return;
+        }
         mAssociatedUser = associatedUser;
+        for (Listener l : mListeners.snapshot()) {
+            l.onAssociatedUserChanged(this);
+        }
     }
 
     static int getStateFromConnectionState(int state) {
@@ -4515,7 +4691,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
     public void onConnectionEvent(String event, Bundle extras) {
         if (mIsTransactionalCall) {
             // send the Event directly to the ICS via the InCallController listener
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onConnectionEvent(this, event, extras);
             }
             // Don't run the below block since it applies to Calls that are attached to a
@@ -4531,25 +4707,25 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             Log.addEvent(this, LogUtils.Events.REMOTELY_HELD);
             // Inform listeners of the fact that a call hold tone was received.  This will trigger
             // the CallAudioManager to play a tone via the InCallTonePlayer.
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onHoldToneRequested(this);
             }
         } else if (Connection.EVENT_ON_HOLD_TONE_END.equals(event)) {
             mIsRemotelyHeld = false;
             Log.addEvent(this, LogUtils.Events.REMOTELY_UNHELD);
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onHoldToneRequested(this);
             }
         } else if (Connection.EVENT_CALL_HOLD_FAILED.equals(event)) {
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onCallHoldFailed(this);
             }
         } else if (Connection.EVENT_CALL_SWITCH_FAILED.equals(event)) {
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onCallSwitchFailed(this);
             }
         } else if (Connection.EVENT_CALL_RESUME_FAILED.equals(event)) {
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onCallResumeFailed(this);
             }
         } else if (Connection.EVENT_DEVICE_TO_DEVICE_MESSAGE.equals(event)
@@ -4560,13 +4736,13 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             // CallDiagnosticService.
             int messageType = extras.getInt(Connection.EXTRA_DEVICE_TO_DEVICE_MESSAGE_TYPE);
             int messageValue = extras.getInt(Connection.EXTRA_DEVICE_TO_DEVICE_MESSAGE_VALUE);
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onReceivedDeviceToDeviceMessage(this, messageType, messageValue);
             }
         } else if (Connection.EVENT_CALL_QUALITY_REPORT.equals(event)
                 && extras != null && extras.containsKey(Connection.EXTRA_CALL_QUALITY_REPORT)) {
             CallQuality callQuality = extras.getParcelable(Connection.EXTRA_CALL_QUALITY_REPORT);
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onReceivedCallQualityReport(this, callQuality);
             }
         } else {
@@ -4576,7 +4752,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
                 return;
             }
 
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 l.onConnectionEvent(this, event, extras);
             }
         }
@@ -4595,14 +4771,14 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         if (mConnectionService != null) {
             mConnectionService.handoverComplete(this);
         }
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onHandoverComplete(this);
         }
     }
 
     public void onHandoverFailed(int handoverError) {
         Log.i(this, "onHandoverFailed; callId=%s, handoverError=%d", getId(), handoverError);
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onHandoverFailed(this, handoverError);
         }
     }
@@ -4661,7 +4837,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
      */
     private void requestHandover(PhoneAccountHandle handoverToHandle, int videoState,
                                  Bundle extras, boolean isLegacy) {
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onHandoverRequested(this, handoverToHandle, videoState, extras, isLegacy);
         }
     }
@@ -4679,7 +4855,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
         Log.addEvent(this, LogUtils.Events.CONF_STATE_CHANGED, "isConference=" + isConference);
         // Ultimately CallsManager needs to know so it can update the "add call" state and inform
         // the UI to update itself.
-        for (Listener l : mListeners) {
+        for (Listener l : mListeners.snapshot()) {
             l.onConferenceStateChanged(this, isConference);
         }
     }
@@ -4695,7 +4871,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             Log.addEvent(this, LogUtils.Events.CALL_DIRECTION_CHANGED, "callDirection="
                     + callDirection);
             mCallDirection = callDirection;
-            for (Listener l : mListeners) {
+            for (Listener l : mListeners.snapshot()) {
                 // Update InCallService directly, do not notify CallsManager.
                 l.onCallDirectionChanged(this);
             }
@@ -4947,6 +5123,9 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
      */
     public CompletableFuture<Boolean> initializeDiagnosticCompleteFuture(long timeoutMillis) {
         if (mDiagnosticCompleteFuture == null) {
+            if (mHandler == null) {
+                mHandler = new Handler(Looper.getMainLooper());
+            }
             mDiagnosticCompleteFuture = new CompletableFuture<Boolean>()
                     .completeOnTimeout(false, timeoutMillis, TimeUnit.MILLISECONDS);
             // After all the chained stuff we will report where the CDS timed out.
@@ -5085,7 +5264,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             }
 
             mIsStreaming = true;
-            for (Listener listener : mListeners) {
+            for (Listener listener : mListeners.snapshot()) {
                 listener.onCallStreamingStateChanged(this, true /** isStreaming */);
             }
         }
@@ -5099,7 +5278,7 @@ public class Call implements CreateConnectionResponse, EventManager.Loggable,
             }
             Log.addEvent(this, LogUtils.Events.STOP_STREAMING);
             mIsStreaming = false;
-            for (Listener listener : mListeners) {
+            for (Listener listener : mListeners.snapshot()) {
                 listener.onCallStreamingStateChanged(this, false /** isStreaming */);
             }
         }
@@ -638,6 +638,8 @@ public class CallAudioManager extends CallsManagerListenerBase {
         dumpCallsInCollection(pw, mRingingCalls);
         pw.decreaseIndent();
 
+        InCallTonePlayer.dumpMetrics(pw);
+
         pw.println("Holding calls:");
         pw.increaseIndent();
         dumpCallsInCollection(pw, mHoldingCalls);
@@ -815,6 +817,19 @@ public class CallAudioManager extends CallsManagerListenerBase {
     }
 
     private void handleBtBindingWaitFallback() {
+        if (mFeatureFlags.asyncBtIcsBindingFallback()) {
+            // Wait for the BT ICS binding to complete (or fail) without parking a thread on it.
+            // As with the thread, the message is sent without holding the Telecom lock.
+            CompletableFuture<Boolean> btIcsFuture = mRingingCalls.getFirst().getBtIcsFuture();
+            CompletableFuture<Void> bindingDone = btIcsFuture == null
+                    ? CompletableFuture.completedFuture(null)
+                    : btIcsFuture.handle((completed, throwable) -> null);
+            bindingDone.thenRunAsync(() -> mCallAudioModeStateMachine.sendMessageWithArgs(
+                            CallAudioModeStateMachine.NEW_RINGING_CALL,
+                            makeArgsForModeStateMachine()),
+                    new LoggedHandlerExecutor(mHandler, "CAM.hBBWF", null /* lock */));
+            return;
+        }
         // Wait until the BT ICS binding completed to request further audio route change
         mBtIcsBindingThread = new Thread(() -> {
             mRingingCalls.getFirst().waitForBtIcs();
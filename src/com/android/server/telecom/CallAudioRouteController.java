@@ -544,6 +544,9 @@ public class CallAudioRouteController implements CallAudioRouteAdapter {
 
     @Override
     public void dump(IndentingPrintWriter pw) {
+        if (mFeatureFlags.telecomMetricsSupport()) {
+            mMetricsController.getAudioRouteStats().dump(pw);
+        }
     }
 
     private void preHandleMessage(Message msg) {
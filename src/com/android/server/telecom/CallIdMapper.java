@@ -16,69 +16,226 @@
 
 package com.android.server.telecom;
 
-import android.util.ArrayMap;
-
 import com.android.internal.annotations.VisibleForTesting;
 
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /** Utility to map {@link Call} objects to unique IDs. IDs are generated when a call is added. */
 @VisibleForTesting
 public class CallIdMapper {
     /**
-     * A very basic bidirectional map.
+     * A bidirectional index between call ids and calls, made of two open addressing tables with
+     * linear probing. Each table keeps the hash of its keys next to them, so probing compares ints
+     * before touching a key. Ids are matched by reference before {@link String#equals}, so the id
+     * instance stored when the call was added is matched without comparing characters, and calls
+     * are matched by identity. Lookups in either direction allocate nothing.
      */
-    static class BiMap<K, V> {
-        private Map<K, V> mPrimaryMap = new ArrayMap<>();
-        private Map<V, K> mSecondaryMap = new ArrayMap<>();
+    @VisibleForTesting
+    public static final class CallIndex {
+        private final Table mCallsById = new Table(false /* isIdentity */);
+        private final Table mIdsByCall = new Table(true /* isIdentity */);
+        private final Collection<Call> mCalls = new AbstractCollection<Call>() {
+            @Override
+            public Iterator<Call> iterator() {
+                return new Iterator<Call>() {
+                    private int mRemaining = mCallsById.mSize;
+                    private int mSlot = -1;
 
-        public boolean put(K key, V value) {
-            if (key == null || value == null || mPrimaryMap.containsKey(key) ||
-                    mSecondaryMap.containsKey(value)) {
-                return false;
+                    @Override
+                    public boolean hasNext() {
+                        return mRemaining > 0;
+                    }
+
+                    @Override
+                    public Call next() {
+                        if (mRemaining == 0) {
+                            throw new NoSuchElementException();
+                        }
+                        do {
+                            mSlot++;
+                        } while (mCallsById.mKeys[mSlot] == null);
+                        mRemaining--;
+                        return (Call) mCallsById.mValues[mSlot];
+                    }
+                };
             }
 
-            mPrimaryMap.put(key, value);
-            mSecondaryMap.put(value, key);
+            @Override
+            public int size() {
+                return mCallsById.mSize;
+            }
+        };
+
+        /**
+         * Adds a mapping, unless either the id or the call is already mapped.
+         * @return {@code true} if the mapping was added.
+         */
+        public boolean put(String id, Call call) {
+            if (id == null || call == null || mCallsById.find(id, id.hashCode()) >= 0
+                    || mIdsByCall.find(call, System.identityHashCode(call)) >= 0) {
+                return false;
+            }
+            mCallsById.put(id, id.hashCode(), call);
+            mIdsByCall.put(call, System.identityHashCode(call), id);
             return true;
         }
 
-        public boolean remove(K key) {
-            if (key == null) {
+        public boolean remove(String id) {
+            if (id == null) {
                 return false;
             }
-            if (mPrimaryMap.containsKey(key)) {
-                V value = getValue(key);
-                mPrimaryMap.remove(key);
-                mSecondaryMap.remove(value);
-                return true;
+            int slot = mCallsById.find(id, id.hashCode());
+            if (slot < 0) {
+                return false;
             }
-            return false;
+            Call call = (Call) mCallsById.mValues[slot];
+            mCallsById.delete(slot);
+            mIdsByCall.delete(mIdsByCall.find(call, System.identityHashCode(call)));
+            return true;
         }
 
-        public boolean removeValue(V value) {
-            if (value == null) {
+        public boolean removeCall(Call call) {
+            if (call == null) {
+                return false;
+            }
+            int slot = mIdsByCall.find(call, System.identityHashCode(call));
+            if (slot < 0) {
                 return false;
             }
-            return remove(getKey(value));
+            String id = (String) mIdsByCall.mValues[slot];
+            mIdsByCall.delete(slot);
+            mCallsById.delete(mCallsById.find(id, id.hashCode()));
+            return true;
         }
 
-        public V getValue(K key) {
-            return mPrimaryMap.get(key);
+        public Call getCall(String id) {
+            if (id == null) {
+                return null;
+            }
+            int slot = mCallsById.find(id, id.hashCode());
+            return slot < 0 ? null : (Call) mCallsById.mValues[slot];
+        }
+
+        public String getId(Call call) {
+            if (call == null) {
+                return null;
+            }
+            int slot = mIdsByCall.find(call, System.identityHashCode(call));
+            return slot < 0 ? null : (String) mIdsByCall.mValues[slot];
         }
 
-        public K getKey(V value) {
-            return mSecondaryMap.get(value);
+        /**
+         * @return A live view of the mapped calls, in no particular order.
+         */
+        public Collection<Call> getCalls() {
+            return mCalls;
         }
 
-        public Collection<V> getValues() {
-            return mPrimaryMap.values();
+        public int size() {
+            return mCallsById.mSize;
         }
 
         public void clear() {
-            mPrimaryMap.clear();
-            mSecondaryMap.clear();
+            mCallsById.clear();
+            mIdsByCall.clear();
+        }
+    }
+
+    /**
+     * One direction of {@link CallIndex}. Kept at most half full, and entries are shifted back
+     * on removal instead of leaving tombstones, so probe sequences stay short under churn.
+     */
+    private static final class Table {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final boolean mIsIdentity;
+        private Object[] mKeys = new Object[INITIAL_CAPACITY];
+        private int[] mHashes = new int[INITIAL_CAPACITY];
+        private Object[] mValues = new Object[INITIAL_CAPACITY];
+        private int mSize;
+
+        Table(boolean isIdentity) {
+            mIsIdentity = isIdentity;
+        }
+
+        private static int home(int hash, int mask) {
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        /**
+         * @return The slot holding {@code key}, or -1.
+         */
+        int find(Object key, int hash) {
+            int mask = mKeys.length - 1;
+            for (int i = home(hash, mask); mKeys[i] != null; i = (i + 1) & mask) {
+                if (mKeys[i] == key
+                        || (!mIsIdentity && mHashes[i] == hash && mKeys[i].equals(key))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /** Adds a key which is not in the table. */
+        void put(Object key, int hash, Object value) {
+            if ((mSize + 1) * 2 > mKeys.length) {
+                resize(mKeys.length * 2);
+            }
+            insert(key, hash, value);
+            mSize++;
+        }
+
+        private void insert(Object key, int hash, Object value) {
+            int mask = mKeys.length - 1;
+            int i = home(hash, mask);
+            while (mKeys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            mKeys[i] = key;
+            mHashes[i] = hash;
+            mValues[i] = value;
+        }
+
+        private void resize(int capacity) {
+            Object[] keys = mKeys;
+            int[] hashes = mHashes;
+            Object[] values = mValues;
+            mKeys = new Object[capacity];
+            mHashes = new int[capacity];
+            mValues = new Object[capacity];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    insert(keys[i], hashes[i], values[i]);
+                }
+            }
+        }
+
+        void delete(int slot) {
+            int mask = mKeys.length - 1;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; mKeys[i] != null; i = (i + 1) & mask) {
+                // Move the entry into the hole unless its home lies between the hole and it.
+                if (((i - home(mHashes[i], mask)) & mask) >= ((i - hole) & mask)) {
+                    mKeys[hole] = mKeys[i];
+                    mHashes[hole] = mHashes[i];
+                    mValues[hole] = mValues[i];
+                    hole = i;
+                }
+            }
+            mKeys[hole] = null;
+            mHashes[hole] = 0;
+            mValues[hole] = null;
+            mSize--;
+        }
+
+        void clear() {
+            mKeys = new Object[INITIAL_CAPACITY];
+            mHashes = new int[INITIAL_CAPACITY];
+            mValues = new Object[INITIAL_CAPACITY];
+            mSize = 0;
         }
     }
 
@@ -86,7 +243,7 @@ public class CallIdMapper {
         String getCallId(Call call);
     }
 
-    private final BiMap<String, Call> mCalls = new BiMap<>();
+    private final CallIndex mCalls = new CallIndex();
     private ICallInfo mCallInfo;
 
     public CallIdMapper(ICallInfo callInfo) {
@@ -106,39 +263,43 @@ public class CallIdMapper {
         mCalls.put(id, call);
     }
 
-    void addCall(Call call) {
+    @VisibleForTesting
+    public void addCall(Call call) {
         addCall(call, mCallInfo.getCallId(call));
     }
 
-    void removeCall(Call call) {
+    @VisibleForTesting
+    public void removeCall(Call call) {
         if (call == null) {
             return;
         }
-        mCalls.removeValue(call);
+        mCalls.removeCall(call);
     }
 
     void removeCall(String callId) {
         mCalls.remove(callId);
     }
 
-    String getCallId(Call call) {
-        if (call == null || mCalls.getKey(call) == null) {
+    @VisibleForTesting
+    public String getCallId(Call call) {
+        if (call == null || mCalls.getId(call) == null) {
             return null;
         }
         return mCallInfo.getCallId(call);
     }
 
-    Call getCall(Object objId) {
+    @VisibleForTesting
+    public Call getCall(Object objId) {
         String callId = null;
         if (objId instanceof String) {
             callId = (String) objId;
         }
 
-        return mCalls.getValue(callId);
+        return mCalls.getCall(callId);
     }
 
     Collection<Call> getCalls() {
-        return mCalls.getValues();
+        return mCalls.getCalls();
     }
 
     void clear() {
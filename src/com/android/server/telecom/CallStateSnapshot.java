@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom;
+
+import android.os.UserHandle;
+import android.telecom.PhoneAccount;
+import android.telephony.TelephonyManager;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable summary of the calls tracked by {@link CallsManager}, published on every change which
+ * can affect the call state queries in {@link TelecomServiceImpl}. Lets those queries be answered
+ * from binder threads without taking the Telecom lock.
+ */
+public final class CallStateSnapshot {
+    public static final CallStateSnapshot EMPTY = new CallStateSnapshot(
+            TelephonyManager.CALL_STATE_IDLE, false, Collections.emptyList());
+
+    /**
+     * The parts of an ongoing call needed to answer the call state queries.
+     */
+    private static final class OngoingCall {
+        final UserHandle associatedUser;
+        final boolean isSelfManaged;
+        final boolean isMultiUser;
+
+        OngoingCall(UserHandle associatedUser, boolean isSelfManaged, boolean isMultiUser) {
+            this.associatedUser = associatedUser;
+            this.isSelfManaged = isSelfManaged;
+            this.isMultiUser = isMultiUser;
+        }
+
+        boolean isVisibleForUser(UserHandle userHandle, boolean hasCrossUserAccess) {
+            return hasCrossUserAccess || isMultiUser
+                    || (associatedUser != null && associatedUser.equals(userHandle));
+        }
+    }
+
+    private final int mCallState;
+    private final boolean mHasRingingOrSimulatedRingingCall;
+    private final List<OngoingCall> mOngoingCalls;
+
+    private CallStateSnapshot(int callState, boolean hasRingingOrSimulatedRingingCall,
+            List<OngoingCall> ongoingCalls) {
+        mCallState = callState;
+        mHasRingingOrSimulatedRingingCall = hasRingingOrSimulatedRingingCall;
+        mOngoingCalls = ongoingCalls;
+    }
+
+    /**
+     * Builds a snapshot from the calls currently tracked by {@link CallsManager}. Must be called
+     * with the Telecom lock held.
+     *
+     * @param calls The calls tracked by {@link CallsManager}.
+     * @param callState The {@link TelephonyManager} call state last broadcast.
+     */
+    @VisibleForTesting
+    public static CallStateSnapshot create(Collection<Call> calls, int callState) {
+        boolean hasRinging = false;
+        List<OngoingCall> ongoingCalls = new ArrayList<>(calls.size());
+        for (Call call : calls) {
+            if (call.getParentCall() != null || call.isExternalCall()) {
+                continue;
+            }
+            int state = call.getState();
+            if (state == CallState.RINGING || state == CallState.SIMULATED_RINGING
+                    || state == CallState.ANSWERED) {
+                hasRinging = true;
+            }
+            if (!isOngoingState(state)) {
+                continue;
+            }
+            PhoneAccount phoneAccount = call.getPhoneAccountFromHandle();
+            ongoingCalls.add(new OngoingCall(call.getAssociatedUser(), call.isSelfManaged(),
+                    phoneAccount != null
+                            && phoneAccount.hasCapabilities(PhoneAccount.CAPABILITY_MULTI_USER)));
+        }
+        return new CallStateSnapshot(callState, hasRinging,
+                Collections.unmodifiableList(ongoingCalls));
+    }
+
+    private static boolean isOngoingState(int state) {
+        for (int ongoingState : CallsManager.ONGOING_CALL_STATES) {
+            if (state == ongoingState) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @see CallsManager#getCallState()
+     */
+    public int getCallState() {
+        return mCallState;
+    }
+
+    /**
+     * @see CallsManager#hasRingingOrSimulatedRingingCall()
+     */
+    public boolean hasRingingOrSimulatedRingingCall() {
+        return mHasRingingOrSimulatedRingingCall;
+    }
+
+    /**
+     * @see CallsManager#hasOngoingCalls(UserHandle, boolean)
+     */
+    public boolean hasOngoingCalls(UserHandle callingUser, boolean hasCrossUserAccess) {
+        for (OngoingCall call : mOngoingCalls) {
+            if (call.isVisibleForUser(callingUser, hasCrossUserAccess)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @see CallsManager#hasOngoingManagedCalls(UserHandle, boolean)
+     */
+    public boolean hasOngoingManagedCalls(UserHandle callingUser, boolean hasCrossUserAccess) {
+        for (OngoingCall call : mOngoingCalls) {
+            if (!call.isSelfManaged && call.isVisibleForUser(callingUser, hasCrossUserAccess)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "[callState=" + mCallState + ", ringing=" + mHasRingingOrSimulatedRingingCall
+                + ", ongoing=" + mOngoingCalls.size() + "]";
+    }
+}
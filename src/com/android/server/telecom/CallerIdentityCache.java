@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.UserHandle;
+import android.telecom.Log;
+import android.util.Pair;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which (uid, package) pairs have been verified to belong together, so that
+ * {@link TelecomServiceImpl} doesn't need to ask the package manager again each time the same app
+ * calls into Telecom.
+ * <p>
+ * Only successful verifications are cached; a failed check is always repeated so that the caller
+ * gets the same logging and exception as before. A uid can only stop owning a package when that
+ * package is removed, replaced or the uid itself is removed, so entries are dropped on those
+ * broadcasts.
+ */
+public class CallerIdentityCache {
+    @VisibleForTesting
+    public static final int MAX_ENTRIES = 64;
+
+    private final Object mCacheLock = new Object();
+    private final LinkedHashMap<Pair<Integer, String>, Boolean> mVerified =
+            new LinkedHashMap<>(16, 0.75f, true /* accessOrder */) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Pair<Integer, String>, Boolean> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+    private int mHits = 0;
+    private int mMisses = 0;
+    private int mInvalidations = 0;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Log.startSession("CIC.oR");
+            try {
+                if (Intent.ACTION_UID_REMOVED.equals(intent.getAction())) {
+                    invalidateUid(intent.getIntExtra(Intent.EXTRA_UID, -1));
+                } else if (intent.getData() != null) {
+                    invalidatePackage(intent.getData().getSchemeSpecificPart());
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+    };
+
+    public CallerIdentityCache(Context context) {
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        context.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, packageFilter, null,
+                null);
+        context.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL,
+                new IntentFilter(Intent.ACTION_UID_REMOVED), null, null);
+    }
+
+    /**
+     * @return {@code true} if {@code packageName} was previously verified to belong to
+     * {@code uid}.
+     */
+    public boolean isVerified(int uid, String packageName) {
+        if (packageName == null) {
+            return false;
+        }
+        synchronized (mCacheLock) {
+            if (mVerified.get(new Pair<>(uid, packageName)) != null) {
+                mHits++;
+                return true;
+            }
+            mMisses++;
+            return false;
+        }
+    }
+
+    /**
+     * Records that {@code packageName} was verified to belong to {@code uid}.
+     */
+    public void setVerified(int uid, String packageName) {
+        if (packageName == null) {
+            return;
+        }
+        synchronized (mCacheLock) {
+            mVerified.put(new Pair<>(uid, packageName), Boolean.TRUE);
+        }
+    }
+
+    @VisibleForTesting
+    public void invalidatePackage(String packageName) {
+        synchronized (mCacheLock) {
+            Iterator<Pair<Integer, String>> iterator = mVerified.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().second.equals(packageName)) {
+                    iterator.remove();
+                    mInvalidations++;
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    public void invalidateUid(int uid) {
+        synchronized (mCacheLock) {
+            Iterator<Pair<Integer, String>> iterator = mVerified.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().first == uid) {
+                    iterator.remove();
+                    mInvalidations++;
+                }
+            }
+        }
+    }
+
+    public void dump(IndentingPrintWriter pw) {
+        synchronized (mCacheLock) {
+            int lookups = mHits + mMisses;
+            pw.println("entries=" + mVerified.size() + ", hits=" + mHits + ", misses=" + mMisses
+                    + ", hitRate=" + (lookups == 0 ? 0 : (100 * mHits / lookups)) + "%"
+                    + ", invalidations=" + mInvalidations);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import android.text.TextUtils;
 import android.util.Pair;
 
 import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
 import android.telecom.CallerInfo;
 import android.telecom.CallerInfoAsyncQuery;
 
@@ -181,7 +182,7 @@ public class CallerInfoLookupHelper {
     private CallerInfoAsyncQuery.OnQueryCompleteListener makeCallerInfoQueryListener(
             final Uri handle) {
         return (token, cookie, ci) -> {
-            synchronized (mLock) {
+            LockStats.runLocked(mLock, "CILH.oQC", () -> {
                 Log.continueSession((Session) cookie, "CILH.oQC");
                 try {
                     if (mQueryEntries.containsKey(handle)) {
@@ -207,7 +208,7 @@ public class CallerInfoLookupHelper {
                 } finally {
                     Log.endSession();
                 }
-            }
+            });
         };
     }
 
@@ -231,7 +232,7 @@ public class CallerInfoLookupHelper {
     private ContactsAsyncHelper.OnImageLoadCompleteListener makeContactPhotoListener(
             final Uri handle) {
         return (token, photo, photoIcon, cookie) -> {
-            synchronized (mLock) {
+            LockStats.runLocked(mLock, "CLIH.oILC", () -> {
                 Log.continueSession((Session) cookie, "CLIH.oILC");
                 try {
                     if (mQueryEntries.containsKey(handle)) {
@@ -256,7 +257,7 @@ public class CallerInfoLookupHelper {
                 } finally {
                     Log.endSession();
                 }
-            }
+            });
         };
     }
 
@@ -269,4 +270,8 @@ public class CallerInfoLookupHelper {
     public Handler getHandler() {
         return mHandler;
     }
+
+    public void dump(IndentingPrintWriter pw) {
+        mContactsAsyncHelper.dump(pw);
+    }
 }
@@ -129,6 +129,7 @@ import com.android.server.telecom.callfiltering.BlockedNumbersAdapter;
 import com.android.server.telecom.callfiltering.CallFilterResultCallback;
 import com.android.server.telecom.callfiltering.CallFilteringResult;
 import com.android.server.telecom.callfiltering.CallFilteringResult.Builder;
+import com.android.server.telecom.callfiltering.CallScreeningServiceBindingPool;
 import com.android.server.telecom.callfiltering.CallScreeningServiceFilter;
 import com.android.server.telecom.callfiltering.DirectToVoicemailFilter;
 import com.android.server.telecom.callfiltering.DndCallFilter;
@@ -496,6 +497,7 @@ public class CallsManager extends Call.ListenerBase
     private final TtyManager mTtyManager;
     private final ProximitySensorManager mProximitySensorManager;
     private final PhoneStateBroadcaster mPhoneStateBroadcaster;
+    private volatile CallStateSnapshot mCallStateSnapshot = CallStateSnapshot.EMPTY;
     private final CallLogManager mCallLogManager;
     private final Context mContext;
     private final TelecomSystem.SyncRoot mLock;
@@ -508,6 +510,13 @@ public class CallsManager extends Call.ListenerBase
     private final Timeouts.Adapter mTimeoutsAdapter;
     private final PhoneNumberUtilsAdapter mPhoneNumberUtilsAdapter;
     private final ClockProxy mClockProxy;
+    private final CallScreeningServiceBindingPool mCallScreeningServiceBindingPool;
+    /**
+     * The carrier call screening apps of all active subscriptions, reloaded when carrier config
+     * changes so that incoming calls don't have to look them up.
+     */
+    private volatile List<String> mCarrierScreeningPackageNames = Collections.emptyList();
+    private final EmergencyNumberIndex mEmergencyNumberIndex;
     private final ToastFactory mToastFactory;
     private final Set<Call> mLocallyDisconnectingCalls = new HashSet<>();
     private final Set<Call> mPendingCallsToDisconnect = new HashSet<>();
@@ -612,6 +621,10 @@ public class CallsManager extends Call.ListenerBase
                     .ACTION_BLOCK_SUPPRESSION_STATE_CHANGED.equals(action)) {
                 updateEmergencyCallNotificationAsync(context);
             }
+            if (CarrierConfigManager.ACTION_CARRIER_CONFIG_CHANGED.equals(action)
+                    && mCallScreeningServiceBindingPool != null) {
+                updateCarrierScreeningPackagesAsync();
+            }
         }
     };
 
@@ -791,7 +804,8 @@ public class CallsManager extends Call.ListenerBase
         mHeadsetMediaButton = headsetMediaButtonFactory.create(context, this, mLock);
         mTtyManager = new TtyManager(context, mWiredHeadsetManager);
         mProximitySensorManager = proximitySensorManagerFactory.create(context, this);
-        mPhoneStateBroadcaster = new PhoneStateBroadcaster(this);
+        mPhoneStateBroadcaster = new PhoneStateBroadcaster(this,
+                featureFlags.coalescePhoneStateBroadcasts(), mHandler);
         mCallLogManager = new CallLogManager(context, phoneAccountRegistrar, mMissedCallNotifier,
                 mAnomalyReporter, featureFlags);
         mConnectionServiceRepository =
@@ -810,12 +824,20 @@ public class CallsManager extends Call.ListenerBase
             mVoipCallMonitor = new VoipCallMonitor(
                     mContext,
                     new Handler(Looper.getMainLooper()),
-                    mLock);
+                    mLock,
+                    mFeatureFlags);
             mVoipCallMonitorLegacy = null;
         } else {
             mVoipCallMonitor = null;
             mVoipCallMonitorLegacy = new VoipCallMonitorLegacy(mContext, mLock);
         }
+        mCallScreeningServiceBindingPool = mFeatureFlags.poolCallScreeningServiceBindings()
+                ? new CallScreeningServiceBindingPool(mContext, mLock, mTimeoutsAdapter,
+                        mClockProxy)
+                : null;
+        mEmergencyNumberIndex = mFeatureFlags.indexEmergencyNumbers()
+                ? new EmergencyNumberIndex(mContext, mContext.getMainExecutor())
+                : null;
         mTelephonyFeatureFlags = telephonyFlags;
         mMetricsController = metricsController;
         mBlockedNumbersManager = mFeatureFlags.telecomMainlineBlockedNumbersManager()
@@ -883,6 +905,11 @@ public class CallsManager extends Call.ListenerBase
         mAsyncTaskExecutor = asyncTaskExecutor;
         mUserManager = mContext.getSystemService(UserManager.class);
         mPendingAccountSelection = new HashMap<>();
+        if (mCallScreeningServiceBindingPool != null) {
+            mRoleManagerAdapter.observeCallScreeningApps(mContext.getMainExecutor(),
+                    userId -> retainScreeningBindingsAsync());
+            updateCarrierScreeningPackagesAsync();
+        }
     }
 
     public void setIncomingCallNotifier(IncomingCallNotifier incomingCallNotifier) {
@@ -1000,11 +1027,13 @@ public class CallsManager extends Call.ListenerBase
             return;
         } else if (performDndFilter && extras.getBoolean(PhoneAccount.EXTRA_SKIP_CALL_FILTERING)) {
             IncomingCallFilterGraph graph = setupDndFilterOnlyGraph(incomingCall);
+            mInCallController.maybeStartSpeculativeBinding(incomingCall);
             graph.performFiltering();
             return;
         }
 
         IncomingCallFilterGraph graph = setUpCallFilterGraph(incomingCall);
+        mInCallController.maybeStartSpeculativeBinding(incomingCall);
         graph.performFiltering();
     }
 
@@ -1027,8 +1056,7 @@ public class CallsManager extends Call.ListenerBase
         String defaultDialerPackageName = telecomManager.getDefaultDialerPackage(userHandle);
         String userChosenPackageName = getRoleManagerAdapter().
                 getDefaultCallScreeningApp(userHandle);
-        AppLabelProxy appLabelProxy = (packageName, user) -> AppLabelProxy.Util.getAppLabel(
-                mContext, user, packageName, mFeatureFlags);
+        AppLabelProxy appLabelProxy = this::getAppLabel;
         ParcelableCallUtils.Converter converter = new ParcelableCallUtils.Converter();
 
         IncomingCallFilterGraph graph = mIncomingCallFilterGraphProvider.createGraph(incomingCall,
@@ -1041,18 +1069,27 @@ public class CallsManager extends Call.ListenerBase
         CallScreeningServiceFilter carrierCallScreeningServiceFilter =
                 new CallScreeningServiceFilter(incomingCall, carrierPackageName,
                         CallScreeningServiceFilter.PACKAGE_TYPE_CARRIER, mContext, this,
-                        appLabelProxy, converter);
+                        appLabelProxy, converter, mCallScreeningServiceBindingPool);
         CallScreeningServiceFilter callScreeningServiceFilter;
         if ((userChosenPackageName != null)
                 && (!userChosenPackageName.equals(defaultDialerPackageName))) {
             callScreeningServiceFilter = new CallScreeningServiceFilter(incomingCall,
                     userChosenPackageName, CallScreeningServiceFilter.PACKAGE_TYPE_USER_CHOSEN,
-                    mContext, this, appLabelProxy, converter);
+                    mContext, this, appLabelProxy, converter, mCallScreeningServiceBindingPool);
         } else {
             callScreeningServiceFilter = new CallScreeningServiceFilter(incomingCall,
                     defaultDialerPackageName,
                     CallScreeningServiceFilter.PACKAGE_TYPE_DEFAULT_DIALER,
-                    mContext, this, appLabelProxy, converter);
+                    mContext, this, appLabelProxy, converter, mCallScreeningServiceBindingPool);
+        }
+        if (mCallScreeningServiceBindingPool != null) {
+            // Drop bindings to apps which no longer hold a screening role for this user. The
+            // carrier apps of every active subscription are kept, not just the default one, so
+            // calls on one SIM don't evict the bindings used by calls on the other.
+            List<String> screeningPackageNames = getScreeningPackageNames(
+                    defaultDialerPackageName, userChosenPackageName);
+            screeningPackageNames.add(carrierPackageName);
+            mCallScreeningServiceBindingPool.retainPackages(userHandle, screeningPackageNames);
         }
         graph.addFilter(voicemailFilter);
         graph.addFilter(dndCallFilter);
@@ -1067,6 +1104,21 @@ public class CallsManager extends Call.ListenerBase
         return graph;
     }
 
+    /**
+     * Looks up an app label, using the label cache kept by {@link RoleManagerAdapterImpl} when it
+     * is available.
+     */
+    private CharSequence getAppLabel(String packageName, UserHandle userHandle) {
+        if (mRoleManagerAdapter instanceof RoleManagerAdapterImpl) {
+            AppLabelProxy appLabelCache =
+                    ((RoleManagerAdapterImpl) mRoleManagerAdapter).getAppLabelCache();
+            if (appLabelCache != null) {
+                return appLabelCache.getAppLabel(packageName, userHandle);
+            }
+        }
+        return AppLabelProxy.Util.getAppLabel(mContext, userHandle, packageName, mFeatureFlags);
+    }
+
     private String getCarrierPackageName() {
         ComponentName componentName = null;
         CarrierConfigManager configManager = (CarrierConfigManager) mContext.getSystemService
@@ -1081,6 +1133,86 @@ public class CallsManager extends Call.ListenerBase
         return componentName != null ? componentName.getPackageName() : null;
     }
 
+    /**
+     * @return The packages used to screen calls for a user with the given default dialer and
+     * user chosen screening app.
+     */
+    private List<String> getScreeningPackageNames(String defaultDialerPackageName,
+            String userChosenPackageName) {
+        List<String> packageNames = new ArrayList<>(mCarrierScreeningPackageNames);
+        packageNames.add(defaultDialerPackageName);
+        packageNames.add(userChosenPackageName);
+        return packageNames;
+    }
+
+    /**
+     * Reloads the carrier call screening apps, then drops the pooled bindings which are no
+     * longer used for screening.
+     */
+    private void updateCarrierScreeningPackagesAsync() {
+        mAsyncTaskExecutor.execute(() -> {
+            Log.startSession("CM.uCSPA");
+            try {
+                mCarrierScreeningPackageNames = getActiveCarrierPackageNames();
+                retainScreeningBindings();
+            } finally {
+                Log.endSession();
+            }
+        });
+    }
+
+    private void retainScreeningBindingsAsync() {
+        mAsyncTaskExecutor.execute(() -> {
+            Log.startSession("CM.rSBA");
+            try {
+                retainScreeningBindings();
+            } finally {
+                Log.endSession();
+            }
+        });
+    }
+
+    /**
+     * Drops the pooled bindings to apps which no longer screen calls for their user, so that a
+     * role or carrier change doesn't have to wait for the next incoming call.
+     */
+    private void retainScreeningBindings() {
+        for (UserHandle userHandle : mCallScreeningServiceBindingPool.getBoundUsers()) {
+            mCallScreeningServiceBindingPool.retainPackages(userHandle, getScreeningPackageNames(
+                    mDefaultDialerCache.getDefaultDialerApplication(userHandle.getIdentifier()),
+                    getRoleManagerAdapter().getDefaultCallScreeningApp(userHandle)));
+        }
+    }
+
+    /**
+     * @return The carrier call screening packages of all active subscriptions.
+     */
+    private List<String> getActiveCarrierPackageNames() {
+        List<String> packageNames = new ArrayList<>();
+        CarrierConfigManager configManager = mContext.getSystemService(
+                CarrierConfigManager.class);
+        SubscriptionManager subscriptionManager = mContext.getSystemService(
+                SubscriptionManager.class);
+        if (configManager == null || subscriptionManager == null) return packageNames;
+        int[] subIds;
+        try {
+            subIds = subscriptionManager.getActiveSubscriptionIdList();
+        } catch (UnsupportedOperationException ignored) {
+            return packageNames;
+        }
+        for (int subId : subIds) {
+            PersistableBundle configBundle = configManager.getConfigForSubId(subId);
+            if (configBundle == null) continue;
+            ComponentName componentName = ComponentName.unflattenFromString(
+                    configBundle.getString(
+                            CarrierConfigManager.KEY_CARRIER_CALL_SCREENING_APP_STRING, ""));
+            if (componentName != null) {
+                packageNames.add(componentName.getPackageName());
+            }
+        }
+        return packageNames;
+    }
+
     @Override
     public void onCallFilteringComplete(Call incomingCall, CallFilteringResult result,
             boolean timeout) {
@@ -1103,6 +1235,7 @@ public class CallsManager extends Call.ListenerBase
             }
         } else {
             Log.i(this, "onCallFilteringCompleted: call already disconnected.");
+            mInCallController.onIncomingCallFilteringComplete(incomingCall);
             return;
         }
 
@@ -1210,6 +1343,8 @@ public class CallsManager extends Call.ListenerBase
                         new MissedCallNotifier.CallInfo(incomingCall), /* uri= */ null);
             }
         }
+        // Release any speculative InCallService binding which the call didn't end up using.
+        mInCallController.onIncomingCallFilteringComplete(incomingCall);
     }
 
     /**
@@ -1316,6 +1451,18 @@ public class CallsManager extends Call.ListenerBase
         if (didRttChange) {
             updateHasActiveRttCall();
         }
+        // Covers a call becoming self-managed.
+        publishCallStateSnapshot();
+    }
+
+    @Override
+    public void onTargetPhoneAccountChanged(Call call) {
+        publishCallStateSnapshot();
+    }
+
+    @Override
+    public void onAssociatedUserChanged(Call call) {
+        publishCallStateSnapshot();
     }
 
     @Override
@@ -1325,6 +1472,7 @@ public class CallsManager extends Call.ListenerBase
         for (CallsManagerListener listener : mListeners) {
             listener.onIsConferencedChanged(call);
         }
+        publishCallStateSnapshot();
     }
 
     @Override
@@ -1538,6 +1686,14 @@ public class CallsManager extends Call.ListenerBase
         return mEmergencyCallHelper;
     }
 
+    /**
+     * @return The local emergency number index, or {@code null} if emergency numbers aren't
+     * indexed and should be checked with Telephony directly.
+     */
+    public EmergencyNumberIndex getEmergencyNumberIndex() {
+        return mEmergencyNumberIndex;
+    }
+
     EmergencyCallDiagnosticLogger getEmergencyCallDiagnosticLogger() {
         return mEmergencyCallDiagnosticLogger;
     }
@@ -2922,9 +3078,15 @@ public class CallsManager extends Call.ListenerBase
 
         boolean isEmergencyNumber;
         try {
-            isEmergencyNumber =
-                    handle != null && getTelephonyManager().isEmergencyNumber(
-                            handle.getSchemeSpecificPart());
+            if (mEmergencyNumberIndex != null) {
+                // Usually the handle the call was created with, which has been classified already.
+                isEmergencyNumber = handle != null
+                        && call.isEmergencyNumber(handle.getSchemeSpecificPart());
+            } else {
+                isEmergencyNumber =
+                        handle != null && getTelephonyManager().isEmergencyNumber(
+                                handle.getSchemeSpecificPart());
+            }
         } catch (UnsupportedOperationException uoe) {
             // If device has no telephony, we can't check if it is an emergency call.
             isEmergencyNumber = false;
@@ -3361,13 +3523,13 @@ public class CallsManager extends Call.ListenerBase
         mConnectionSvrFocusMgr.requestFocus(
                 call,
                 new RequestCallback(() -> {
-                    synchronized (mLock) {
+                    LockStats.runLocked(mLock, "CM.aCFAP", () -> {
                         Log.d(this, "answering call %s for audio processing with cs focus", call);
                         call.answerForAudioProcessing();
                         // Skip setting the call state to ANSWERED -- that's only for calls that
                         // were answered by user intervention.
                         mPendingAudioProcessingCall = call;
-                    }
+                    });
                 }));
 
     }
@@ -3393,8 +3555,8 @@ public class CallsManager extends Call.ListenerBase
             return;
         }
 
-        CharSequence requestingAppName = AppLabelProxy.Util.getAppLabel(
-                mContext, call.getAssociatedUser(), requestingPackageName, mFeatureFlags);
+        CharSequence requestingAppName = getAppLabel(requestingPackageName,
+                call.getAssociatedUser());
         if (requestingAppName == null) {
             requestingAppName = requestingPackageName;
         }
@@ -3941,6 +4103,7 @@ public class CallsManager extends Call.ListenerBase
         for (CallsManagerListener listener : mListeners) {
             listener.onExternalCallChanged(call, isExternalCall);
         }
+        publishCallStateSnapshot();
     }
 
     @Override
@@ -4923,6 +5086,7 @@ public class CallsManager extends Call.ListenerBase
         for (CallsManagerListener listener : mListeners) {
             listener.onCallAdded(call);
         }
+        publishCallStateSnapshot();
     }
 
     @VisibleForTesting
@@ -4955,9 +5119,29 @@ public class CallsManager extends Call.ListenerBase
             for (CallsManagerListener listener : mListeners) {
                 listener.onCallRemoved(call);
             }
+            publishCallStateSnapshot();
+        }
+    }
+
+    /**
+     * Publishes a new {@link CallStateSnapshot} reflecting the current calls. Must be called
+     * after the listeners are notified so the state tracked by {@link PhoneStateBroadcaster} is
+     * up to date.
+     */
+    private void publishCallStateSnapshot() {
+        if (mFeatureFlags.lockFreeCallStateQueries()) {
+            mCallStateSnapshot = CallStateSnapshot.create(mCalls, getCallState());
         }
     }
 
+    /**
+     * @return The most recently published {@link CallStateSnapshot}; may be read without holding
+     * the Telecom lock.
+     */
+    public CallStateSnapshot getCallStateSnapshot() {
+        return mCallStateSnapshot;
+    }
+
     private void updateHasActiveRttCall() {
         boolean hasActiveRttCall = hasActiveRttCall();
         if (hasActiveRttCall != mHasActiveRttCall) {
@@ -5034,6 +5218,7 @@ public class CallsManager extends Call.ListenerBase
             for (CallsManagerListener listener : mListeners) {
                 listener.onCallStateChanged(call, oldState, newState);
             }
+            publishCallStateSnapshot();
         }
     }
 
@@ -6315,6 +6500,53 @@ public class CallsManager extends Call.ListenerBase
             pw.decreaseIndent();
         }
 
+        if (mCallScreeningServiceBindingPool != null) {
+            pw.println("mCallScreeningServiceBindingPool:");
+            pw.increaseIndent();
+            mCallScreeningServiceBindingPool.dump(pw);
+            pw.decreaseIndent();
+        }
+
+        if (mFeatureFlags.parallelCallSequencingFanOut()) {
+            pw.println("mCallSequencingAdapter:");
+            pw.increaseIndent();
+            mCallSequencingAdapter.dump(pw);
+            pw.decreaseIndent();
+        }
+
+        if (mVoipCallMonitor != null) {
+            pw.println("mVoipCallMonitor:");
+            pw.increaseIndent();
+            mVoipCallMonitor.dump(pw);
+            pw.decreaseIndent();
+        }
+
+        pw.println("mPhoneStateBroadcaster:");
+        pw.increaseIndent();
+        mPhoneStateBroadcaster.dump(pw);
+        pw.decreaseIndent();
+
+        if (mRespondViaSmsManager != null) {
+            pw.println("mRespondViaSmsManager:");
+            pw.increaseIndent();
+            mRespondViaSmsManager.dump(pw);
+            pw.decreaseIndent();
+        }
+
+        if (mEmergencyNumberIndex != null) {
+            pw.println("mEmergencyNumberIndex:");
+            pw.increaseIndent();
+            mEmergencyNumberIndex.dump(pw);
+            pw.decreaseIndent();
+        }
+
+        if (mFeatureFlags.sampledContactPhotoDecode()) {
+            pw.println("mCallerInfoLookupHelper:");
+            pw.increaseIndent();
+            mCallerInfoLookupHelper.dump(pw);
+            pw.decreaseIndent();
+        }
+
         if (mRoleManagerAdapter != null && mRoleManagerAdapter instanceof RoleManagerAdapterImpl) {
             RoleManagerAdapterImpl impl = (RoleManagerAdapterImpl) mRoleManagerAdapter;
             pw.println("mRoleManager:");
@@ -6815,14 +7047,14 @@ public class CallsManager extends Call.ListenerBase
 
         @Override
         public void performAction() {
-            synchronized (mLock) {
+            LockStats.runLocked(mLock, "CM.ASCS.pA", () -> {
                 Log.d(this, "performAction: current call state %s", mCall);
                 if (mCall.getState() != CallState.DISCONNECTED
                         && mCall.getState() != CallState.DISCONNECTING) {
                     Log.d(this, "performAction: setting to new state = %s", mState);
                     setCallState(mCall, mState, mTag);
                 }
-            }
+            });
         }
     }
 
@@ -6837,7 +7069,7 @@ public class CallsManager extends Call.ListenerBase
 
         @Override
         public void performAction() {
-            synchronized (mLock) {
+            LockStats.runLocked(mLock, "CM.AUHC.pA", () -> {
                 Log.d(this, "perform unhold call for %s", mCall);
                 CompletableFuture<Boolean> unholdFuture =
                         mCall.unhold("held " + mPreviouslyHeldCallId);
@@ -6846,7 +7078,7 @@ public class CallsManager extends Call.ListenerBase
                                 + "succeeded. Call state is active.",
                         "performAction: unhold call transaction failed. Call state did not "
                                 + "move to active in designated time.");
-            }
+            });
         }
     }
 
@@ -6861,7 +7093,7 @@ public class CallsManager extends Call.ListenerBase
 
         @Override
         public void performAction() {
-            synchronized (mLock) {
+            LockStats.runLocked(mLock, "CM.AAC.pA", () -> {
                 Log.d(this, "perform answer call for %s, videoState = %d", mCall, mVideoState);
                 for (CallsManagerListener listener : mListeners) {
                     listener.onIncomingCallAnswered(mCall);
@@ -6893,7 +7125,7 @@ public class CallsManager extends Call.ListenerBase
                                 + "succeeded. Call state is active.",
                         "performAction: answer call transaction failed. Call state did not "
                                 + "move to active in designated time.");
-            }
+            });
         }
     }
 
@@ -7060,6 +7292,8 @@ public class CallsManager extends Call.ListenerBase
         mCalls.stream()
                 .filter(c -> phoneAccount.getAccountHandle().equals(c.getTargetPhoneAccount()))
                 .forEach(c -> c.setVideoCallingSupportedByPhoneAccount(isVideoNowSupported));
+        // The account may have gained or lost CAPABILITY_MULTI_USER.
+        publishCallStateSnapshot();
     }
 
     /**
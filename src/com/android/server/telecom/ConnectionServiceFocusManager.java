@@ -22,9 +22,11 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.telecom.Log;
 import android.telecom.Logging.Session;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.LocalLog;
 import android.util.LogPrinter;
 import android.util.Printer;
@@ -182,11 +184,27 @@ public class ConnectionServiceFocusManager {
     private static final int MSG_ADD_CALL = 5;
     private static final int MSG_REMOVE_CALL = 6;
     private static final int MSG_CALL_STATE_CHANGED = 7;
+    private static final int MSG_CONNECTION_SERVICE_CHANGED = 8;
 
     @VisibleForTesting
     public static final int RELEASE_FOCUS_TIMEOUT_MS = 5000;
 
     private final List<CallFocus> mCalls;
+    /**
+     * Whether {@link #mCallsByConnectionService} is kept. Read once so the index is either kept
+     * for the whole lifetime of this instance or not at all.
+     */
+    private final boolean mIsCallIndexEnabled;
+    /**
+     * The calls of each ConnectionService, in the order they were added, so finding the focus
+     * call doesn't need to look at the calls of every other ConnectionService.
+     */
+    private final ArrayMap<ConnectionServiceFocus, List<CallFocus>> mCallsByConnectionService =
+            new ArrayMap<>();
+    /** The ConnectionService each call is indexed under in {@link #mCallsByConnectionService}. */
+    private final ArrayMap<CallFocus, ConnectionServiceFocus> mIndexedConnectionServices =
+            new ArrayMap<>();
+    private final FocusTransitionStats mFocusTransitionStats = new FocusTransitionStats();
 
     private final CallsManagerListenerBase mCallsManagerListener =
             new CallsManagerListenerBase() {
@@ -199,7 +217,7 @@ public class ConnectionServiceFocusManager {
                     mEventHandler
                             .obtainMessage(MSG_ADD_CALL,
                                     new MessageArgs(
-                                            Log.createSubsession(),
+                                            createSubsession(),
                                             "CSFM.oCA",
                                             call))
                             .sendToTarget();
@@ -214,7 +232,7 @@ public class ConnectionServiceFocusManager {
                     mEventHandler
                             .obtainMessage(MSG_REMOVE_CALL,
                                     new MessageArgs(
-                                            Log.createSubsession(),
+                                            createSubsession(),
                                             "CSFM.oCR",
                                             call))
                             .sendToTarget();
@@ -229,19 +247,35 @@ public class ConnectionServiceFocusManager {
                     mEventHandler
                             .obtainMessage(MSG_CALL_STATE_CHANGED, oldState, newState,
                                     new MessageArgs(
-                                            Log.createSubsession(),
+                                            createSubsession(),
                                             "CSFM.oCSS",
                                             call))
                             .sendToTarget();
                 }
 
+                @Override
+                public void onConnectionServiceChanged(Call call,
+                        ConnectionServiceWrapper oldService, ConnectionServiceWrapper newService) {
+                    if (callShouldBeIgnored(call)) {
+                        return;
+                    }
+
+                    mEventHandler
+                            .obtainMessage(MSG_CONNECTION_SERVICE_CHANGED,
+                                    new MessageArgs(
+                                            createSubsession(),
+                                            "CSFM.oCSC",
+                                            call))
+                            .sendToTarget();
+                }
+
                 @Override
                 public void onExternalCallChanged(Call call, boolean isExternalCall) {
                     if (isExternalCall) {
                         mEventHandler
                                 .obtainMessage(MSG_REMOVE_CALL,
                                         new MessageArgs(
-                                                Log.createSubsession(),
+                                                createSubsession(),
                                                 "CSFM.oECC",
                                                 call))
                                 .sendToTarget();
@@ -249,7 +283,7 @@ public class ConnectionServiceFocusManager {
                         mEventHandler
                                 .obtainMessage(MSG_ADD_CALL,
                                         new MessageArgs(
-                                                Log.createSubsession(),
+                                                createSubsession(),
                                                 "CSFM.oECC",
                                                 call))
                                 .sendToTarget();
@@ -269,7 +303,7 @@ public class ConnectionServiceFocusManager {
                     mEventHandler
                             .obtainMessage(MSG_RELEASE_CONNECTION_FOCUS,
                                     new MessageArgs(
-                                            Log.createSubsession(),
+                                            createSubsession(),
                                             "CSFM.oCSR",
                                             connectionServiceFocus))
                             .sendToTarget();
@@ -281,7 +315,7 @@ public class ConnectionServiceFocusManager {
                     mEventHandler
                             .obtainMessage(MSG_CONNECTION_SERVICE_DEATH,
                                     new MessageArgs(
-                                            Log.createSubsession(),
+                                            createSubsession(),
                                             "CSFM.oCSD",
                                             connectionServiceFocus))
                             .sendToTarget();
@@ -302,6 +336,7 @@ public class ConnectionServiceFocusManager {
         handlerThread.start();
         mEventHandler = new FocusManagerHandler(handlerThread.getLooper());
         mCalls = new ArrayList<>();
+        mIsCallIndexEnabled = Flags.indexFocusCallsByConnectionService();
     }
 
     /**
@@ -313,7 +348,7 @@ public class ConnectionServiceFocusManager {
     public void requestFocus(CallFocus focus, RequestFocusCallback callback) {
         mEventHandler.obtainMessage(MSG_REQUEST_FOCUS,
                 new MessageArgs(
-                        Log.createSubsession(),
+                        createSubsession(),
                         "CSFM.rF",
                         new FocusRequest(focus, callback)))
                 .sendToTarget();
@@ -380,6 +415,87 @@ public class ConnectionServiceFocusManager {
     @VisibleForTesting
     public List<CallFocus> getAllCall() { return mCalls; }
 
+    /**
+     * @return The number of focus requests completed, with their ConnectionService gaining the
+     * focus.
+     */
+    @VisibleForTesting
+    public int getCompletedFocusRequestCount() {
+        return mFocusTransitionStats.getCount();
+    }
+
+    /**
+     * Log sessions are only of use when they are logged, so avoid creating one for every event
+     * otherwise. The handlers log focus changes at info level, so that is the level checked.
+     */
+    private static Session createSubsession() {
+        return Log.isLoggable(android.util.Log.INFO) ? Log.createSubsession() : null;
+    }
+
+    private boolean isTracked(CallFocus call) {
+        return mIsCallIndexEnabled ? mIndexedConnectionServices.containsKey(call)
+                : mCalls.contains(call);
+    }
+
+    /**
+     * Indexes {@code call} under its current ConnectionService, moving it if the
+     * ConnectionService changed since it was indexed.
+     */
+    private void indexCall(CallFocus call) {
+        if (!mIsCallIndexEnabled) {
+            return;
+        }
+        ConnectionServiceFocus connSvr = call.getConnectionServiceWrapper();
+        int index = mIndexedConnectionServices.indexOfKey(call);
+        if (index >= 0) {
+            ConnectionServiceFocus indexedConnSvr = mIndexedConnectionServices.valueAt(index);
+            if (Objects.equals(indexedConnSvr, connSvr)) {
+                return;
+            }
+            unindexCall(call);
+            mIndexedConnectionServices.put(call, connSvr);
+            // Rare, so rebuild the new ConnectionService's calls to keep them in the order
+            // they were added in.
+            List<CallFocus> calls = getIndexedCalls(connSvr);
+            calls.clear();
+            for (CallFocus other : mCalls) {
+                if (Objects.equals(mIndexedConnectionServices.get(other), connSvr)) {
+                    calls.add(other);
+                }
+            }
+        } else {
+            mIndexedConnectionServices.put(call, connSvr);
+            getIndexedCalls(connSvr).add(call);
+        }
+    }
+
+    private void unindexCall(CallFocus call) {
+        if (!mIsCallIndexEnabled) {
+            return;
+        }
+        int index = mIndexedConnectionServices.indexOfKey(call);
+        if (index < 0) {
+            return;
+        }
+        ConnectionServiceFocus connSvr = mIndexedConnectionServices.removeAt(index);
+        List<CallFocus> calls = mCallsByConnectionService.get(connSvr);
+        if (calls != null) {
+            calls.remove(call);
+            if (calls.isEmpty()) {
+                mCallsByConnectionService.remove(connSvr);
+            }
+        }
+    }
+
+    private List<CallFocus> getIndexedCalls(ConnectionServiceFocus connSvr) {
+        List<CallFocus> calls = mCallsByConnectionService.get(connSvr);
+        if (calls == null) {
+            calls = new ArrayList<>();
+            mCallsByConnectionService.put(connSvr, calls);
+        }
+        return calls;
+    }
+
     private void updateConnectionServiceFocus(ConnectionServiceFocus connSvrFocus) {
         Log.i(this, "updateConnectionServiceFocus connSvr = %s", connSvrFocus);
         if (!Objects.equals(mCurrentFocus, connSvrFocus)) {
@@ -401,14 +517,22 @@ public class ConnectionServiceFocusManager {
             return;
         }
 
-        List<CallFocus> calls = mCalls
-                .stream()
-                .filter(call -> mCurrentFocus.equals(call.getConnectionServiceWrapper())
-                        && call.isFocusable())
-                .collect(Collectors.toList());
-
-        for (CallFocus call : calls) {
-            if (PRIORITY_FOCUS_CALL_STATE.contains(call.getState())) {
+        List<CallFocus> calls;
+        if (mIsCallIndexEnabled) {
+            calls = mCallsByConnectionService.get(mCurrentFocus);
+        } else {
+            calls = mCalls
+                    .stream()
+                    .filter(call -> mCurrentFocus.equals(call.getConnectionServiceWrapper()))
+                    .collect(Collectors.toList());
+        }
+        int size = calls == null ? 0 : calls.size();
+        for (int i = 0; i < size; i++) {
+            CallFocus call = calls.get(i);
+            // Also check the ConnectionService of indexed calls, in case it changed without the
+            // call being moved in the index.
+            if (call.isFocusable() && PRIORITY_FOCUS_CALL_STATE.contains(call.getState())
+                    && mCurrentFocus.equals(call.getConnectionServiceWrapper())) {
                 mCurrentFocusCall = call;
                 if (previousFocus != call) {
                     mLocalLog.log(call.getId());
@@ -424,6 +548,7 @@ public class ConnectionServiceFocusManager {
     }
 
     private void onRequestFocusDone(FocusRequest focusRequest) {
+        mFocusTransitionStats.record(focusRequest, SystemClock.elapsedRealtime());
         if (focusRequest.callback != null) {
             focusRequest.callback.onRequestFocusDone(focusRequest.call);
         }
@@ -431,18 +556,22 @@ public class ConnectionServiceFocusManager {
 
     private void handleRequestFocus(FocusRequest focusRequest) {
         Log.i(this, "handleRequestFocus req = %s", focusRequest);
+        if (isTracked(focusRequest.call)) {
+            indexCall(focusRequest.call);
+        }
         if (mCurrentFocus == null
                 || mCurrentFocus.equals(focusRequest.call.getConnectionServiceWrapper())) {
             updateConnectionServiceFocus(focusRequest.call.getConnectionServiceWrapper());
             updateCurrentFocusCall();
             onRequestFocusDone(focusRequest);
         } else {
+            focusRequest.focusLostMillis = SystemClock.elapsedRealtime();
             mCurrentFocus.connectionServiceFocusLost();
             mCurrentFocusRequest = focusRequest;
             Message msg = mEventHandler.obtainMessage(
                     MSG_RELEASE_FOCUS_TIMEOUT,
                     new MessageArgs(
-                            Log.createSubsession(),
+                            createSubsession(),
                             "CSFM.hRF",
                             focusRequest));
             mEventHandler.sendMessageDelayed(msg, RELEASE_FOCUS_TIMEOUT_MS);
@@ -457,6 +586,7 @@ public class ConnectionServiceFocusManager {
             mEventHandler.removeMessages(MSG_RELEASE_FOCUS_TIMEOUT);
             ConnectionServiceFocus newCSF = null;
             if (mCurrentFocusRequest != null) {
+                mCurrentFocusRequest.releasedMillis = SystemClock.elapsedRealtime();
                 newCSF = mCurrentFocusRequest.call.getConnectionServiceWrapper();
             }
             updateConnectionServiceFocus(newCSF);
@@ -470,6 +600,8 @@ public class ConnectionServiceFocusManager {
 
     private void handleReleasedFocusTimeout(FocusRequest focusRequest) {
         Log.d(this, "handleReleasedFocusTimeout req = %s", focusRequest);
+        focusRequest.isReleaseTimedOut = true;
+        focusRequest.releasedMillis = SystemClock.elapsedRealtime();
         mCallsManagerRequester.releaseConnectionService(mCurrentFocus);
         updateConnectionServiceFocus(focusRequest.call.getConnectionServiceWrapper());
         updateCurrentFocusCall();
@@ -487,9 +619,10 @@ public class ConnectionServiceFocusManager {
 
     private void handleAddedCall(CallFocus call) {
         Log.d(this, "handleAddedCall %s", call);
-        if (!mCalls.contains(call)) {
+        if (!isTracked(call)) {
             mCalls.add(call);
         }
+        indexCall(call);
         if (Objects.equals(mCurrentFocus, call.getConnectionServiceWrapper())) {
             updateCurrentFocusCall();
         }
@@ -497,7 +630,10 @@ public class ConnectionServiceFocusManager {
 
     private void handleRemovedCall(CallFocus call) {
         Log.d(this, "handleRemovedCall %s", call);
-        mCalls.remove(call);
+        if (isTracked(call)) {
+            mCalls.remove(call);
+            unindexCall(call);
+        }
         if (call.equals(mCurrentFocusCall)) {
             updateCurrentFocusCall();
         }
@@ -509,15 +645,32 @@ public class ConnectionServiceFocusManager {
                 call,
                 oldState,
                 newState);
-        if (mCalls.contains(call)
-                && Objects.equals(mCurrentFocus, call.getConnectionServiceWrapper())) {
-            updateCurrentFocusCall();
+        if (isTracked(call)) {
+            indexCall(call);
+            if (Objects.equals(mCurrentFocus, call.getConnectionServiceWrapper())) {
+                updateCurrentFocusCall();
+            }
+        }
+    }
+
+    private void handleConnectionServiceChanged(CallFocus call) {
+        Log.d(this, "handleConnectionServiceChanged %s", call);
+        if (isTracked(call)) {
+            indexCall(call);
+            if (call.equals(mCurrentFocusCall)
+                    || Objects.equals(mCurrentFocus, call.getConnectionServiceWrapper())) {
+                updateCurrentFocusCall();
+            }
         }
     }
 
     public void dump(IndentingPrintWriter pw) {
         pw.println("Call Focus History:");
         mLocalLog.dump(pw);
+        pw.println("Focus transitions:");
+        pw.increaseIndent();
+        mFocusTransitionStats.dump(pw);
+        pw.decreaseIndent();
     }
 
     private final class FocusManagerHandler extends Handler {
@@ -532,7 +685,9 @@ public class ConnectionServiceFocusManager {
             if (TextUtils.isEmpty(shortName)) {
                 shortName = "hM";
             }
-            Log.continueSession(session, shortName);
+            if (session != null) {
+                Log.continueSession(session, shortName);
+            }
             Object msgObj = ((MessageArgs) msg.obj).obj;
 
             try {
@@ -558,9 +713,14 @@ public class ConnectionServiceFocusManager {
                     case MSG_CALL_STATE_CHANGED:
                         handleCallStateChanged((CallFocus) msgObj, msg.arg1, msg.arg2);
                         break;
+                    case MSG_CONNECTION_SERVICE_CHANGED:
+                        handleConnectionServiceChanged((CallFocus) msgObj);
+                        break;
                 }
             } finally {
-                Log.endSession();
+                if (session != null) {
+                    Log.endSession();
+                }
             }
         }
     }
@@ -568,6 +728,12 @@ public class ConnectionServiceFocusManager {
     private static final class FocusRequest {
         CallFocus call;
         @Nullable RequestFocusCallback callback;
+        final long requestedMillis = SystemClock.elapsedRealtime();
+        /** When the current focus was told it lost the focus, or 0 if it didn't need to be. */
+        long focusLostMillis;
+        /** When the current focus released the focus or timed out doing so. */
+        long releasedMillis;
+        boolean isReleaseTimedOut;
 
         FocusRequest(CallFocus call, RequestFocusCallback callback) {
             this.call = call;
@@ -575,6 +741,50 @@ public class ConnectionServiceFocusManager {
         }
     }
 
+    /**
+     * How long focus requests took from being made to the focus being granted, and how much of
+     * that was spent waiting for the previous focus to release it.
+     */
+    private static final class FocusTransitionStats {
+        private int mCount;
+        private int mReleaseCount;
+        private int mReleaseTimeouts;
+        private long mTotalMillis;
+        private long mMaxMillis;
+        private long mTotalReleaseMillis;
+        private long mMaxReleaseMillis;
+
+        synchronized void record(FocusRequest focusRequest, long grantedMillis) {
+            long durationMillis = grantedMillis - focusRequest.requestedMillis;
+            mCount++;
+            mTotalMillis += durationMillis;
+            mMaxMillis = Math.max(mMaxMillis, durationMillis);
+            if (focusRequest.focusLostMillis != 0) {
+                long releaseMillis = focusRequest.releasedMillis - focusRequest.focusLostMillis;
+                mReleaseCount++;
+                mTotalReleaseMillis += releaseMillis;
+                mMaxReleaseMillis = Math.max(mMaxReleaseMillis, releaseMillis);
+                if (focusRequest.isReleaseTimedOut) {
+                    mReleaseTimeouts++;
+                }
+            }
+        }
+
+        synchronized int getCount() {
+            return mCount;
+        }
+
+        synchronized void dump(IndentingPrintWriter pw) {
+            pw.println("requests=" + mCount
+                    + ", avgGrantMs=" + (mCount == 0 ? 0 : mTotalMillis / mCount)
+                    + ", maxGrantMs=" + mMaxMillis);
+            pw.println("releases=" + mReleaseCount + ", releaseTimeouts=" + mReleaseTimeouts
+                    + ", avgReleaseMs="
+                    + (mReleaseCount == 0 ? 0 : mTotalReleaseMillis / mReleaseCount)
+                    + ", maxReleaseMs=" + mMaxReleaseMillis);
+        }
+    }
+
     private static final class MessageArgs {
         Session logSession;
         String shortName;
@@ -18,15 +18,25 @@ package com.android.server.telecom;
 
 import android.app.Notification;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.provider.ContactsContract;
 import android.telecom.Log;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.LruCache;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
+import com.android.server.telecom.flags.FeatureFlags;
 
 // TODO: Needed for move to system service: import com.android.internal.R;
 
@@ -41,8 +51,9 @@ public class ContactsAsyncHelper {
     private static final String LOG_TAG = ContactsAsyncHelper.class.getSimpleName();
 
     public static class Factory {
-        public ContactsAsyncHelper create(ContentResolverAdapter adapter) {
-            return new ContactsAsyncHelper(adapter);
+        public ContactsAsyncHelper create(ContentResolverAdapter adapter,
+                FeatureFlags featureFlags) {
+            return new ContactsAsyncHelper(adapter, featureFlags);
         }
     }
 
@@ -74,17 +85,54 @@ public class ContactsAsyncHelper {
 
     // constants
     private static final int EVENT_LOAD_IMAGE = 1;
+    /** Upper bound on the size of the decoded photos kept in {@link #mPhotoCache}. */
+    @VisibleForTesting
+    public static final int PHOTO_CACHE_MAX_BYTES = 4 * 1024 * 1024;
 
     /** Handler run on a worker thread to load photo asynchronously. */
     private Handler mThreadHandler;
     private final ContentResolverAdapter mContentResolverAdapter;
+    private final FeatureFlags mFeatureFlags;
+
+    /**
+     * Decoded photos keyed by display photo uri. Emptied whenever the contacts database changes,
+     * since a contact's photo can change without its uri changing.
+     */
+    private final LruCache<Uri, DecodedPhoto> mPhotoCache =
+            new LruCache<>(PHOTO_CACHE_MAX_BYTES) {
+                @Override
+                protected int sizeOf(Uri key, DecodedPhoto value) {
+                    return value.getByteCount();
+                }
+            };
+    /** Registered on the worker thread when the first photo is decoded. */
+    private ContentObserver mContactsObserver;
+    // Decode stats, written on the worker thread and guarded by this.
+    private int mDecodeCount = 0;
+    private long mTotalDecodeMillis = 0;
+    private long mMaxDecodeMillis = 0;
+    private long mTotalDecodedBytes = 0;
+    private long mTotalFullSizeBytes = 0;
+    private int mCacheInvalidations = 0;
 
     public ContactsAsyncHelper(ContentResolverAdapter contentResolverAdapter) {
-        mContentResolverAdapter = contentResolverAdapter;
+        this(contentResolverAdapter, (FeatureFlags) null);
     }
 
     public ContactsAsyncHelper(ContentResolverAdapter contentResolverAdapter, Looper looper) {
+        this(contentResolverAdapter, looper, null);
+    }
+
+    public ContactsAsyncHelper(ContentResolverAdapter contentResolverAdapter,
+            FeatureFlags featureFlags) {
         mContentResolverAdapter = contentResolverAdapter;
+        mFeatureFlags = featureFlags;
+    }
+
+    public ContactsAsyncHelper(ContentResolverAdapter contentResolverAdapter, Looper looper,
+            FeatureFlags featureFlags) {
+        mContentResolverAdapter = contentResolverAdapter;
+        mFeatureFlags = featureFlags;
         mThreadHandler = new WorkerHandler(looper);
     }
 
@@ -97,6 +145,27 @@ public class ContactsAsyncHelper {
         public OnImageLoadCompleteListener listener;
     }
 
+    /**
+     * A photo decoded at about the notification icon size, and the icon scaled from it.
+     */
+    private static final class DecodedPhoto {
+        final Bitmap photo;
+        final Bitmap photoIcon;
+
+        DecodedPhoto(Bitmap photo, Bitmap photoIcon) {
+            this.photo = photo;
+            this.photoIcon = photoIcon;
+        }
+
+        int getByteCount() {
+            int byteCount = photo.getAllocationByteCount();
+            if (photoIcon != null && photoIcon != photo) {
+                byteCount += photoIcon.getAllocationByteCount();
+            }
+            return byteCount;
+        }
+    }
+
     /**
      * Thread worker class that handles the task of opening the stream and loading
      * the images.
@@ -112,6 +181,14 @@ public class ContactsAsyncHelper {
 
             switch (msg.arg1) {
                 case EVENT_LOAD_IMAGE:
+                    if (mFeatureFlags != null && mFeatureFlags.sampledContactPhotoDecode()) {
+                        loadSampledPhoto(args);
+                        Log.d(this, "Notifying listener: " + args.listener.toString() +
+                                " image: " + args.displayPhotoUri + " completed");
+                        args.listener.onImageLoadComplete(msg.what, args.photo, args.photoIcon,
+                                args.cookie);
+                        break;
+                    }
                     InputStream inputStream = null;
                     try {
                         try {
@@ -170,7 +247,10 @@ public class ContactsAsyncHelper {
             }
             int iconSize = context.getResources()
                     .getDimensionPixelSize(R.dimen.notification_icon_size);
-            Bitmap orgBitmap = ((BitmapDrawable) photo).getBitmap();
+            return getPhotoIcon(((BitmapDrawable) photo).getBitmap(), iconSize);
+        }
+
+        private Bitmap getPhotoIcon(Bitmap orgBitmap, int iconSize) {
             int orgWidth = orgBitmap.getWidth();
             int orgHeight = orgBitmap.getHeight();
             int longerEdge = orgWidth > orgHeight ? orgWidth : orgHeight;
@@ -193,6 +273,119 @@ public class ContactsAsyncHelper {
                 return orgBitmap;
             }
         }
+
+        /**
+         * Loads the photo at {@link WorkerArgs#displayPhotoUri} from {@link #mPhotoCache}, or
+         * decodes it at the smallest power-of-two sample size which is still at least as large
+         * as the notification icon, rather than at its full resolution.
+         */
+        private void loadSampledPhoto(WorkerArgs args) {
+            ensureContactsObserverRegistered(args.context);
+            DecodedPhoto decodedPhoto = mPhotoCache.get(args.displayPhotoUri);
+            if (decodedPhoto == null) {
+                decodedPhoto = decodeSampledPhoto(args.context, args.displayPhotoUri);
+                if (decodedPhoto != null) {
+                    mPhotoCache.put(args.displayPhotoUri, decodedPhoto);
+                }
+            }
+            if (decodedPhoto != null) {
+                args.photo = new BitmapDrawable(args.context.getResources(), decodedPhoto.photo);
+                args.photoIcon = decodedPhoto.photoIcon;
+                Log.d(this, "Loaded image: " + args.displayPhotoUri);
+            } else {
+                args.photo = null;
+                args.photoIcon = null;
+                Log.d(this, "Problem with image: " + args.displayPhotoUri
+                        + ", using default image.");
+            }
+        }
+
+        private DecodedPhoto decodeSampledPhoto(Context context, Uri displayPhotoUri) {
+            long startMillis = SystemClock.elapsedRealtime();
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            decodeStream(context, displayPhotoUri, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            int iconSize = context.getResources()
+                    .getDimensionPixelSize(R.dimen.notification_icon_size);
+            int longerEdge = Math.max(options.outWidth, options.outHeight);
+            int sampleSize = 1;
+            while (longerEdge / (sampleSize * 2) >= iconSize) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            Bitmap photo = decodeStream(context, displayPhotoUri, options);
+            if (photo == null) {
+                return null;
+            }
+            DecodedPhoto decodedPhoto = new DecodedPhoto(photo, getPhotoIcon(photo, iconSize));
+            // Assume the ARGB_8888 config a full resolution decode would have used.
+            recordDecode(SystemClock.elapsedRealtime() - startMillis,
+                    decodedPhoto.getByteCount(), 4L * options.outWidth * options.outHeight);
+            return decodedPhoto;
+        }
+
+        private Bitmap decodeStream(Context context, Uri displayPhotoUri,
+                BitmapFactory.Options options) {
+            InputStream inputStream = null;
+            try {
+                inputStream = mContentResolverAdapter.openInputStream(context, displayPhotoUri);
+            } catch (Exception e) {
+                Log.e(this, e, "Error opening photo input stream");
+            }
+            if (inputStream == null) {
+                return null;
+            }
+            try {
+                return BitmapFactory.decodeStream(inputStream, null, options);
+            } finally {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    Log.e(this, e, "Unable to close input stream.");
+                }
+            }
+        }
+
+        private void ensureContactsObserverRegistered(Context context) {
+            if (mContactsObserver != null) {
+                return;
+            }
+            mContactsObserver = new ContentObserver(this) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    mPhotoCache.evictAll();
+                    synchronized (ContactsAsyncHelper.this) {
+                        mCacheInvalidations++;
+                    }
+                }
+            };
+            context.getContentResolver().registerContentObserver(ContactsContract.AUTHORITY_URI,
+                    true, mContactsObserver, UserHandle.USER_ALL);
+        }
+    }
+
+    private synchronized void recordDecode(long decodeMillis, long decodedBytes,
+            long fullSizeBytes) {
+        mDecodeCount++;
+        mTotalDecodeMillis += decodeMillis;
+        mMaxDecodeMillis = Math.max(mMaxDecodeMillis, decodeMillis);
+        mTotalDecodedBytes += decodedBytes;
+        mTotalFullSizeBytes += fullSizeBytes;
+    }
+
+    public synchronized void dump(IndentingPrintWriter pw) {
+        pw.println("photoCache: bytes=" + mPhotoCache.size() + "/" + mPhotoCache.maxSize()
+                + ", hits=" + mPhotoCache.hitCount() + ", misses=" + mPhotoCache.missCount()
+                + ", evictions=" + mPhotoCache.evictionCount()
+                + ", invalidations=" + mCacheInvalidations);
+        pw.println("decodes=" + mDecodeCount + ", avgDecodeMillis="
+                + (mDecodeCount == 0 ? 0 : mTotalDecodeMillis / mDecodeCount)
+                + ", maxDecodeMillis=" + mMaxDecodeMillis + ", decodedBytes="
+                + mTotalDecodedBytes + ", fullSizeBytes=" + mTotalFullSizeBytes);
     }
 
     /**
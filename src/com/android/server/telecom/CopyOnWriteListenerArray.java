@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A set of listeners for paths which notify far more often than listeners are added or removed.
+ * Adding or removing a listener copies the backing array, so notifying is a plain loop over
+ * {@link #snapshot()}; it allocates nothing and visits the listeners in the order they were added.
+ *
+ * @param <T> The listener type.
+ */
+public final class CopyOnWriteListenerArray<T> {
+    private volatile T[] mListeners;
+
+    /**
+     * @param empty An empty array of the listener type, used to type the copies.
+     */
+    public CopyOnWriteListenerArray(T[] empty) {
+        mListeners = empty;
+    }
+
+    /**
+     * Adds a listener if it has not been added already.
+     * @return {@code true} if the listener was added.
+     */
+    public synchronized boolean add(T listener) {
+        Objects.requireNonNull(listener);
+        T[] listeners = mListeners;
+        if (indexOf(listeners, listener) >= 0) {
+            return false;
+        }
+        T[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        mListeners = newListeners;
+        return true;
+    }
+
+    /**
+     * Removes a listener.
+     * @return {@code true} if the listener had been added.
+     */
+    public synchronized boolean remove(T listener) {
+        T[] listeners = mListeners;
+        int index = indexOf(listeners, listener);
+        if (index < 0) {
+            return false;
+        }
+        T[] newListeners = Arrays.copyOf(listeners, listeners.length - 1);
+        System.arraycopy(listeners, index + 1, newListeners, index,
+                listeners.length - index - 1);
+        mListeners = newListeners;
+        return true;
+    }
+
+    /**
+     * @return The listeners at the time of the call, in the order they were added. The array is
+     * never modified once returned and must not be modified by the caller.
+     */
+    public T[] snapshot() {
+        return mListeners;
+    }
+
+    public int size() {
+        return mListeners.length;
+    }
+
+    private static <T> int indexOf(T[] listeners, T listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
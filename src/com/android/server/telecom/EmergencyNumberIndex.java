@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom;
+
+import android.content.Context;
+import android.telecom.Log;
+import android.telephony.PhoneNumberUtils;
+import android.telephony.TelephonyCallback;
+import android.telephony.TelephonyManager;
+import android.telephony.emergency.EmergencyNumber;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Local copy of Telephony's emergency number list, keyed by number, so that the checks made while
+ * placing an emergency call don't each need a call into Telephony. The copy is refreshed whenever
+ * Telephony reports that the list changed; if Telecom can't listen for changes, nothing is kept
+ * and every lookup goes to Telephony as before.
+ * <p>
+ * {@link TelephonyManager#isEmergencyNumber} matches more loosely than the list does, so only a
+ * number found in the list is answered locally; any other number is still checked with Telephony.
+ * Errors from Telephony are passed on to the caller unchanged.
+ */
+public class EmergencyNumberIndex {
+    /**
+     * Returned by {@link #getGeneration()} when changes to the list can't be tracked.
+     */
+    public static final int NO_GENERATION = -1;
+
+    /**
+     * The emergency numbers known at one point in time.
+     */
+    private static final class Snapshot {
+        final ArrayMap<String, EmergencyNumber> mNumbers = new ArrayMap<>();
+        final ArraySet<String> mTestNumbers = new ArraySet<>();
+
+        Snapshot(Map<Integer, List<EmergencyNumber>> emergencyNumberList) {
+            for (List<EmergencyNumber> numbers : emergencyNumberList.values()) {
+                for (EmergencyNumber number : numbers) {
+                    // Keep the first match, which is what scanning the list used to find.
+                    if (!mNumbers.containsKey(number.getNumber())) {
+                        mNumbers.put(number.getNumber(), number);
+                    }
+                    if (number.isFromSources(EmergencyNumber.EMERGENCY_NUMBER_SOURCE_TEST)) {
+                        mTestNumbers.add(number.getNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    private class EmergencyNumberListListener extends TelephonyCallback
+            implements TelephonyCallback.EmergencyNumberListListener {
+        @Override
+        public void onEmergencyNumberListChanged(
+                Map<Integer, List<EmergencyNumber>> emergencyNumberList) {
+            Log.startSession("ENI.oENLC");
+            try {
+                synchronized (mIndexLock) {
+                    mSnapshot = new Snapshot(emergencyNumberList);
+                    mRefreshes++;
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+    }
+
+    private final Context mContext;
+    private final Object mIndexLock = new Object();
+    private final boolean mIsListening;
+    // Guarded by mIndexLock. Null until first used.
+    private Snapshot mSnapshot;
+    private int mHits = 0;
+    private int mMisses = 0;
+    private int mRefreshes = 0;
+
+    public EmergencyNumberIndex(Context context, Executor executor) {
+        mContext = context;
+        boolean isListening = false;
+        try {
+            TelephonyManager tm = mContext.getSystemService(TelephonyManager.class);
+            if (tm != null) {
+                tm.registerTelephonyCallback(executor, new EmergencyNumberListListener());
+                isListening = true;
+            }
+        } catch (UnsupportedOperationException | IllegalStateException | SecurityException e) {
+            Log.w(this, "Not indexing emergency numbers: %s", e);
+        }
+        mIsListening = isListening;
+    }
+
+    /**
+     * Same as {@link TelephonyManager#isEmergencyNumber}.
+     */
+    public boolean isEmergencyNumber(String number) {
+        // Telephony doesn't treat SIP addresses as emergency numbers, even if their user part is.
+        if (number == null || PhoneNumberUtils.isUriNumber(number)) {
+            return false;
+        }
+        // Extracting the network portion drops letters, so leave numbers with letters to
+        // Telephony rather than answering for what is left of them.
+        if (mIsListening && !containsLetter(number)) {
+            String networkPortion = PhoneNumberUtils.extractNetworkPortionAlt(number);
+            synchronized (mIndexLock) {
+                if (getSnapshotLocked().mNumbers.containsKey(networkPortion)) {
+                    mHits++;
+                    return true;
+                }
+                mMisses++;
+            }
+        }
+        return getTelephonyManager().isEmergencyNumber(number);
+    }
+
+    /**
+     * @return A number which changes whenever the emergency number list is refreshed, so that a
+     * result of {@link #isEmergencyNumber} can be kept for as long as it is unchanged, or
+     * {@link #NO_GENERATION} if the list could change unnoticed and no result should be kept.
+     */
+    public int getGeneration() {
+        if (!mIsListening) {
+            return NO_GENERATION;
+        }
+        synchronized (mIndexLock) {
+            return mRefreshes;
+        }
+    }
+
+    /**
+     * @return The entry of the emergency number list for {@code number}, which must not contain
+     * separators, or {@code null} if it isn't in the list.
+     */
+    public EmergencyNumber getEmergencyNumber(String number) {
+        synchronized (mIndexLock) {
+            return getSnapshotLocked().mNumbers.get(number);
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code number} is in the emergency number list as a test number.
+     */
+    public boolean isTestEmergencyNumber(String number) {
+        synchronized (mIndexLock) {
+            return getSnapshotLocked().mTestNumbers.contains(number);
+        }
+    }
+
+    private Snapshot getSnapshotLocked() {
+        if (mSnapshot != null) {
+            return mSnapshot;
+        }
+        Snapshot snapshot = new Snapshot(getTelephonyManager().getEmergencyNumberList());
+        if (mIsListening) {
+            // Without the listener the list could change unnoticed, so only keep it if listening.
+            mSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private static boolean containsLetter(String number) {
+        for (int i = 0; i < number.length(); i++) {
+            if (Character.isLetter(number.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TelephonyManager getTelephonyManager() {
+        return mContext.getSystemService(TelephonyManager.class);
+    }
+
+    @VisibleForTesting
+    public boolean isListening() {
+        return mIsListening;
+    }
+
+    public void dump(IndentingPrintWriter pw) {
+        synchronized (mIndexLock) {
+            pw.println("isListening=" + mIsListening + ", numbers="
+                    + (mSnapshot == null ? "not loaded" : mSnapshot.mNumbers.size())
+                    + ", hits=" + mHits + ", misses=" + mMisses + ", refreshes=" + mRefreshes);
+        }
+    }
+}
@@ -1097,6 +1097,9 @@ public class InCallController extends CallsManagerListenerBase implements
                         String changedPackage = intent.getData().getSchemeSpecificPart();
                         UserHandle userHandle = UserHandle.getUserHandleForUid(uid);
                         boolean isManagedProfile = um.isManagedProfile(userHandle.getIdentifier());
+                        // Components are re-resolved below; make sure that isn't served from a
+                        // cache entry which predates this change.
+                        invalidateInCallServiceInfoCache(null);
 
                         /*
                         There are two possibilities here:
@@ -1185,6 +1188,26 @@ public class InCallController extends CallsManagerListenerBase implements
         }
     };
 
+    private final BroadcastReceiver mPackageUpdatedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Log.startSession("ICC.pUR");
+            try {
+                synchronized (mLock) {
+                    int userId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE,
+                            UserHandle.USER_NULL);
+                    if (userId == UserHandle.USER_NULL) {
+                        invalidateInCallServiceInfoCache(null);
+                    } else {
+                        invalidateInCallServiceInfoCache(UserHandle.of(userId));
+                    }
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+    };
+
     private final BroadcastReceiver mUserAddedReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -1314,6 +1337,31 @@ public class InCallController extends CallsManagerListenerBase implements
 
     private java.lang.Runnable mCallRemovedRunnable;
 
+    /**
+     * Incoming calls, keyed by call ID, for which we started binding to the InCallServices while
+     * call filtering was still in progress. The value is the elapsed realtime at which the
+     * speculative binding was started.
+     */
+    private final Map<String, Long> mSpeculativeBindingStartTimes = new ArrayMap<>();
+    private final Map<String, UserHandle> mSpeculativeBindingUsers = new ArrayMap<>();
+    private int mSpeculativeBindingsStarted = 0;
+    private int mSpeculativeBindingHits = 0;
+    private int mSpeculativeBindingsWasted = 0;
+    private long mSpeculativeBindingTimeSavedMillis = 0;
+
+    /**
+     * Cache of resolved InCallServices per user, keyed by the query made to
+     * {@link #getInCallServiceComponents(UserHandle, String, ComponentName, int, boolean)}.
+     * Invalidated when packages, permissions, the MANAGE_ONGOING_CALLS app op, the dialer role or
+     * car mode state change.
+     */
+    private final Map<UserHandle, Map<String, List<InCallServiceInfo>>> mInCallServiceInfoCache =
+            new ArrayMap<>();
+    private int mInCallServiceInfoCacheHits = 0;
+    private int mInCallServiceInfoCacheMisses = 0;
+    private long mInCallServiceInfoCacheHitNanos = 0;
+    private long mInCallServiceInfoCacheMissNanos = 0;
+
     public InCallController(Context context, TelecomSystem.SyncRoot lock, CallsManager callsManager,
             SystemStateHelper systemStateHelper, DefaultDialerCache defaultDialerCache,
             Timeouts.Adapter timeoutsAdapter, EmergencyCallHelper emergencyCallHelper,
@@ -1345,6 +1393,55 @@ public class InCallController extends CallsManagerListenerBase implements
         userAddedFilter.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
         mContext.registerReceiver(mUserAddedReceiver, userAddedFilter);
         mFeatureFlags = featureFlags;
+        if (mFeatureFlags.cacheIncallServiceComponents()) {
+            registerInCallServiceInfoCacheInvalidation();
+        }
+    }
+
+    private void registerInCallServiceInfoCacheInvalidation() {
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        mContext.registerReceiverAsUser(mPackageUpdatedReceiver, UserHandle.ALL, packageFilter,
+                null, null);
+        // The InCallService type depends on CONTROL_INCALL_EXPERIENCE and cross-profile
+        // permissions, so any permission change has to drop the cache.
+        mContext.getPackageManager().addOnPermissionsChangeListener(uid -> {
+            synchronized (mLock) {
+                invalidateInCallServiceInfoCache(null);
+            }
+        });
+        mDefaultDialerCache.observeDefaultDialerApplication(mContext.getMainExecutor(),
+                userId -> {
+                    synchronized (mLock) {
+                        invalidateInCallServiceInfoCache(UserHandle.of(userId));
+                    }
+                });
+        // Non-UI and Bluetooth InCallServices can also be bound through the MANAGE_ONGOING_CALLS
+        // app op, which is granted and revoked without a permission change.
+        mAppOpsManager.startWatchingMode(AppOpsManager.OPSTR_MANAGE_ONGOING_CALLS,
+                null /* all packages */, (op, packageName) -> {
+                    synchronized (mLock) {
+                        invalidateInCallServiceInfoCache(null);
+                    }
+                });
+    }
+
+    /**
+     * Drops the cached InCallService resolution results.
+     *
+     * @param userHandle The user to invalidate the cache for, or {@code null} for all users.
+     */
+    @VisibleForTesting
+    public void invalidateInCallServiceInfoCache(@Nullable UserHandle userHandle) {
+        if (userHandle == null) {
+            mInCallServiceInfoCache.clear();
+        } else {
+            mInCallServiceInfoCache.remove(userHandle);
+        }
     }
 
     private void restrictPhoneCallOps() {
@@ -1423,6 +1520,7 @@ public class InCallController extends CallsManagerListenerBase implements
         Log.i(this, "onCallAdded: %s", call);
         // Track the call if we don't already know about it.
         addCall(call);
+        maybeRecordSpeculativeBindingHit(call);
 
         if (mFeatureFlags.separatelyBindToBtIncallService()) {
             boolean bindingToBtRequired = false;
@@ -1543,7 +1641,8 @@ public class InCallController extends CallsManagerListenerBase implements
                     boolean isCallCountZero = mFeatureFlags.associatedUserRefactorForWorkProfile()
                             ? callsAssociatedWithUserFromCall.count() == 0
                             : mCallsManager.getCalls().isEmpty();
-                    if (isCallCountZero) {
+                    // Don't tear down a binding which an incoming call in filtering is relying on.
+                    if (isCallCountZero && !hasPendingSpeculativeBinding(userFromCall)) {
                         unbindFromServices(userFromCall);
                         mEmergencyCallHelper.maybeRevokeTemporaryLocationPermission();
                     }
@@ -2270,6 +2369,86 @@ public class InCallController extends CallsManagerListenerBase implements
                 packageChangedFilter, null, null);
     }
 
+    /**
+     * Starts binding to the UI and non-UI InCallServices for an incoming call which is about to
+     * go through call filtering. Binding to a cold dialer process can take hundreds of
+     * milliseconds, so doing it in parallel with filtering means the InCallService is typically
+     * ready by the time {@link #onCallAdded(Call)} is invoked. If the call ends up being blocked
+     * or rejected, {@link #onIncomingCallFilteringComplete(Call)} undoes the binding.
+     *
+     * @param call The incoming call which is entering call filtering.
+     */
+    public void maybeStartSpeculativeBinding(Call call) {
+        if (!mFeatureFlags.speculativeIncallServiceBinding() || call == null
+                || call.isSelfManaged() || call.isExternalCall()) {
+            return;
+        }
+        UserHandle userFromCall = getUserFromCall(call);
+        // The binding connections track the user from the call they were bound for; since the
+        // call is not yet known to the InCallServices we bind without one, which means the
+        // binding is made for the current user.
+        if (!userFromCall.equals(mCallsManager.getCurrentUserHandle())) {
+            Log.i(this, "maybeStartSpeculativeBinding: skipping, call user %s is not current",
+                    userFromCall);
+            return;
+        }
+        mSpeculativeBindingStartTimes.put(call.getId(), mClockProxy.elapsedRealtime());
+        mSpeculativeBindingUsers.put(call.getId(), userFromCall);
+        mSpeculativeBindingsStarted++;
+        if (isBoundAndConnectedToServices(userFromCall)) {
+            // Still track the call so a pending delayed unbind doesn't drop the existing binding
+            // while this call is being filtered.
+            Log.i(this, "maybeStartSpeculativeBinding: already bound for %s", call.getId());
+            return;
+        }
+        Log.i(this, "maybeStartSpeculativeBinding: binding early for %s", call.getId());
+        Log.addEvent(call, LogUtils.Events.INFO, "Speculative InCallService binding started");
+        // Bluetooth InCallServices bound separately are (re)bound once filtering completes, so
+        // only the services bound via bindToServices are warmed up here.
+        bindToServices(null);
+    }
+
+    /**
+     * Called once call filtering has completed for an incoming call. If the call was not added
+     * (e.g. it was blocked or rejected), any speculative binding made for it is counted as wasted
+     * and released if no other call needs it.
+     *
+     * @param call The incoming call for which filtering completed.
+     */
+    public void onIncomingCallFilteringComplete(Call call) {
+        Long startTime = mSpeculativeBindingStartTimes.remove(call.getId());
+        UserHandle userHandle = mSpeculativeBindingUsers.remove(call.getId());
+        if (startTime == null) {
+            // Either no speculative binding was made or the call was already added.
+            return;
+        }
+        mSpeculativeBindingsWasted++;
+        Log.i(this, "onIncomingCallFilteringComplete: speculative binding unused for %s",
+                call.getId());
+        boolean hasCallsForUser = mCallsManager.getCalls().stream()
+                .anyMatch(c -> getUserFromCall(c).equals(userHandle));
+        if (!hasCallsForUser && !hasPendingSpeculativeBinding(userHandle)) {
+            unbindFromServices(userHandle);
+        }
+    }
+
+    private void maybeRecordSpeculativeBindingHit(Call call) {
+        Long startTime = mSpeculativeBindingStartTimes.remove(call.getId());
+        mSpeculativeBindingUsers.remove(call.getId());
+        if (startTime == null) {
+            return;
+        }
+        long timeSavedMillis = mClockProxy.elapsedRealtime() - startTime;
+        mSpeculativeBindingHits++;
+        mSpeculativeBindingTimeSavedMillis += timeSavedMillis;
+        Log.addEvent(call, LogUtils.Events.INFO,
+                "Speculative InCallService binding used, headstart=" + timeSavedMillis + "ms");
+    }
+
+    private boolean hasPendingSpeculativeBinding(UserHandle userHandle) {
+        return mSpeculativeBindingUsers.containsValue(userHandle);
+    }
+
     private void updateNonUiInCallServices(Call call) {
         UserHandle userFromCall = getUserFromCall(call);
 
@@ -2443,6 +2622,47 @@ public class InCallController extends CallsManagerListenerBase implements
     private List<InCallServiceInfo> getInCallServiceComponents(UserHandle userHandle,
             String packageName, ComponentName componentName,
             int requestedType, boolean ignoreDisabled) {
+        if (!mFeatureFlags.cacheIncallServiceComponents()) {
+            return resolveInCallServiceComponents(userHandle, packageName, componentName,
+                    requestedType, ignoreDisabled);
+        }
+        long startNanos = System.nanoTime();
+        String key = packageName + "|" + componentName + "|" + requestedType + "|"
+                + ignoreDisabled;
+        Map<String, List<InCallServiceInfo>> userCache =
+                mInCallServiceInfoCache.computeIfAbsent(userHandle, k -> new ArrayMap<>());
+        List<InCallServiceInfo> cached = userCache.get(key);
+        if (cached != null) {
+            mInCallServiceInfoCacheHits++;
+            List<InCallServiceInfo> retval = copyInCallServiceInfos(cached);
+            mInCallServiceInfoCacheHitNanos += System.nanoTime() - startNanos;
+            return retval;
+        }
+        List<InCallServiceInfo> resolved = resolveInCallServiceComponents(userHandle, packageName,
+                componentName, requestedType, ignoreDisabled);
+        userCache.put(key, copyInCallServiceInfos(resolved));
+        mInCallServiceInfoCacheMisses++;
+        mInCallServiceInfoCacheMissNanos += System.nanoTime() - startNanos;
+        return resolved;
+    }
+
+    /**
+     * {@link InCallServiceInfo} tracks binding times, so callers must never share an instance
+     * with the cache.
+     */
+    private static List<InCallServiceInfo> copyInCallServiceInfos(List<InCallServiceInfo> infos) {
+        List<InCallServiceInfo> copy = new LinkedList<>();
+        for (InCallServiceInfo info : infos) {
+            copy.add(new InCallServiceInfo(info.getComponentName(),
+                    info.isExternalCallsSupported(), info.isSelfManagedCallsSupported(),
+                    info.getType(), info.hasCrossUserOrProfilePermission()));
+        }
+        return copy;
+    }
+
+    private List<InCallServiceInfo> resolveInCallServiceComponents(UserHandle userHandle,
+            String packageName, ComponentName componentName,
+            int requestedType, boolean ignoreDisabled) {
         List<InCallServiceInfo> retval = new LinkedList<>();
 
         Intent serviceIntent = new Intent(InCallService.SERVICE_INTERFACE);
@@ -2989,6 +3209,18 @@ public class InCallController extends CallsManagerListenerBase implements
         }
         pw.decreaseIndent();
 
+        pw.println("InCallService resolution cache: hits=" + mInCallServiceInfoCacheHits
+                + ", misses=" + mInCallServiceInfoCacheMisses
+                + ", avgHitUs=" + (mInCallServiceInfoCacheHits == 0 ? 0
+                        : mInCallServiceInfoCacheHitNanos / mInCallServiceInfoCacheHits / 1000)
+                + ", avgMissUs=" + (mInCallServiceInfoCacheMisses == 0 ? 0
+                        : mInCallServiceInfoCacheMissNanos / mInCallServiceInfoCacheMisses / 1000));
+        pw.println("Speculative binding: started=" + mSpeculativeBindingsStarted
+                + ", hits=" + mSpeculativeBindingHits
+                + ", wasted=" + mSpeculativeBindingsWasted
+                + ", pending=" + mSpeculativeBindingStartTimes.size()
+                + ", totalTimeSavedMs=" + mSpeculativeBindingTimeSavedMillis);
+
         mCarModeTracker.dump(pw);
     }
 
@@ -3165,6 +3397,7 @@ public class InCallController extends CallsManagerListenerBase implements
     }
 
     public void updateCarModeForConnections() {
+        invalidateInCallServiceInfoCache(null);
         Log.i(this, "updateCarModeForConnections: car mode apps: %s",
                 mCarModeTracker.getCarModeApps().stream().collect(Collectors.joining(", ")));
 
@@ -25,23 +25,29 @@ import android.media.ToneGenerator;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.telecom.Log;
 import android.telecom.Logging.Runnable;
 import android.telecom.Logging.Session;
 
 import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.server.telecom.flags.FeatureFlags;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Play a call-related tone (ringback, busy signal, etc.) either through ToneGenerator, or using a
  * media resource file.
  * To use, create an instance using InCallTonePlayer.Factory (passing in the TONE_* constant for
  * the tone you want) and start() it. Implemented on top of {@link Thread} so that the tone plays in
- * its own thread.
+ * its own thread; when {@link FeatureFlags#pooledTonePlayback()} is enabled the tone instead plays
+ * on a thread borrowed from a shared pool.
  */
 public class InCallTonePlayer extends Thread {
 
@@ -198,6 +204,26 @@ public class InCallTonePlayer extends Thread {
      */
     private static AtomicInteger sTonesPlaying = new AtomicInteger(0);
 
+    /** How long an idle tone playback thread is kept around before it exits. */
+    private static final long TONE_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Threads tones are played on when {@link FeatureFlags#pooledTonePlayback()} is enabled.
+     * Playback blocks for the length of the tone, and the ring back and call waiting tones play
+     * until stopped, so a tone never waits for another one to finish: it reuses an idle thread
+     * if there is one, and otherwise gets a new thread. Threads exit once idle.
+     */
+    private static final ThreadPoolExecutor sToneExecutor = createToneExecutor();
+
+    private static final AtomicInteger sTonesStarted = new AtomicInteger(0);
+    private static final AtomicLong sTotalToneStartLatencyMillis = new AtomicLong(0);
+
+    private static ThreadPoolExecutor createToneExecutor() {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, TONE_THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> new Thread(runnable, "InCallTonePlayer"));
+    }
+
     private final CallAudioManager mCallAudioManager;
     private final CallAudioRoutePeripheralAdapter mCallAudioRoutePeripheralAdapter;
 
@@ -230,6 +256,9 @@ public class InCallTonePlayer extends Thread {
      */
     private final CountDownLatch mPlaybackLatch = new CountDownLatch(1);
 
+    /** When {@link #startTone()} was called, used to track how long tones take to start. */
+    private long mStartToneElapsedMillis;
+
     /**
      * Initializes the tone player. Private; use the {@link Factory} to create tone players.
      *
@@ -270,6 +299,9 @@ public class InCallTonePlayer extends Thread {
                 }
             }
             Log.d(this, "run(toneId = %s)", mToneId);
+            sTonesStarted.incrementAndGet();
+            sTotalToneStartLatencyMillis.addAndGet(
+                    SystemClock.elapsedRealtime() - mStartToneElapsedMillis);
 
             final int toneType;  // Passed to ToneGenerator.startTone.
             final int toneVolume;  // Passed to the ToneGenerator constructor.
@@ -515,7 +547,12 @@ public class InCallTonePlayer extends Thread {
             mSession = Log.createSubsession();
         }
 
-        super.start();
+        mStartToneElapsedMillis = SystemClock.elapsedRealtime();
+        if (mFeatureFlags.pooledTonePlayback()) {
+            sToneExecutor.execute(this);
+        } else {
+            super.start();
+        }
         return true;
     }
 
@@ -541,6 +578,20 @@ public class InCallTonePlayer extends Thread {
         sTonesPlaying.set(0);
     }
 
+    /**
+     * Dumps tone playback metrics.
+     *
+     * @param pw The {@code IndentingPrintWriter} to write the state to.
+     */
+    public static void dumpMetrics(IndentingPrintWriter pw) {
+        int tonesStarted = sTonesStarted.get();
+        pw.println("InCallTonePlayer: tonesStarted=" + tonesStarted
+                + ", avgStartLatencyMs=" + (tonesStarted == 0 ? 0
+                        : sTotalToneStartLatencyMillis.get() / tonesStarted)
+                + ", poolThreads=" + sToneExecutor.getPoolSize()
+                + ", largestPoolThreads=" + sToneExecutor.getLargestPoolSize());
+    }
+
     private void cleanUpTonePlayer() {
         Log.d(this, "cleanUpTonePlayer(): posting cleanup");
         // Release focus on the main thread.
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom;
+
+import android.util.ArrayMap;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each acquisition of the {@link TelecomSystem.SyncRoot} waited for and held the
+ * lock, keyed by a name given by the acquiring site. Sites opt in by acquiring the lock through
+ * {@link #runLocked} or {@link #callLocked}; recording is skipped entirely while disabled, so the
+ * only cost left in place is a volatile read.
+ * <p>
+ * Only the sites which opt in are recorded: the busiest {@link TelecomServiceImpl} APIs, the
+ * pending answer, unhold and call state actions of {@link CallsManager}, caller info lookups, and
+ * work posted through {@link LoggedHandlerExecutor}. Every other site still takes the lock with a
+ * plain {@code synchronized} block and doesn't show up here.
+ */
+public class LockStats {
+    /**
+     * Upper bounds of the wait and hold time histogram buckets; the last bucket counts everything
+     * slower than the last bound.
+     */
+    @VisibleForTesting
+    public static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {1, 5, 10, 50, 100, 500};
+    @VisibleForTesting
+    public static final int MAX_WORST_HOLDERS = 10;
+
+    /**
+     * A single acquisition of the lock.
+     */
+    @VisibleForTesting
+    public static final class Acquisition {
+        public final String site;
+        public final long waitNanos;
+        public final long holdNanos;
+        public final long timestampMillis;
+
+        Acquisition(String site, long waitNanos, long holdNanos, long timestampMillis) {
+            this.site = site;
+            this.waitNanos = waitNanos;
+            this.holdNanos = holdNanos;
+            this.timestampMillis = timestampMillis;
+        }
+
+        @Override
+        public String toString() {
+            return site + ": hold=" + TimeUnit.NANOSECONDS.toMillis(holdNanos) + "ms, wait="
+                    + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms, at="
+                    + timestampMillis;
+        }
+    }
+
+    /** Totals for one acquiring site. */
+    private static final class SiteStats {
+        int count;
+        long totalHoldNanos;
+        long maxHoldNanos;
+        long totalWaitNanos;
+        long maxWaitNanos;
+    }
+
+    private volatile boolean mEnabled;
+    // Guarded by this.
+    private final ArrayMap<String, SiteStats> mSites = new ArrayMap<>();
+    private final int[] mWaitHistogram = new int[BUCKET_UPPER_BOUNDS_MILLIS.length + 1];
+    private final int[] mHoldHistogram = new int[BUCKET_UPPER_BOUNDS_MILLIS.length + 1];
+    private final List<Acquisition> mWorstHolders = new ArrayList<>(MAX_WORST_HOLDERS);
+
+    public LockStats(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * Runs {@code runnable} while holding {@code lock}, recording the time spent waiting for and
+     * holding it if the lock has {@link LockStats} enabled.
+     *
+     * @param lock The Telecom lock.
+     * @param site Name of the acquiring site, abbreviated the way log session names are, which
+     *             must be unique to that site.
+     * @param runnable What to run while holding the lock.
+     */
+    public static void runLocked(TelecomSystem.SyncRoot lock, String site,
+            java.lang.Runnable runnable) {
+        callLocked(lock, site, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Same as {@link #runLocked}, for sites which return a value computed under the lock.
+     *
+     * @return The value returned by {@code supplier}.
+     */
+    public static <T> T callLocked(TelecomSystem.SyncRoot lock, String site,
+            Supplier<T> supplier) {
+        LockStats stats = lock.getLockStats();
+        if (stats == null || !stats.isEnabled()) {
+            synchronized (lock) {
+                return supplier.get();
+            }
+        }
+        long requestedNanos = System.nanoTime();
+        synchronized (lock) {
+            long acquiredNanos = System.nanoTime();
+            try {
+                return supplier.get();
+            } finally {
+                stats.record(site, acquiredNanos - requestedNanos,
+                        System.nanoTime() - acquiredNanos);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    public synchronized void record(String site, long waitNanos, long holdNanos) {
+        SiteStats siteStats = mSites.get(site);
+        if (siteStats == null) {
+            siteStats = new SiteStats();
+            mSites.put(site, siteStats);
+        }
+        siteStats.count++;
+        siteStats.totalHoldNanos += holdNanos;
+        siteStats.maxHoldNanos = Math.max(siteStats.maxHoldNanos, holdNanos);
+        siteStats.totalWaitNanos += waitNanos;
+        siteStats.maxWaitNanos = Math.max(siteStats.maxWaitNanos, waitNanos);
+        mWaitHistogram[getBucket(waitNanos)]++;
+        mHoldHistogram[getBucket(holdNanos)]++;
+
+        if (mWorstHolders.size() < MAX_WORST_HOLDERS) {
+            mWorstHolders.add(new Acquisition(site, waitNanos, holdNanos,
+                    System.currentTimeMillis()));
+            return;
+        }
+        int shortest = 0;
+        for (int i = 1; i < mWorstHolders.size(); i++) {
+            if (mWorstHolders.get(i).holdNanos < mWorstHolders.get(shortest).holdNanos) {
+                shortest = i;
+            }
+        }
+        if (holdNanos > mWorstHolders.get(shortest).holdNanos) {
+            mWorstHolders.set(shortest, new Acquisition(site, waitNanos, holdNanos,
+                    System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * @return The longest acquisitions recorded, longest first.
+     */
+    @VisibleForTesting
+    public synchronized List<Acquisition> getWorstHolders() {
+        List<Acquisition> worstHolders = new ArrayList<>(mWorstHolders);
+        worstHolders.sort((a, b) -> Long.compare(b.holdNanos, a.holdNanos));
+        return worstHolders;
+    }
+
+    @VisibleForTesting
+    public synchronized int[] getWaitHistogram() {
+        return mWaitHistogram.clone();
+    }
+
+    public synchronized void reset() {
+        mSites.clear();
+        Arrays.fill(mWaitHistogram, 0);
+        Arrays.fill(mHoldHistogram, 0);
+        mWorstHolders.clear();
+    }
+
+    private static int getBucket(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+            if (millis < BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS_MILLIS.length;
+    }
+
+    public synchronized void dump(IndentingPrintWriter pw) {
+        pw.println("enabled=" + mEnabled + ", buckets (ms) <"
+                + Arrays.toString(BUCKET_UPPER_BOUNDS_MILLIS) + ", >=last");
+        pw.println("waitHistogram=" + Arrays.toString(mWaitHistogram));
+        pw.println("holdHistogram=" + Arrays.toString(mHoldHistogram));
+        pw.println("Worst holders:");
+        pw.increaseIndent();
+        for (Acquisition acquisition : getWorstHolders()) {
+            pw.println(acquisition);
+        }
+        pw.decreaseIndent();
+        pw.println("Sites:");
+        pw.increaseIndent();
+        for (int i = 0; i < mSites.size(); i++) {
+            SiteStats siteStats = mSites.valueAt(i);
+            pw.println(mSites.keyAt(i) + ": count=" + siteStats.count
+                    + ", avgHoldUs=" + TimeUnit.NANOSECONDS.toMicros(
+                            siteStats.totalHoldNanos / siteStats.count)
+                    + ", maxHoldMs=" + TimeUnit.NANOSECONDS.toMillis(siteStats.maxHoldNanos)
+                    + ", avgWaitUs=" + TimeUnit.NANOSECONDS.toMicros(
+                            siteStats.totalWaitNanos / siteStats.count)
+                    + ", maxWaitMs=" + TimeUnit.NANOSECONDS.toMillis(siteStats.maxWaitNanos));
+        }
+        pw.decreaseIndent();
+    }
+}
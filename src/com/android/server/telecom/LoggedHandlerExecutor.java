@@ -35,6 +35,16 @@ public class LoggedHandlerExecutor implements Executor {
 
     @Override
     public void execute(java.lang.Runnable command) {
+        LockStats lockStats = mLock != null ? mLock.getLockStats() : null;
+        if (lockStats != null && lockStats.isEnabled()) {
+            mHandler.post(new Runnable(mSessionName, null) {
+                @Override
+                public void loggedRun() {
+                    LockStats.runLocked(mLock, mSessionName, command);
+                }
+            }.prepare());
+            return;
+        }
         mHandler.post(new Runnable(mSessionName, mLock) {
             @Override
             public void loggedRun() {
@@ -618,6 +618,9 @@ public class NewOutgoingCallIntentBroadcaster {
         Log.v(this, "Checking restrictions for number : %s", Log.pii(number));
         if (number == null) return false;
         try {
+            if (mCall != null && mCallsManager.getEmergencyNumberIndex() != null) {
+                return mCall.isEmergencyNumber(number);
+            }
             return mContext.getSystemService(TelephonyManager.class).isEmergencyNumber(
                     number);
         } catch (UnsupportedOperationException uoe) {
@@ -29,11 +29,13 @@ import android.telecom.ParcelableRttCall;
 import android.telecom.TelecomManager;
 import android.telephony.ims.ImsCallProfile;
 import android.text.TextUtils;
+import android.util.ArraySet;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Utilities dealing with {@link ParcelableCall}.
@@ -47,20 +49,25 @@ public class ParcelableCallUtils {
      * By convention we only pass keys namespaced with android.*, however there are some keys which
      * should not be passed to non-system incallservice apps either.
      */
-    private static List<String> EXTRA_KEYS_TO_SANITIZE;
+    private static final Set<String> EXTRA_KEYS_TO_SANITIZE;
     static {
-        EXTRA_KEYS_TO_SANITIZE = new ArrayList<>();
+        EXTRA_KEYS_TO_SANITIZE = new ArraySet<>();
         EXTRA_KEYS_TO_SANITIZE.add(android.telecom.Connection.EXTRA_SIP_INVITE);
     }
 
+    /**
+     * By convention only extras in this namespace are passed to non-system incallservice apps.
+     */
+    private static final String EXTRA_KEY_NAMESPACE = "android.";
+
     /**
      * A list of extra keys which should be added to {@link ParcelableCall} when it is being
      * generated for the purpose of sending to a CallScreeningService which has access to these
      * restricted keys.
      */
-    private static List<String> RESTRICTED_CALL_SCREENING_EXTRA_KEYS;
+    private static final Set<String> RESTRICTED_CALL_SCREENING_EXTRA_KEYS;
     static {
-        RESTRICTED_CALL_SCREENING_EXTRA_KEYS = new ArrayList<>();
+        RESTRICTED_CALL_SCREENING_EXTRA_KEYS = new ArraySet<>();
         RESTRICTED_CALL_SCREENING_EXTRA_KEYS.add(android.telecom.Connection.EXTRA_SIP_INVITE);
         RESTRICTED_CALL_SCREENING_EXTRA_KEYS.add(ImsCallProfile.EXTRA_IS_BUSINESS_CALL);
         RESTRICTED_CALL_SCREENING_EXTRA_KEYS.add(ImsCallProfile.EXTRA_ASSERTED_DISPLAY_NAME);
@@ -188,13 +195,7 @@ public class ParcelableCallUtils {
             parentCallId = parentCall.getId();
         }
 
-        List<Call> childCalls = call.getChildCalls();
-        List<String> childCallIds = new ArrayList<>();
-        if (!childCalls.isEmpty()) {
-            for (Call child : childCalls) {
-                childCallIds.add(child.getId());
-            }
-        }
+        List<String> childCallIds = call.getChildCallIds();
 
         Uri handle = call.getHandlePresentation() == TelecomManager.PRESENTATION_ALLOWED ?
                 call.getHandle() : null;
@@ -203,11 +204,7 @@ public class ParcelableCallUtils {
 
         Uri contactPhotoUri = call.getContactPhotoUri();
 
-        List<Call> conferenceableCalls = call.getConferenceableCalls();
-        List<String> conferenceableCallIds = new ArrayList<String>(conferenceableCalls.size());
-        for (Call otherCall : conferenceableCalls) {
-            conferenceableCallIds.add(otherCall.getId());
-        }
+        List<String> conferenceableCallIds = call.getConferenceableCallIds();
 
         ParcelableRttCall rttCall = includeRttCall ? getParcelableRttCall(call) : null;
         int callDirection;
@@ -228,7 +225,11 @@ public class ParcelableCallUtils {
         if (isForSystemInCallService) {
             extras = call.getExtras();
         } else {
-            extras = sanitizeExtras(call.getExtras());
+            extras = call.getSanitizedExtras();
+            if (extras == null) {
+                extras = sanitizeExtras(call.getExtras());
+                call.setSanitizedExtras(extras);
+            }
         }
 
         return new ParcelableCall.ParcelableCallBuilder()
@@ -303,7 +304,11 @@ public class ParcelableCallUtils {
         }
         Bundle callExtras;
         if (areRestrictedExtrasIncluded) {
-            callExtras = sanitizeRestrictedCallExtras(call.getExtras());
+            callExtras = call.getSanitizedScreeningExtras();
+            if (callExtras == null) {
+                callExtras = sanitizeRestrictedCallExtras(call.getExtras());
+                call.setSanitizedScreeningExtras(callExtras);
+            }
         } else {
             callExtras = new Bundle();
         }
@@ -349,23 +354,7 @@ public class ParcelableCallUtils {
      * @return The sanitized extras bundle.
      */
     private static Bundle sanitizeExtras(Bundle oldExtras) {
-        if (oldExtras == null) {
-            return new Bundle();
-        }
-        Bundle extras = new Bundle(oldExtras);
-        for (String key : EXTRA_KEYS_TO_SANITIZE) {
-            extras.remove(key);
-        }
-
-        // As a catch-all remove any that don't start with android namespace.
-        Iterator<String> toCheck = extras.keySet().iterator();
-        while (toCheck.hasNext()) {
-            String extraKey = toCheck.next();
-            if (TextUtils.isEmpty(extraKey) || !extraKey.startsWith("android.")) {
-                toCheck.remove();
-            }
-        }
-        return extras;
+        return filterExtras(oldExtras, ParcelableCallUtils::isExtraKeyAllowedForNonSystemApps);
     }
 
     /**
@@ -375,18 +364,43 @@ public class ParcelableCallUtils {
      * @return The sanitized extras bundle.
      */
     private static Bundle sanitizeRestrictedCallExtras(Bundle oldExtras) {
-        if (oldExtras == null) {
+        return filterExtras(oldExtras, RESTRICTED_CALL_SCREENING_EXTRA_KEYS::contains);
+    }
+
+    private static boolean isExtraKeyAllowedForNonSystemApps(String extraKey) {
+        // As a catch-all only keep keys in the android namespace.
+        return !TextUtils.isEmpty(extraKey) && extraKey.startsWith(EXTRA_KEY_NAMESPACE)
+                && !EXTRA_KEYS_TO_SANITIZE.contains(extraKey);
+    }
+
+    /**
+     * Copies the extras, keeping only the keys accepted by the policy. The keys are classified in a
+     * single pass so the common cases (nothing or everything removed) don't need to touch the
+     * copy's key set at all.
+     */
+    private static Bundle filterExtras(Bundle oldExtras, Predicate<String> isKeyAllowed) {
+        if (oldExtras == null || oldExtras.isEmpty()) {
             return new Bundle();
         }
-        Bundle extras = new Bundle(oldExtras);
-        Iterator<String> toCheck = extras.keySet().iterator();
-        while (toCheck.hasNext()) {
-            String extraKey = toCheck.next();
-            if (TextUtils.isEmpty(extraKey)
-                    || !RESTRICTED_CALL_SCREENING_EXTRA_KEYS.contains(extraKey)) {
-                toCheck.remove();
+        List<String> keysToRemove = null;
+        for (String extraKey : oldExtras.keySet()) {
+            if (!isKeyAllowed.test(extraKey)) {
+                if (keysToRemove == null) {
+                    keysToRemove = new ArrayList<>();
+                }
+                keysToRemove.add(extraKey);
             }
         }
+        if (keysToRemove == null) {
+            return new Bundle(oldExtras);
+        }
+        if (keysToRemove.size() == oldExtras.size()) {
+            return new Bundle();
+        }
+        Bundle extras = new Bundle(oldExtras);
+        for (String extraKey : keysToRemove) {
+            extras.remove(extraKey);
+        }
         return extras;
     }
 
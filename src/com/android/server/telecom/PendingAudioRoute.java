@@ -53,6 +53,11 @@ public class PendingAudioRoute {
      */
     private AudioRoute mDestRoute;
     private Set<Pair<Integer, String>> mPendingMessages;
+    /**
+     * The pending message which arrived last during this pending audio switching, used to report
+     * which signal the switching was waiting on
+     */
+    private Pair<Integer, String> mLastReceivedMessage;
     private boolean mActive;
     /**
      * The device that has been set for communication by Telecom
@@ -86,6 +91,7 @@ public class PendingAudioRoute {
     void setOrigRoute(boolean isOriginActive, AudioRoute origRoute, boolean isDestActive,
             boolean isScoAlreadyConnected) {
         mActive = isDestActive;
+        mLastReceivedMessage = null;
         origRoute.onOrigRouteAsPendingRoute(isOriginActive, this, mAudioManager,
                 mBluetoothRouteManager, isScoAlreadyConnected);
         mOrigRoute = origRoute;
@@ -125,7 +131,9 @@ public class PendingAudioRoute {
         }
 
         // Removes the first occurrence of the specified message from this list, if it is present.
-        mPendingMessages.remove(message);
+        if (mPendingMessages.remove(message)) {
+            mLastReceivedMessage = message;
+        }
         evaluatePendingState();
     }
 
@@ -150,6 +158,14 @@ public class PendingAudioRoute {
         return mPendingMessages;
     }
 
+    /**
+     * @return The pending message which arrived last since the switching started, or {@code null}
+     * if no pending message has arrived.
+     */
+    public Pair<Integer, String> getLastReceivedMessage() {
+        return mLastReceivedMessage;
+    }
+
     /**
      * Whether the destination {@link #getDestRoute()} will be active or not.
      * @return {@code true} if destination will be active, {@code false} otherwise.
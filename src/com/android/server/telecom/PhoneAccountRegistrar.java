@@ -91,6 +91,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -185,6 +186,8 @@ public class PhoneAccountRegistrar {
     private interface PhoneAccountRegistrarWriteLock {}
     private final PhoneAccountRegistrarWriteLock mWriteLock =
             new PhoneAccountRegistrarWriteLock() {};
+    /** The latest state waiting to be written to {@link #mAtomicFile}, if any. */
+    private final AtomicReference<State> mPendingWriteState = new AtomicReference<>();
     private final FeatureFlags mTelephonyFeatureFlags;
     private final com.android.server.telecom.flags.FeatureFlags mTelecomFeatureFlags;
 
@@ -2047,23 +2050,36 @@ public class PhoneAccountRegistrar {
     private class AsyncXmlWriter extends AsyncTask<ByteArrayOutputStream, Void, Void> {
         @Override
         public Void doInBackground(ByteArrayOutputStream... args) {
-            final ByteArrayOutputStream buffer = args[0];
-            FileOutputStream fileOutput = null;
-            try {
-                synchronized (mWriteLock) {
-                    fileOutput = mAtomicFile.startWrite();
-                    buffer.writeTo(fileOutput);
-                    mAtomicFile.finishWrite(fileOutput);
-                }
-            } catch (IOException e) {
-                Log.e(this, e, "Writing state to XML file");
-                mAtomicFile.failWrite(fileOutput);
-            }
+            writeBufferToFile(args[0]);
             return null;
         }
     }
 
+    private void writeBufferToFile(ByteArrayOutputStream buffer) {
+        FileOutputStream fileOutput = null;
+        try {
+            synchronized (mWriteLock) {
+                fileOutput = mAtomicFile.startWrite();
+                buffer.writeTo(fileOutput);
+                mAtomicFile.finishWrite(fileOutput);
+            }
+        } catch (IOException e) {
+            Log.e(this, e, "Writing state to XML file");
+            mAtomicFile.failWrite(fileOutput);
+        }
+    }
+
     private void write() {
+        if (mTelecomFeatureFlags.serializePhoneAccountsOffLock()) {
+            // Only copy the state while the caller holds the Telecom lock; serializing it, which
+            // includes compressing account icons, happens on the same serial executor the file
+            // writes use. A write still pending when the next one arrives is replaced by it.
+            sortPhoneAccounts();
+            if (mPendingWriteState.getAndSet(copyState(mState)) == null) {
+                AsyncTask.SERIAL_EXECUTOR.execute(this::writePendingState);
+            }
+            return;
+        }
         try {
             sortPhoneAccounts();
             ByteArrayOutputStream os = new ByteArrayOutputStream();
@@ -2076,6 +2092,43 @@ public class PhoneAccountRegistrar {
         }
     }
 
+    private void writePendingState() {
+        State state = mPendingWriteState.getAndSet(null);
+        if (state == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            XmlSerializer serializer = Xml.resolveSerializer(os);
+            writeToXml(state, serializer, mContext, mTelephonyFeatureFlags);
+            serializer.flush();
+            writeBufferToFile(os);
+        } catch (IOException e) {
+            Log.e(this, e, "Writing state to XML buffer");
+        }
+    }
+
+    /**
+     * @return A copy of {@code state} which later changes to {@code state} don't affect.
+     * {@link PhoneAccount}s are copied because their enabled state is changed in place, see
+     * {@link #enablePhoneAccount}; {@link PhoneAccountHandle}s are immutable and are shared.
+     */
+    @VisibleForTesting
+    public static State copyState(State state) {
+        State copy = new State();
+        state.defaultOutgoingAccountHandles.forEach((userHandle, handle) ->
+                copy.defaultOutgoingAccountHandles.put(userHandle,
+                        new DefaultPhoneAccountHandle(handle.userHandle,
+                                handle.phoneAccountHandle, handle.groupId)));
+        List<PhoneAccount> accounts = new ArrayList<>(state.accounts.size());
+        for (PhoneAccount account : state.accounts) {
+            accounts.add(account.toBuilder().build());
+        }
+        copy.accounts.addAll(accounts);
+        copy.versionNumber = state.versionNumber;
+        return copy;
+    }
+
     private void read() {
         final InputStream is;
         try {
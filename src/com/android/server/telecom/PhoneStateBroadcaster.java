@@ -17,6 +17,7 @@
 package com.android.server.telecom;
 
 import android.content.pm.PackageManager;
+import android.os.Handler;
 import android.telecom.Log;
 import android.telephony.PhoneNumberUtils;
 import android.telephony.SubscriptionInfo;
@@ -24,8 +25,10 @@ import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.telephony.TelephonyRegistryManager;
 import android.telephony.emergency.EmergencyNumber;
+import android.util.ArrayMap;
 
 import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
 
 import java.util.List;
 import java.util.Objects;
@@ -34,15 +37,48 @@ import java.util.Optional;
 /**
  * Send a {@link TelephonyManager#ACTION_PHONE_STATE_CHANGED} broadcast when the call state
  * changes.
+ * <p>
+ * When coalescing, the phone state of each call is tracked as calls change so the aggregate
+ * state is known without scanning the call list, and TelephonyRegistry is only told about the
+ * state once it has settled at the end of the current looper turn. A state which flaps and
+ * returns to what was last reported, such as during a call swap, is never reported at all.
  */
 public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
 
     private final CallsManager mCallsManager;
     private final TelephonyRegistryManager mRegistry;
+    private final boolean mIsCoalescing;
+    private final Handler mHandler;
+    private final Runnable mNotifyRunnable = this::notifySettledState;
     private int mCurrentState = TelephonyManager.CALL_STATE_IDLE;
 
+    // Only used when coalescing; guarded by the Telecom lock.
+    /** The phone state each call contributes, for calls contributing more than idle. */
+    private final ArrayMap<Call, Integer> mCallPhoneStates = new ArrayMap<>();
+    private int mRingingCalls = 0;
+    private int mOffhookCalls = 0;
+    private int mNotifiedState = TelephonyManager.CALL_STATE_IDLE;
+    /** The call which last changed the state, whose handle goes with the notification. */
+    private Call mLastChangedCall;
+    private boolean mIsNotifyPending = false;
+    private int mStateChanges = 0;
+    private int mNotificationsSent = 0;
+
     public PhoneStateBroadcaster(CallsManager callsManager) {
+        this(callsManager, false /* isCoalescing */, null /* handler */);
+    }
+
+    /**
+     * @param isCoalescing Whether to track the state incrementally and only notify
+     *                     TelephonyRegistry of settled states.
+     * @param handler The handler settled states are reported on when coalescing; it must run on
+     *                the looper the call state changes are reported on.
+     */
+    public PhoneStateBroadcaster(CallsManager callsManager, boolean isCoalescing,
+            Handler handler) {
         mCallsManager = callsManager;
+        mIsCoalescing = isCoalescing;
+        mHandler = handler;
         mRegistry = callsManager.getContext().getSystemService(TelephonyRegistryManager.class);
         if (mRegistry == null) {
             Log.w(this, "TelephonyRegistry is null");
@@ -51,6 +87,10 @@ public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
 
     @Override
     public void onCallStateChanged(Call call, int oldState, int newState) {
+        if (mIsCoalescing) {
+            updateCallPhoneState(call, getPhoneState(call));
+            return;
+        }
         if (call.isExternalCall()) {
             return;
         }
@@ -59,10 +99,14 @@ public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
 
     @Override
     public void onCallAdded(Call call) {
+        if (mIsCoalescing) {
+            updateCallPhoneState(call, getPhoneState(call));
+        } else if (!call.isExternalCall()) {
+            updateStates(call);
+        }
         if (call.isExternalCall()) {
             return;
         }
-        updateStates(call);
 
         if (call.isEmergencyCall() && !call.isIncoming()) {
             sendOutgoingEmergencyCallEvent(call);
@@ -71,12 +115,34 @@ public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
 
     @Override
     public void onCallRemoved(Call call) {
+        if (mIsCoalescing) {
+            updateCallPhoneState(call, TelephonyManager.CALL_STATE_IDLE);
+            return;
+        }
         if (call.isExternalCall()) {
             return;
         }
         updateStates(call);
     }
 
+    /**
+     * Only top-level calls count towards the phone state, so when coalescing, joining or leaving
+     * a conference changes what the call and those related to it contribute.
+     */
+    @Override
+    public void onIsConferencedChanged(Call call) {
+        if (!mIsCoalescing) {
+            return;
+        }
+        updateCallPhoneState(call, getPhoneState(call));
+        if (call.getParentCall() != null) {
+            updateCallPhoneState(call.getParentCall(), getPhoneState(call.getParentCall()));
+        }
+        for (Call child : call.getChildCalls()) {
+            updateCallPhoneState(child, getPhoneState(child));
+        }
+    }
+
     /**
      * Handles changes to a call's external property.  If the call becomes external, we end up
      * updating the call state to idle.  If the call becomes non-external, then the call state can
@@ -87,9 +153,91 @@ public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
      */
     @Override
     public void onExternalCallChanged(Call call, boolean isExternalCall) {
+        if (mIsCoalescing) {
+            updateCallPhoneState(call, getPhoneState(call));
+            return;
+        }
         updateStates(call);
     }
 
+    /**
+     * @return The phone state {@code call} contributes on its own, matching what
+     * {@link #updateStates} finds by scanning the calls.
+     */
+    private static int getPhoneState(Call call) {
+        if (call.isExternalCall() || call.getParentCall() != null) {
+            return TelephonyManager.CALL_STATE_IDLE;
+        }
+        switch (call.getState()) {
+            case CallState.SIMULATED_RINGING:
+            case CallState.RINGING:
+            case CallState.ANSWERED:
+                return TelephonyManager.CALL_STATE_RINGING;
+            case CallState.DIALING:
+            case CallState.PULLING:
+            case CallState.ACTIVE:
+            case CallState.ON_HOLD:
+                return TelephonyManager.CALL_STATE_OFFHOOK;
+            default:
+                return TelephonyManager.CALL_STATE_IDLE;
+        }
+    }
+
+    private void updateCallPhoneState(Call call, int phoneState) {
+        Integer oldPhoneState = phoneState == TelephonyManager.CALL_STATE_IDLE
+                ? mCallPhoneStates.remove(call) : mCallPhoneStates.put(call, phoneState);
+        if (oldPhoneState != null && oldPhoneState == phoneState) {
+            return;
+        }
+        adjustCount(oldPhoneState, -1);
+        adjustCount(phoneState, 1);
+
+        int state = TelephonyManager.CALL_STATE_IDLE;
+        if (mRingingCalls > 0) {
+            state = TelephonyManager.CALL_STATE_RINGING;
+        } else if (mOffhookCalls > 0) {
+            state = TelephonyManager.CALL_STATE_OFFHOOK;
+        }
+        if (state == mCurrentState) {
+            return;
+        }
+        mCurrentState = state;
+        mLastChangedCall = call;
+        mStateChanges++;
+        if (!mIsNotifyPending) {
+            mIsNotifyPending = true;
+            mHandler.post(mNotifyRunnable);
+        }
+    }
+
+    private void adjustCount(Integer phoneState, int delta) {
+        if (phoneState == null) {
+            return;
+        }
+        if (phoneState == TelephonyManager.CALL_STATE_RINGING) {
+            mRingingCalls += delta;
+        } else if (phoneState == TelephonyManager.CALL_STATE_OFFHOOK) {
+            mOffhookCalls += delta;
+        }
+    }
+
+    private void notifySettledState() {
+        Log.startSession("PSB.nSS");
+        try {
+            synchronized (mCallsManager.getLock()) {
+                mIsNotifyPending = false;
+                if (mCurrentState == mNotifiedState) {
+                    return;
+                }
+                mNotifiedState = mCurrentState;
+                mNotificationsSent++;
+                notifyRegistry(mLastChangedCall, mCurrentState);
+            }
+        } finally {
+            Log.endSession();
+        }
+    }
+
     private void updateStates(Call call) {
         // Recalculate the current phone state based on the consolidated state of the remaining
         // calls in the call list.
@@ -115,7 +263,10 @@ public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
         }
 
         mCurrentState = phoneState;
+        notifyRegistry(call, phoneState);
+    }
 
+    private void notifyRegistry(Call call, int phoneState) {
         String callHandle = null;
         // Only report phone numbers in phone state broadcast for regular mobile calls; do not
         // include numbers from 3rd party apps.
@@ -125,7 +276,24 @@ public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
 
         if (mRegistry != null) {
             mRegistry.notifyCallStateChangedForAllSubscriptions(phoneState, callHandle);
-            Log.i(this, "Broadcasted state change: %s", mCurrentState);
+            Log.i(this, "Broadcasted state change: %s", phoneState);
+        }
+    }
+
+    /**
+     * @return The number of changes of the phone state which were not reported to
+     * TelephonyRegistry because the state changed again before it settled.
+     */
+    @VisibleForTesting
+    public int getSuppressedNotifications() {
+        return mStateChanges - mNotificationsSent;
+    }
+
+    public void dump(IndentingPrintWriter pw) {
+        pw.println("state=" + mCurrentState + ", isCoalescing=" + mIsCoalescing);
+        if (mIsCoalescing) {
+            pw.println("notifiedState=" + mNotifiedState + ", stateChanges=" + mStateChanges
+                    + ", notificationsSent=" + mNotificationsSent);
         }
     }
 
@@ -134,11 +302,17 @@ public final class PhoneStateBroadcaster extends CallsManagerListenerBase {
         String strippedNumber =
                 PhoneNumberUtils.stripSeparators(call.getHandle().getSchemeSpecificPart());
         Optional<EmergencyNumber> emergencyNumber;
+        EmergencyNumberIndex index = mCallsManager.getEmergencyNumberIndex();
         try {
-            emergencyNumber = tm.getEmergencyNumberList().values().stream()
-                    .flatMap(List::stream)
-                    .filter(numberObj -> Objects.equals(numberObj.getNumber(), strippedNumber))
-                    .findFirst();
+            if (index != null) {
+                emergencyNumber = Optional.ofNullable(index.getEmergencyNumber(strippedNumber));
+            } else {
+                emergencyNumber = tm.getEmergencyNumberList().values().stream()
+                        .flatMap(List::stream)
+                        .filter(numberObj -> Objects.equals(numberObj.getNumber(),
+                                strippedNumber))
+                        .findFirst();
+            }
         } catch (UnsupportedOperationException ignored) {
             emergencyNumber = Optional.empty();
         } catch (IllegalStateException ie) {
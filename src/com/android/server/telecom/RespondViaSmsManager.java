@@ -25,7 +25,10 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.telecom.Connection;
 import android.telecom.Log;
 import android.telecom.Logging.Session;
@@ -36,12 +39,17 @@ import android.text.BidiFormatter;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.TextUtils;
+import android.util.SparseArray;
 import android.widget.Toast;
 
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.server.telecom.flags.FeatureFlags;
 
+import java.io.File;
 import java.text.Bidi;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -55,10 +63,13 @@ public class RespondViaSmsManager extends CallsManagerListenerBase {
     private static final class MessageSentReceiver extends BroadcastReceiver {
         private final String mContactName;
         private final int mNumMessageParts;
+        private final SendStats mSendStats;
+        private final long mSendStartMillis = SystemClock.elapsedRealtime();
         private int mNumMessagesSent = 0;
-        MessageSentReceiver(String contactName, int numMessageParts) {
+        MessageSentReceiver(String contactName, int numMessageParts, SendStats sendStats) {
             mContactName = contactName;
             mNumMessageParts = numMessageParts;
+            mSendStats = sendStats;
         }
 
         @Override
@@ -66,10 +77,12 @@ public class RespondViaSmsManager extends CallsManagerListenerBase {
             if (getResultCode() == Activity.RESULT_OK) {
                 mNumMessagesSent++;
                 if (mNumMessagesSent == mNumMessageParts) {
+                    mSendStats.record(true, SystemClock.elapsedRealtime() - mSendStartMillis);
                     showMessageResultToast(mContactName, context, true);
                     context.unregisterReceiver(this);
                 }
             } else {
+                mSendStats.record(false, SystemClock.elapsedRealtime() - mSendStartMillis);
                 context.unregisterReceiver(this);
                 showMessageResultToast(mContactName, context, false);
                 Log.w(RespondViaSmsManager.class.getSimpleName(),
@@ -78,10 +91,73 @@ public class RespondViaSmsManager extends CallsManagerListenerBase {
         }
     }
 
+    /** How long sent messages took from the send request to the last part being sent. */
+    private static final class SendStats {
+        private int mSent;
+        private int mFailed;
+        private long mTotalMillis;
+        private long mMaxMillis;
+
+        synchronized void record(boolean success, long durationMillis) {
+            if (success) {
+                mSent++;
+            } else {
+                mFailed++;
+            }
+            mTotalMillis += durationMillis;
+            mMaxMillis = Math.max(mMaxMillis, durationMillis);
+            Log.i(RespondViaSmsManager.class.getSimpleName(), "Message %s after %d ms",
+                    success ? "sent" : "failed", durationMillis);
+        }
+
+        synchronized void dump(IndentingPrintWriter pw) {
+            int count = mSent + mFailed;
+            pw.println("sent=" + mSent + ", failed=" + mFailed
+                    + ", avgMs=" + (count == 0 ? 0 : mTotalMillis / count)
+                    + ", maxMs=" + mMaxMillis);
+        }
+    }
+
+    /** The canned responses of one user, and when the preferences they came from were written. */
+    private static final class CannedResponses {
+        final List<String> mResponses;
+        final long mLastModified;
+
+        CannedResponses(List<String> responses, long lastModified) {
+            mResponses = responses;
+            mLastModified = lastModified;
+        }
+    }
+
     private final CallsManager mCallsManager;
     private final TelecomSystem.SyncRoot mLock;
     private final Executor mAsyncExecutor;
     private final FeatureFlags mFeatureFlags;
+    private final SendStats mSendStats = new SendStats();
+
+    private final Object mCacheLock = new Object();
+    // Guarded by mCacheLock. Keyed by user id.
+    private final SparseArray<CannedResponses> mCannedResponses = new SparseArray<>();
+    // Guarded by mCacheLock. Users whose preferences are being listened to.
+    private final SparseArray<SharedPreferences> mListenedPreferences = new SparseArray<>();
+    // Guarded by mCacheLock. Bumped whenever the cache is cleared, so that a load which raced
+    // with a change isn't cached.
+    private int mCacheGeneration = 0;
+    private int mCacheHits = 0;
+    private int mCacheMisses = 0;
+    // Preferences only hold weak references to their listeners.
+    private final SharedPreferences.OnSharedPreferenceChangeListener mPreferenceListener =
+            (prefs, key) -> clearCannedResponses("preferences changed");
+    private final BroadcastReceiver mLocaleChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // The default responses are localized.
+            clearCannedResponses("locale changed");
+        }
+    };
+    // Guarded by mCacheLock.
+    private boolean mIsLocaleReceiverRegistered = false;
+    private Handler mSmsResultHandler;
 
     public RespondViaSmsManager(CallsManager callsManager, TelecomSystem.SyncRoot lock,
         Executor asyncExecutor, FeatureFlags featureFlags) {
@@ -104,7 +180,25 @@ public class RespondViaSmsManager extends CallsManagerListenerBase {
      */
     public void loadCannedTextMessages(final CallsManager.Response<Void, List<String>> response,
             final Context context) {
-        if (mFeatureFlags.enableRespondViaSmsManagerAsync()) {
+        if (mFeatureFlags.cacheCannedSmsResponses()) {
+            Session s = Log.createSubsession();
+            mAsyncExecutor.execute(() -> {
+                try {
+                    Log.continueSession(s, "RVSM.lCTM.c");
+                    List<String> textMessages = getCannedTextMessages(context);
+                    synchronized (mLock) {
+                        response.onResult(null, textMessages);
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(RespondViaSmsManager.this, e, "loadCannedTextMessages failed");
+                    synchronized (mLock) {
+                        response.onError(null, -1, e.toString());
+                    }
+                } finally {
+                    Log.endSession();
+                }
+            });
+        } else if (mFeatureFlags.enableRespondViaSmsManagerAsync()) {
             CompletableFuture<List<String>> cannedTextMessages = new CompletableFuture<>();
             Session s = Log.createSubsession();
             mAsyncExecutor.execute(() -> {
@@ -138,6 +232,83 @@ public class RespondViaSmsManager extends CallsManagerListenerBase {
         }
     }
 
+    /**
+     * Loads the canned responses ahead of the first incoming call, so that they are ready by the
+     * time the incoming call UI shows them. Called once Telecom's user is unlocked, since the
+     * preferences are in credential encrypted storage.
+     */
+    public void prewarmCannedTextMessages(Context context) {
+        if (!mFeatureFlags.cacheCannedSmsResponses()) {
+            return;
+        }
+        boolean registerLocaleReceiver;
+        synchronized (mCacheLock) {
+            registerLocaleReceiver = !mIsLocaleReceiverRegistered;
+            mIsLocaleReceiverRegistered = true;
+        }
+        if (registerLocaleReceiver) {
+            context.registerReceiver(mLocaleChangedReceiver,
+                    new IntentFilter(Intent.ACTION_LOCALE_CHANGED), Context.RECEIVER_NOT_EXPORTED);
+        }
+        Session s = Log.createSubsession();
+        mAsyncExecutor.execute(() -> {
+            try {
+                Log.continueSession(s, "RVSM.pCTM");
+                getCannedTextMessages(context);
+            } catch (RuntimeException e) {
+                Log.w(RespondViaSmsManager.this, "prewarmCannedTextMessages: %s", e);
+            } finally {
+                Log.endSession();
+            }
+        });
+    }
+
+    /**
+     * @return The canned responses of the user of {@code context}, read from the preferences
+     * only if they were written since the cached copy was loaded. The preferences are edited from
+     * the settings UI process, where the change listener can't see them, so the file's
+     * modification time is checked as well.
+     */
+    @VisibleForTesting
+    public List<String> getCannedTextMessages(Context context) {
+        int userId = context.getUserId();
+        File prefsFile = context.getSharedPreferencesPath(
+                QuickResponseUtils.SHARED_PREFERENCES_NAME);
+        int generation;
+        synchronized (mCacheLock) {
+            CannedResponses cached = mCannedResponses.get(userId);
+            if (cached != null && cached.mLastModified == prefsFile.lastModified()) {
+                mCacheHits++;
+                return cached.mResponses;
+            }
+            mCacheMisses++;
+            generation = mCacheGeneration;
+        }
+        long lastModified = prefsFile.lastModified();
+        List<String> textMessages = Collections.unmodifiableList(loadCannedTextMessages(context));
+        synchronized (mCacheLock) {
+            if (mListenedPreferences.get(userId) == null) {
+                SharedPreferences prefs = context.getSharedPreferences(
+                        QuickResponseUtils.SHARED_PREFERENCES_NAME,
+                        Context.MODE_PRIVATE | Context.MODE_MULTI_PROCESS);
+                prefs.registerOnSharedPreferenceChangeListener(mPreferenceListener);
+                mListenedPreferences.put(userId, prefs);
+            }
+            if (generation == mCacheGeneration) {
+                mCannedResponses.put(userId, new CannedResponses(textMessages, lastModified));
+            }
+        }
+        return textMessages;
+    }
+
+    private void clearCannedResponses(String reason) {
+        Log.i(this, "clearCannedResponses: %s", reason);
+        synchronized (mCacheLock) {
+            mCannedResponses.clear();
+            mCacheGeneration++;
+        }
+    }
+
     private List<String> loadCannedTextMessages(final Context context) {
         Log.d(RespondViaSmsManager.this, "loadCannedTextMessages() starting");
         // This function guarantees that QuickResponses will be in our
@@ -266,10 +437,17 @@ public class RespondViaSmsManager extends CallsManagerListenerBase {
 
             MessageSentReceiver receiver = new MessageSentReceiver(
                     !TextUtils.isEmpty(contactName) ? contactName : phoneNumber,
-                    messageParts.size());
+                    messageParts.size(), mSendStats);
             IntentFilter messageSentFilter = new IntentFilter(ACTION_MESSAGE_SENT);
             messageSentFilter.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
-            context.registerReceiver(receiver, messageSentFilter, Context.RECEIVER_NOT_EXPORTED);
+            if (mFeatureFlags.handleSmsSentResultsOffMainThread()) {
+                // Handle the results, and show the toast, off the main thread.
+                context.registerReceiver(receiver, messageSentFilter, null /* permission */,
+                        getSmsResultHandler(), Context.RECEIVER_NOT_EXPORTED);
+            } else {
+                context.registerReceiver(receiver, messageSentFilter,
+                        Context.RECEIVER_NOT_EXPORTED);
+            }
             smsManager.sendMultipartTextMessage(phoneNumber, null, messageParts,
                     sentIntents/*sentIntent*/, null /*deliveryIntent*/, context.getOpPackageName(),
                     context.getAttributionTag());
@@ -278,4 +456,22 @@ public class RespondViaSmsManager extends CallsManagerListenerBase {
                     e.getMessage());
         }
     }
+
+    private synchronized Handler getSmsResultHandler() {
+        if (mSmsResultHandler == null) {
+            HandlerThread handlerThread = new HandlerThread(
+                    RespondViaSmsManager.class.getSimpleName());
+            handlerThread.start();
+            mSmsResultHandler = new Handler(handlerThread.getLooper());
+        }
+        return mSmsResultHandler;
+    }
+
+    public void dump(IndentingPrintWriter pw) {
+        synchronized (mCacheLock) {
+            pw.println("cachedUsers=" + mCannedResponses.size() + ", cacheHits=" + mCacheHits
+                    + ", cacheMisses=" + mCacheMisses);
+        }
+        mSendStats.dump(pw);
+    }
 }
@@ -95,6 +95,14 @@ public interface RoleManagerAdapter {
      */
     void observeDefaultDialerApp(Executor executor, IntConsumer observer);
 
+    /**
+     * Observe changes to the apps which fill the {@link android.app.role.RoleManager}
+     * {@link android.app.role.RoleManager#ROLE_DIALER} or
+     * {@link android.app.role.RoleManager#ROLE_CALL_SCREENING} role, which are the apps used to
+     * screen calls.
+     */
+    void observeCallScreeningApps(Executor executor, IntConsumer observer);
+
     /**
      * Override the {@link android.app.role.RoleManager} default dialer app with another value.
      * Used for testing purposes only.
@@ -23,11 +23,15 @@ import android.content.pm.PackageManager;
 import android.os.Binder;
 import android.os.UserHandle;
 import android.telecom.Log;
+import android.util.ArrayMap;
+import android.util.Pair;
 
 import com.android.internal.util.IndentingPrintWriter;
+import com.android.server.telecom.flags.FeatureFlags;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
@@ -46,9 +50,44 @@ public class RoleManagerAdapterImpl implements RoleManagerAdapter {
     private RoleManager mRoleManager;
     private UserHandle mCurrentUserHandle;
 
-    public RoleManagerAdapterImpl(Context context, RoleManager roleManager) {
+    /**
+     * Role holders looked up per (role, user); {@code null} when role holder caching is disabled.
+     * Entries are dropped when RoleManager reports the holders of a role changed.
+     */
+    private final Map<Pair<String, UserHandle>, String> mRoleHolderCache;
+    private final AppLabelCache mAppLabelCache;
+    private String[] mBluetoothInCallServicePackageNames;
+    // Guarded by mRoleHolderCache. Bumped whenever role holders change, so that a lookup which
+    // raced with a change isn't cached.
+    private int mRoleHolderCacheGeneration = 0;
+    private int mRoleHolderCacheHits = 0;
+    private int mRoleHolderCacheMisses = 0;
+
+    public RoleManagerAdapterImpl(Context context, RoleManager roleManager,
+            FeatureFlags featureFlags) {
         mContext = context;
         mRoleManager = roleManager;
+        if (featureFlags.cacheRoleHoldersAndAppLabels()) {
+            mRoleHolderCache = new ArrayMap<>();
+            mAppLabelCache = new AppLabelCache(context, featureFlags);
+            mRoleManager.addOnRoleHoldersChangedListenerAsUser(mContext.getMainExecutor(),
+                    (roleName, user) -> {
+                        synchronized (mRoleHolderCache) {
+                            mRoleHolderCache.remove(new Pair<>(roleName, user));
+                            mRoleHolderCacheGeneration++;
+                        }
+                    }, UserHandle.ALL);
+        } else {
+            mRoleHolderCache = null;
+            mAppLabelCache = null;
+        }
+    }
+
+    /**
+     * @return A caching {@link AppLabelProxy}, or {@code null} if label caching is disabled.
+     */
+    public AppLabelProxy getAppLabelCache() {
+        return mAppLabelCache;
     }
 
     @Override
@@ -108,6 +147,15 @@ public class RoleManagerAdapterImpl implements RoleManagerAdapter {
                 }, UserHandle.ALL);
     }
 
+    @Override
+    public void observeCallScreeningApps(Executor executor, IntConsumer observer) {
+        mRoleManager.addOnRoleHoldersChangedListenerAsUser(executor, (roleName, user) -> {
+                    if (ROLE_DIALER.equals(roleName) || ROLE_CALL_SCREENING.equals(roleName)) {
+                        observer.accept(user.getIdentifier());
+                    }
+                }, UserHandle.ALL);
+    }
+
     @Override
     public void setTestDefaultDialer(String packageName) {
         mOverrideDefaultDialerApp = packageName;
@@ -135,21 +183,42 @@ public class RoleManagerAdapterImpl implements RoleManagerAdapter {
     }
 
     private String getRoleManagerCallScreeningApp(UserHandle userHandle) {
-        List<String> roleHolders = mRoleManager.getRoleHoldersAsUser(ROLE_CALL_SCREENING,
-                userHandle);
-        if (roleHolders == null || roleHolders.isEmpty()) {
-            return null;
-        }
-        return roleHolders.get(0);
+        return getRoleHolder(ROLE_CALL_SCREENING, userHandle);
     }
 
     private String getRoleManagerDefaultDialerApp(int user) {
-        List<String> roleHolders = mRoleManager.getRoleHoldersAsUser(ROLE_DIALER,
-                new UserHandle(user));
-        if (roleHolders == null || roleHolders.isEmpty()) {
-            return null;
+        return getRoleHolder(ROLE_DIALER, new UserHandle(user));
+    }
+
+    /**
+     * @return The first holder of {@code roleName} for the given user, or {@code null} if there
+     * is none.
+     */
+    private String getRoleHolder(String roleName, UserHandle userHandle) {
+        Pair<String, UserHandle> key = null;
+        int generation = 0;
+        if (mRoleHolderCache != null) {
+            key = new Pair<>(roleName, userHandle);
+            synchronized (mRoleHolderCache) {
+                if (mRoleHolderCache.containsKey(key)) {
+                    mRoleHolderCacheHits++;
+                    return mRoleHolderCache.get(key);
+                }
+                mRoleHolderCacheMisses++;
+                generation = mRoleHolderCacheGeneration;
+            }
         }
-        return roleHolders.get(0);
+        List<String> roleHolders = mRoleManager.getRoleHoldersAsUser(roleName, userHandle);
+        String roleHolder = roleHolders == null || roleHolders.isEmpty()
+                ? null : roleHolders.get(0);
+        if (key != null) {
+            synchronized (mRoleHolderCache) {
+                if (generation == mRoleHolderCacheGeneration) {
+                    mRoleHolderCache.put(key, roleHolder);
+                }
+            }
+        }
+        return roleHolder;
     }
 
     // TODO in R: Use companion app manager
@@ -158,16 +227,20 @@ public class RoleManagerAdapterImpl implements RoleManagerAdapter {
     }
 
     private String getRoleManagerCallRedirectionApp(UserHandle userHandle) {
-        List<String> roleHolders = mRoleManager.getRoleHoldersAsUser(ROLE_CALL_REDIRECTION_APP,
-                userHandle);
-        if (roleHolders == null || roleHolders.isEmpty()) {
-            return null;
-        }
-        return roleHolders.get(0);
+        return getRoleHolder(ROLE_CALL_REDIRECTION_APP, userHandle);
     }
 
     private String[] getBluetoothInCallServicePackageName() {
-        return mContext.getResources().getStringArray(R.array.system_bluetooth_stack_package_name);
+        if (mRoleHolderCache == null) {
+            return mContext.getResources().getStringArray(
+                    R.array.system_bluetooth_stack_package_name);
+        }
+        // The overlay can't change while Telecom is running, so read it once.
+        if (mBluetoothInCallServicePackageNames == null) {
+            mBluetoothInCallServicePackageNames = mContext.getResources().getStringArray(
+                    R.array.system_bluetooth_stack_package_name);
+        }
+        return mBluetoothInCallServicePackageNames.clone();
     }
 
     /**
@@ -179,6 +252,10 @@ public class RoleManagerAdapterImpl implements RoleManagerAdapter {
      */
     @Override
     public String getApplicationLabelForPackageName(String packageName) {
+        if (mAppLabelCache != null) {
+            CharSequence label = mAppLabelCache.getAppLabel(packageName, mContext.getUser());
+            return label == null ? packageName : label.toString();
+        }
         PackageManager pm = mContext.getPackageManager();
         ApplicationInfo info = null;
         try {
@@ -228,5 +305,16 @@ public class RoleManagerAdapterImpl implements RoleManagerAdapter {
             pw.print(appsInRole.stream().collect(Collectors.joining(", ")));
         }
         pw.println();
+
+        if (mRoleHolderCache != null) {
+            synchronized (mRoleHolderCache) {
+                int lookups = mRoleHolderCacheHits + mRoleHolderCacheMisses;
+                pw.println("RoleHolderCache: entries=" + mRoleHolderCache.size()
+                        + ", hits=" + mRoleHolderCacheHits
+                        + ", misses=" + mRoleHolderCacheMisses + ", hitRate="
+                        + (lookups == 0 ? 0 : (100 * mRoleHolderCacheHits / lookups)) + "%");
+            }
+            mAppLabelCache.dump(pw);
+        }
     }
 }
@@ -160,6 +160,7 @@ public class TelecomServiceImpl {
     private final CallIntentProcessor.Adapter mCallIntentProcessorAdapter;
     private final UserCallIntentProcessorFactory mUserCallIntentProcessorFactory;
     private final DefaultDialerCache mDefaultDialerCache;
+    private final CallerIdentityCache mCallerIdentityCache;
     private final SubscriptionManagerAdapter mSubscriptionManagerAdapter;
     private final SettingsSecureAdapter mSettingsSecureAdapter;
     private final TelecomSystem.SyncRoot mLock;
@@ -329,7 +330,7 @@ public class TelecomServiceImpl {
                     Binder.getCallingUid(), ApiStats.RESULT_PERMISSION);
             try {
                 Log.startSession("TSI.gDOPA", Log.getPackageAbbreviation(callingPackage));
-                synchronized (mLock) {
+                return LockStats.callLocked(mLock, "TSI.gDOPA", () -> {
                     PhoneAccountHandle phoneAccountHandle = null;
                     final UserHandle callingUserHandle = Binder.getCallingUserHandle();
                     long token = Binder.clearCallingIdentity();
@@ -354,7 +355,7 @@ public class TelecomServiceImpl {
                         return phoneAccountHandle;
                     }
                     return null;
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1206,7 +1207,7 @@ public class TelecomServiceImpl {
                     Binder.getCallingUid(), ApiStats.RESULT_PERMISSION);
             try {
                 Log.startSession("TSI.sR", Log.getPackageAbbreviation(callingPackage));
-                synchronized (mLock) {
+                LockStats.runLocked(mLock, "TSI.sR", () -> {
                     enforcePermissionOrPrivilegedDialer(MODIFY_PHONE_STATE, callingPackage);
                     UserHandle callingUserHandle = Binder.getCallingUserHandle();
                     boolean crossUserAccess = hasInAppCrossUserPermission();
@@ -1222,7 +1223,7 @@ public class TelecomServiceImpl {
                     } finally {
                         Binder.restoreCallingIdentity(token);
                     }
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1350,10 +1351,14 @@ public class TelecomServiceImpl {
                     return false;
                 }
                 event.setResult(ApiStats.RESULT_NORMAL);
-                synchronized (mLock) {
+                if (mFeatureFlags.lockFreeCallStateQueries()) {
+                    return mCallsManager.getCallStateSnapshot().hasOngoingCalls(
+                            Binder.getCallingUserHandle(), hasInAppCrossUserPermission());
+                }
+                return LockStats.callLocked(mLock, "TSI.iIC", () -> {
                     return mCallsManager.hasOngoingCalls(Binder.getCallingUserHandle(),
                             hasInAppCrossUserPermission());
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1400,10 +1405,14 @@ public class TelecomServiceImpl {
                             "READ_PHONE_STATE permission can use this method.");
                 }
                 event.setResult(ApiStats.RESULT_NORMAL);
-                synchronized (mLock) {
+                if (mFeatureFlags.lockFreeCallStateQueries()) {
+                    return mCallsManager.getCallStateSnapshot().hasOngoingManagedCalls(
+                            Binder.getCallingUserHandle(), hasInAppCrossUserPermission());
+                }
+                return LockStats.callLocked(mLock, "TSI.iIMC", () -> {
                     return mCallsManager.hasOngoingManagedCalls(Binder.getCallingUserHandle(),
                             hasInAppCrossUserPermission());
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1430,14 +1439,18 @@ public class TelecomServiceImpl {
                 }
 
                 event.setResult(ApiStats.RESULT_NORMAL);
-                synchronized (mLock) {
+                if (mFeatureFlags.lockFreeCallStateQueries()) {
+                    // The snapshot is derived from the tracked calls as well; see below.
+                    return mCallsManager.getCallStateSnapshot().hasRingingOrSimulatedRingingCall();
+                }
+                return LockStats.callLocked(mLock, "TSI.iR", () -> {
                     // Note: We are explicitly checking the calls telecom is tracking rather than
                     // relying on mCallsManager#getCallState(). Since getCallState() relies on the
                     // current state as tracked by PhoneStateBroadcaster, any failure to properly
                     // track the current call state there could result in the wrong ringing state
                     // being reported by this API.
                     return mCallsManager.hasRingingOrSimulatedRingingCall();
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1465,9 +1478,12 @@ public class TelecomServiceImpl {
                             + "targeting API version 30 or less.");
                 }
                 event.setResult(ApiStats.RESULT_NORMAL);
-                synchronized (mLock) {
-                    return mCallsManager.getCallState();
+                if (mFeatureFlags.lockFreeCallStateQueries()) {
+                    return mCallsManager.getCallStateSnapshot().getCallState();
                 }
+                return LockStats.callLocked(mLock, "TSI.gCS", () -> {
+                    return mCallsManager.getCallState();
+                });
             } finally {
                 Log.endSession();
             }
@@ -1509,9 +1525,12 @@ public class TelecomServiceImpl {
                     }
                 }
                 event.setResult(ApiStats.RESULT_NORMAL);
-                synchronized (mLock) {
-                    return mCallsManager.getCallState();
+                if (mFeatureFlags.lockFreeCallStateQueries()) {
+                    return mCallsManager.getCallStateSnapshot().getCallState();
                 }
+                return LockStats.callLocked(mLock, "TSI.gCSUP", () -> {
+                    return mCallsManager.getCallState();
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1569,7 +1588,7 @@ public class TelecomServiceImpl {
                     Binder.getCallingUid(), ApiStats.RESULT_PERMISSION);
             try {
                 Log.startSession("TSI.eC", Log.getPackageAbbreviation(callingPackage));
-                synchronized (mLock) {
+                return LockStats.callLocked(mLock, "TSI.eC", () -> {
                     if (!enforceAnswerCallPermission(callingPackage, Binder.getCallingUid())) {
                         throw new SecurityException("requires ANSWER_PHONE_CALLS permission");
                     }
@@ -1588,7 +1607,7 @@ public class TelecomServiceImpl {
                     } finally {
                         Binder.restoreCallingIdentity(token);
                     }
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1604,7 +1623,7 @@ public class TelecomServiceImpl {
                     Binder.getCallingUid(), ApiStats.RESULT_PERMISSION);
             try {
                 Log.startSession("TSI.aRC", Log.getPackageAbbreviation(packageName));
-                synchronized (mLock) {
+                LockStats.runLocked(mLock, "TSI.aRC", () -> {
                     if (!enforceAnswerCallPermission(packageName, Binder.getCallingUid())) return;
                     // Legacy behavior is to ignore whether the invocation is from a system app:
                     boolean isCallerPrivileged = false;
@@ -1622,7 +1641,7 @@ public class TelecomServiceImpl {
                     } finally {
                         Binder.restoreCallingIdentity(token);
                     }
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -1639,7 +1658,7 @@ public class TelecomServiceImpl {
                     Binder.getCallingUid(), ApiStats.RESULT_PERMISSION);
             try {
                 Log.startSession("TSI.aRCWVS", Log.getPackageAbbreviation(packageName));
-                synchronized (mLock) {
+                LockStats.runLocked(mLock, "TSI.aRCWVS", () -> {
                     if (!enforceAnswerCallPermission(packageName, Binder.getCallingUid())) return;
                     // Legacy behavior is to ignore whether the invocation is from a system app:
                     boolean isCallerPrivileged = false;
@@ -1656,7 +1675,7 @@ public class TelecomServiceImpl {
                     } finally {
                         Binder.restoreCallingIdentity(token);
                     }
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -2262,7 +2281,7 @@ public class TelecomServiceImpl {
                 final boolean hasCallPrivilegedPermission = mContext.checkCallingOrSelfPermission(
                         CALL_PRIVILEGED) == PackageManager.PERMISSION_GRANTED;
 
-                synchronized (mLock) {
+                LockStats.runLocked(mLock, "TSI.pC", () -> {
                     final UserHandle userHandle = Binder.getCallingUserHandle();
                     long token = Binder.clearCallingIdentity();
                     event.setResult(ApiStats.RESULT_NORMAL);
@@ -2281,7 +2300,7 @@ public class TelecomServiceImpl {
                     } finally {
                         Binder.restoreCallingIdentity(token);
                     }
-                }
+                });
             } finally {
                 logEvent(event);
                 Log.endSession();
@@ -2430,11 +2449,26 @@ public class TelecomServiceImpl {
                 mPhoneAccountRegistrar.dump(pw);
                 pw.decreaseIndent();
 
+                if (mCallerIdentityCache != null) {
+                    pw.println("CallerIdentityCache: ");
+                    pw.increaseIndent();
+                    mCallerIdentityCache.dump(pw);
+                    pw.decreaseIndent();
+                }
+
                 pw.println("Analytics:");
                 pw.increaseIndent();
                 Analytics.dump(pw);
                 pw.decreaseIndent();
 
+                LockStats lockStats = mLock.getLockStats();
+                if (lockStats != null) {
+                    pw.println("LockStats:");
+                    pw.increaseIndent();
+                    lockStats.dump(pw);
+                    pw.decreaseIndent();
+                }
+
                 pw.println("Flag Configurations: ");
                 pw.increaseIndent();
                 reflectAndPrintFlagConfigs(pw);
@@ -2456,7 +2490,7 @@ public class TelecomServiceImpl {
         public int handleShellCommand(@NonNull ParcelFileDescriptor in,
                 @NonNull ParcelFileDescriptor out, @NonNull ParcelFileDescriptor err,
                 @NonNull String[] args) {
-            return new TelecomShellCommand(this, mContext).exec(this,
+            return new TelecomShellCommand(this, mContext, mLock.getLockStats()).exec(this,
                     in.getFileDescriptor(), out.getFileDescriptor(), err.getFileDescriptor(), args);
         }
 
@@ -3075,6 +3109,9 @@ public class TelecomServiceImpl {
         mBlockedNumbersManager = mFeatureFlags.telecomMainlineBlockedNumbersManager()
                 ? mContext.getSystemService(BlockedNumbersManager.class)
                 : null;
+        mCallerIdentityCache = mFeatureFlags.cacheCallerIdentityChecks()
+                ? new CallerIdentityCache(mContext)
+                : null;
     }
 
     @VisibleForTesting
@@ -3320,6 +3357,10 @@ public class TelecomServiceImpl {
     private boolean callingUidMatchesPackageManagerRecords(String packageName) {
         int packageUid = -1;
         int callingUid = Binder.getCallingUid();
+        if (mCallerIdentityCache != null
+                && mCallerIdentityCache.isVerified(callingUid, packageName)) {
+            return true;
+        }
         PackageManager pm;
         long token = Binder.clearCallingIdentity();
         try {
@@ -3347,6 +3388,8 @@ public class TelecomServiceImpl {
             Log.i(this, "callingUidMatchesPackageManagerRecords: uid mismatch found for"
                     + "packageName=[%s]. packageManager reports packageUid=[%d] but "
                     + "binder reports callingUid=[%d]", packageName, packageUid, callingUid);
+        } else if (mCallerIdentityCache != null) {
+            mCallerIdentityCache.setVerified(callingUid, packageName);
         }
 
         return packageUid == callingUid;
@@ -3717,7 +3760,15 @@ public class TelecomServiceImpl {
     }
 
     private boolean isPrivilegedDialerCalling(String callingPackage) {
-        mAppOpsManager.checkPackage(Binder.getCallingUid(), callingPackage);
+        int callingUid = Binder.getCallingUid();
+        if (mCallerIdentityCache == null
+                || !mCallerIdentityCache.isVerified(callingUid, callingPackage)) {
+            // Throws if the package does not belong to the caller.
+            mAppOpsManager.checkPackage(callingUid, callingPackage);
+            if (mCallerIdentityCache != null) {
+                mCallerIdentityCache.setVerified(callingUid, callingPackage);
+            }
+        }
 
         // Note: Important to clear the calling identity since the code below calls into RoleManager
         // to check who holds the dialer role, and that requires MANAGE_ROLE_HOLDERS permission
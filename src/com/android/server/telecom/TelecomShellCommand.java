@@ -32,6 +32,7 @@ import android.telephony.TelephonyManager;
 import android.text.TextUtils;
 
 import com.android.internal.telecom.ITelecomService;
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.modules.utils.BasicShellCommandHandler;
 
 import java.util.Arrays;
@@ -93,15 +94,22 @@ public class TelecomShellCommand extends BasicShellCommandHandler {
      * Command used to emit a distinct "mark" in the logs.
      */
     private static final String COMMAND_LOG_MARK = "log-mark";
+    private static final String COMMAND_LOCK_STATS = "lock-stats";
 
     private final Context mContext;
     private final ITelecomService mTelecomService;
+    private final LockStats mLockStats;
     private TelephonyManager mTelephonyManager;
     private UserManager mUserManager;
 
     public TelecomShellCommand(ITelecomService binder, Context context) {
+        this(binder, context, null);
+    }
+
+    public TelecomShellCommand(ITelecomService binder, Context context, LockStats lockStats) {
         mTelecomService = binder;
         mContext = context;
+        mLockStats = lockStats;
     }
 
     @Override
@@ -202,6 +210,9 @@ public class TelecomShellCommand extends BasicShellCommandHandler {
                 case COMMAND_WAIT_FOR_AUDIO_ACTIVE_COMPLETION:
                     mTelecomService.waitForAudioToUpdate(true);
                     break;
+                case COMMAND_LOCK_STATS:
+                    runLockStats();
+                    break;
                 default:
                     return handleDefaultCommands(command);
             }
@@ -282,6 +293,8 @@ public class TelecomShellCommand extends BasicShellCommandHandler {
                 + "non-ui-InCallService in InCallController to determine if it is bound \n"
                 + "telecom set-metrics-test-enabled: Enable the metrics test mode.\n"
                 + "telecom set-metrics-test-disabled: Disable the metrics test mode.\n"
+                + "telecom lock-stats [enable|disable|reset]: Enables, disables or resets the"
+                + " Telecom lock wait and hold time instrumentation, then prints it.\n"
         );
     }
     private void runSetPhoneAccountEnabled(boolean enabled) throws RemoteException {
@@ -478,6 +491,24 @@ public class TelecomShellCommand extends BasicShellCommandHandler {
         mTelecomService.requestLogMark(message);
     }
 
+    private void runLockStats() {
+        mContext.enforceCallingOrSelfPermission(android.Manifest.permission.DUMP,
+                COMMAND_LOCK_STATS);
+        if (mLockStats == null) {
+            getErrPrintWriter().println("Error - the Telecom lock is not instrumented.");
+            return;
+        }
+        String action = peekNextArg();
+        if ("enable".equals(action)) {
+            mLockStats.setEnabled(true);
+        } else if ("disable".equals(action)) {
+            mLockStats.setEnabled(false);
+        } else if ("reset".equals(action)) {
+            mLockStats.reset();
+        }
+        mLockStats.dump(new IndentingPrintWriter(getOutPrintWriter(), "  "));
+    }
+
     private UserHandle getUserHandleFromArgs() throws RemoteException {
         if (TextUtils.isEmpty(peekNextArg())) {
             return null;
@@ -30,6 +30,7 @@ import android.os.BugreportManager;
 import android.os.DropBoxManager;
 import android.os.Looper;
 import android.os.UserHandle;
+import android.os.UserManager;
 import android.telecom.Log;
 import android.telecom.PhoneAccountHandle;
 import android.telephony.AnomalyReporter;
@@ -88,8 +89,20 @@ public class TelecomSystem {
     /**
      * Tagging interface for the object used for synchronizing multi-threaded operations in
      * the Telecom system.
+     * <p>
+     * Lock ordering: the Telecom lock guards call state and is always taken first. Locks owned by
+     * a single component, such as the {@link PhoneAccountRegistrar} file write lock and the
+     * caches' internal locks, may be taken while holding it but must never be held while taking
+     * it.
      */
     public interface SyncRoot {
+        /**
+         * @return The {@link LockStats} recording acquisitions of this lock, or {@code null} if
+         * this lock is not instrumented.
+         */
+        default LockStats getLockStats() {
+            return null;
+        }
     }
 
     private static final IntentFilter USER_SWITCHED_FILTER =
@@ -101,6 +114,9 @@ public class TelecomSystem {
     private static final IntentFilter BOOT_COMPLETE_FILTER =
             new IntentFilter(Intent.ACTION_BOOT_COMPLETED);
 
+    private static final IntentFilter USER_UNLOCKED_FILTER =
+            new IntentFilter(Intent.ACTION_USER_UNLOCKED);
+
     /** Intent filter for dialer secret codes. */
     private static final IntentFilter DIALER_SECRET_CODE_FILTER;
 
@@ -124,12 +140,19 @@ public class TelecomSystem {
         USER_SWITCHED_FILTER.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
         USER_STARTING_FILTER.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
         BOOT_COMPLETE_FILTER.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
+        USER_UNLOCKED_FILTER.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
         DIALER_SECRET_CODE_FILTER.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
     }
 
     private static TelecomSystem INSTANCE = null;
 
-    private final SyncRoot mLock = new SyncRoot() { };
+    private final LockStats mLockStats = new LockStats(false);
+    private final SyncRoot mLock = new SyncRoot() {
+        @Override
+        public LockStats getLockStats() {
+            return mLockStats;
+        }
+    };
     private final MissedCallNotifier mMissedCallNotifier;
     private final IncomingCallNotifier mIncomingCallNotifier;
     private final PhoneAccountRegistrar mPhoneAccountRegistrar;
@@ -193,6 +216,25 @@ public class TelecomSystem {
         }
     };
 
+    private final BroadcastReceiver mUserUnlockedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Log.startSession("TSUUR.oR");
+            try {
+                // Canned responses are always read with Telecom's own context, so only its
+                // user's responses are worth loading early. This user is unlocked ahead of
+                // BOOT_COMPLETED.
+                int userHandleId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE,
+                        UserHandle.USER_NULL);
+                if (userHandleId == mContext.getUserId()) {
+                    mRespondViaSmsManager.prewarmCannedTextMessages(mContext);
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+    };
+
     public static TelecomSystem getInstance() {
         return INSTANCE;
     }
@@ -236,6 +278,7 @@ public class TelecomSystem {
             Looper looper) {
         mContext = context.getApplicationContext();
         mFeatureFlags = featureFlags;
+        mLockStats.setEnabled(featureFlags.instrumentTelecomLock());
         LogUtils.initLogging(mContext);
         android.telecom.Log.setLock(mLock);
         AnomalyReporter.initialize(mContext);
@@ -245,12 +288,18 @@ public class TelecomSystem {
         DefaultDialerCache defaultDialerCache = new DefaultDialerCache(mContext,
                 defaultDialerAdapter, roleManagerAdapter, mLock);
 
+        AppLabelProxy appLabelProxy = roleManagerAdapter instanceof RoleManagerAdapterImpl
+                ? ((RoleManagerAdapterImpl) roleManagerAdapter).getAppLabelCache() : null;
+        if (appLabelProxy == null) {
+            appLabelProxy = (packageName, userHandle) -> AppLabelProxy.Util.getAppLabel(mContext,
+                    userHandle, packageName, mFeatureFlags);
+        }
+
         Log.startSession("TS.init");
         // Wrap this in a try block to ensure session cleanup occurs in the case of error.
         try {
             mPhoneAccountRegistrar = new PhoneAccountRegistrar(mContext, mLock, defaultDialerCache,
-                    (packageName, userHandle) -> AppLabelProxy.Util.getAppLabel(mContext,
-                            userHandle, packageName, mFeatureFlags), null, mFeatureFlags);
+                    appLabelProxy, null, mFeatureFlags);
 
             mContactsAsyncHelper = contactsAsyncHelperFactory.create(
                     new ContactsAsyncHelper.ContentResolverAdapter() {
@@ -259,7 +308,7 @@ public class TelecomSystem {
                                 throws FileNotFoundException {
                             return context.getContentResolver().openInputStream(uri);
                         }
-                    });
+                    }, mFeatureFlags);
             CallAudioCommunicationDeviceTracker communicationDeviceTracker = new
                     CallAudioCommunicationDeviceTracker(mContext);
             BluetoothDeviceManager bluetoothDeviceManager = new BluetoothDeviceManager(mContext,
@@ -389,9 +438,7 @@ public class TelecomSystem {
             TransactionManager transactionManager = TransactionManager.getInstance();
 
             CallStreamingNotification callStreamingNotification =
-                    new CallStreamingNotification(mContext,
-                            (packageName, userHandle) -> AppLabelProxy.Util.getAppLabel(mContext,
-                                    userHandle, packageName, mFeatureFlags), asyncTaskExecutor);
+                    new CallStreamingNotification(mContext, appLabelProxy, asyncTaskExecutor);
 
             mCallsManager = new CallsManager(
                     mContext,
@@ -472,6 +519,13 @@ public class TelecomSystem {
                     USER_STARTING_FILTER, null, null);
             mContext.registerReceiverAsUser(mBootCompletedReceiver, UserHandle.ALL,
                     BOOT_COMPLETE_FILTER, null, null);
+            mContext.registerReceiverAsUser(mUserUnlockedReceiver, UserHandle.ALL,
+                    USER_UNLOCKED_FILTER, null, null);
+            // The unlock broadcast has already been sent if Telecom restarted after it.
+            UserManager userManager = mContext.getSystemService(UserManager.class);
+            if (userManager != null && userManager.isUserUnlocked()) {
+                mRespondViaSmsManager.prewarmCannedTextMessages(mContext);
+            }
 
             // Set current user explicitly since USER_SWITCHED_FILTER intent can be missed at
             // startup
@@ -41,6 +41,14 @@ public final class Timeouts {
             return Timeouts.getCallScreeningTimeoutMillis(cr);
         }
 
+        public long getCallScreeningServiceIdleUnbindMillis(ContentResolver cr) {
+            return Timeouts.getCallScreeningServiceIdleUnbindMillis(cr);
+        }
+
+        public long getCallFanOutDeadlineMillis(ContentResolver cr) {
+            return Timeouts.getCallFanOutDeadlineMillis(cr);
+        }
+
         public long getCallBindBluetoothInCallServicesDelay(ContentResolver cr) {
             return Timeouts.getCallBindBluetoothInCallServicesDelay(cr);
         }
@@ -329,6 +337,23 @@ public final class Timeouts {
         return get(contentResolver, "call_screening_timeout", 5000L /* 5 seconds */);
     }
 
+    /**
+     * Returns the amount of time to wait for a request sent to several calls at once, such as
+     * the disconnects made to place an emergency call, to complete for all of them.
+     */
+    public static long getCallFanOutDeadlineMillis(ContentResolver contentResolver) {
+        return get(contentResolver, "call_fan_out_deadline_millis", 5000L /* 5 seconds */);
+    }
+
+    /**
+     * Returns the amount of time a pooled call screening service binding is kept after the last
+     * call using it has finished screening.
+     */
+    public static long getCallScreeningServiceIdleUnbindMillis(ContentResolver contentResolver) {
+        return get(contentResolver, "call_screening_service_idle_unbind_millis",
+                10000L /* 10 seconds */);
+    }
+
     /**
      * Returns the amount of time after an emergency call that incoming calls should be treated
      * as potential emergency callbacks.
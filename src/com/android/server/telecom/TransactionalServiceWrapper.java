@@ -40,6 +40,7 @@ import androidx.annotation.VisibleForTesting;
 import com.android.internal.telecom.ICallControl;
 import com.android.internal.telecom.ICallEventCallback;
 import com.android.server.telecom.callsequencing.TransactionalCallSequencingAdapter;
+import com.android.server.telecom.callsequencing.voip.CallControlBatchTransaction;
 import com.android.server.telecom.callsequencing.voip.CallEventCallbackAckTransaction;
 import com.android.server.telecom.callsequencing.voip.EndpointChangeTransaction;
 import com.android.server.telecom.callsequencing.voip.SetMuteStateTransaction;
@@ -96,6 +97,10 @@ public class TransactionalServiceWrapper implements
     private final TransactionalCallSequencingAdapter mCallSequencingAdapter;
     private final FeatureFlags mFeatureFlags;
     private final AnomalyReporterAdapter mAnomalyReporter;
+    private final Object mControlBatchLock = new Object();
+    // Guarded by mControlBatchLock. The batch further call control operations can join, if it
+    // hasn't started yet.
+    private CallControlBatchTransaction mControlBatch;
     public static final UUID CALL_IS_NO_LONGER_BEING_TRACKED_ERROR_UUID =
             UUID.fromString("8187cd59-97a7-4e9f-a772-638dda4b69bb");
     public static final String CALL_IS_NO_LONGER_BEING_TRACKED_ERROR_MSG =
@@ -241,7 +246,7 @@ public class TransactionalServiceWrapper implements
             long token = Binder.clearCallingIdentity();
             try {
                 Log.startSession("TSW.sMS");
-                addTransactionsToManager(SET_MUTE_STATE,
+                addControlTransaction(SET_MUTE_STATE,
                         new SetMuteStateTransaction(mCallsManager, isMuted), callback);
             } finally {
                 Binder.restoreCallingIdentity(token);
@@ -278,6 +283,11 @@ public class TransactionalServiceWrapper implements
             Log.d(TAG, "createTransactions: callId=" + callId);
             Call call = mTrackedCalls.get(callId);
             if (call != null) {
+                if (!REQUEST_VIDEO_STATE.equals(action)) {
+                    // State changes are queued by the sequencing adapter; operations requested
+                    // after one must run after it.
+                    closeControlBatch();
+                }
                 switch (action) {
                     case SET_ACTIVE:
                         mCallSequencingAdapter.setActive(call,
@@ -302,7 +312,7 @@ public class TransactionalServiceWrapper implements
                                 TransactionalServiceWrapper.this, call, mLock),  callback);
                         break;
                     case REQUEST_VIDEO_STATE:
-                        addTransactionsToManager(action,
+                        addControlTransaction(action,
                                 new RequestVideoStateTransaction(mCallsManager, call,
                                         (int) objects[0]), callback);
                         break;
@@ -330,7 +340,7 @@ public class TransactionalServiceWrapper implements
             long token = Binder.clearCallingIdentity();
             try {
                 Log.startSession("TSW.rCEC");
-                addTransactionsToManager(CALL_ENDPOINT_CHANGE,
+                addControlTransaction(CALL_ENDPOINT_CHANGE,
                         new EndpointChangeTransaction(endpoint, mCallsManager), callback);
             } finally {
                 Binder.restoreCallingIdentity(token);
@@ -364,10 +374,57 @@ public class TransactionalServiceWrapper implements
     private void addTransactionsToManager(String action, CallTransaction transaction,
             ResultReceiver callback) {
         Log.d(TAG, "addTransactionsToManager");
+        closeControlBatch();
         CompletableFuture<Boolean> transactionResult = mTransactionManager
                 .addTransaction(transaction, getCompleteReceiver(action, callback));
     }
 
+    /**
+     * Queues a call control operation which doesn't change the call state. If the previous such
+     * operation is still waiting for its turn in the {@link TransactionManager}, this one joins
+     * it in the same transaction rather than waiting for a turn of its own.
+     */
+    private void addControlTransaction(String action, CallTransaction transaction,
+            ResultReceiver callback) {
+        if (!mFeatureFlags.batchCallControlOperations()) {
+            addTransactionsToManager(action, transaction, callback);
+            return;
+        }
+        OutcomeReceiver<CallTransactionResult, CallException> receiver =
+                getCompleteReceiver(action, callback);
+        synchronized (mControlBatchLock) {
+            if (mControlBatch != null && mControlBatch.tryAppend(transaction, receiver)) {
+                Log.d(TAG, "addControlTransaction: [%s] joined a batch", action);
+                return;
+            }
+            CallControlBatchTransaction batch = new CallControlBatchTransaction(mLock);
+            batch.tryAppend(transaction, receiver);
+            mControlBatch = batch;
+            mTransactionManager.addTransaction(batch, new OutcomeReceiver<>() {
+                @Override
+                public void onResult(CallTransactionResult result) {
+                    Log.d(TAG, "addControlTransaction: batch of %d completed", batch.size());
+                }
+
+                @Override
+                public void onError(CallException exception) {
+                    Log.i(TAG, "addControlTransaction: batch of %d failed: %s", batch.size(),
+                            exception);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops further call control operations from joining the current batch, so that they run
+     * after any transaction queued from now on.
+     */
+    private void closeControlBatch() {
+        synchronized (mControlBatchLock) {
+            mControlBatch = null;
+        }
+    }
+
     private OutcomeReceiver<CallTransactionResult, CallException> getCompleteReceiver(
             String action, ResultReceiver callback) {
         return new OutcomeReceiver<>() {
@@ -404,6 +461,7 @@ public class TransactionalServiceWrapper implements
         CompletableFuture<Boolean> onSetActiveFuture;
         try {
             Log.startSession("TSW.oSA");
+            closeControlBatch();
             Log.d(TAG, String.format(Locale.US, "onSetActive: callId=[%s]", call.getId()));
             onSetActiveFuture = mCallSequencingAdapter.onSetActive(call,
                     callTransaction, result ->
@@ -420,6 +478,7 @@ public class TransactionalServiceWrapper implements
         CompletableFuture<Boolean> onAnswerFuture;
         try {
             Log.startSession("TSW.oA");
+            closeControlBatch();
             Log.d(TAG, String.format(Locale.US, "onAnswer: callId=[%s]", call.getId()));
             onAnswerFuture = mCallSequencingAdapter.onSetAnswered(call, videoState,
                     new CallEventCallbackAckTransaction(mICallEventCallback,
@@ -439,6 +498,7 @@ public class TransactionalServiceWrapper implements
         CompletableFuture<Boolean> onSetInactiveFuture;
         try {
             Log.startSession("TSW.oSI");
+            closeControlBatch();
             Log.i(TAG, String.format(Locale.US, "onSetInactive: callId=[%s]", call.getId()));
             onSetInactiveFuture = mCallSequencingAdapter.onSetInactive(call,
                     callTransaction, new OutcomeReceiver<>() {
@@ -468,6 +528,7 @@ public class TransactionalServiceWrapper implements
         CompletableFuture<Boolean> onDisconnectFuture;
         try {
             Log.startSession("TSW.oD");
+            closeControlBatch();
             Log.d(TAG, String.format(Locale.US, "onDisconnect: callId=[%s]", call.getId()));
             onDisconnectFuture = mCallSequencingAdapter.onSetDisconnected(call, cause,
                     callTransaction,
@@ -483,6 +544,7 @@ public class TransactionalServiceWrapper implements
     public void onCallStreamingStarted(Call call) {
         try {
             Log.startSession("TSW.oCSS");
+            closeControlBatch();
             Log.d(TAG, String.format(Locale.US, "onCallStreamingStarted: callId=[%s]",
                     call.getId()));
 
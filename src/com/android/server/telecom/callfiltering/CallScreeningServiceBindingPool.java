@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.callfiltering;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.ServiceConnection;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.RemoteException;
+import android.os.UserHandle;
+import android.telecom.CallScreeningService;
+import android.telecom.Log;
+import android.telecom.Logging.Runnable;
+import android.util.ArrayMap;
+import android.util.Pair;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.telecom.ICallScreeningAdapter;
+import com.android.internal.telecom.ICallScreeningService;
+import com.android.internal.util.IndentingPrintWriter;
+import com.android.server.telecom.CallScreeningServiceHelper;
+import com.android.server.telecom.ClockProxy;
+import com.android.server.telecom.TelecomSystem;
+import com.android.server.telecom.Timeouts;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps {@link CallScreeningService} bindings alive across incoming calls.
+ * <p>
+ * Without pooling, every incoming call binds to the carrier, default dialer and user chosen
+ * screening services and unbinds once filtering completes, which on busy devices means the
+ * screening services are constantly cold started within the screening timeout. Bindings made
+ * through this pool are kept for an idle window after the last request completes and are shared
+ * by all in-flight requests for the same (user, package).
+ * <p>
+ * A {@link CallScreeningService} only keeps track of the most recent adapter it was given, so
+ * all requests on a binding share a single adapter which routes responses back to the request
+ * for the matching call ID.
+ */
+public class CallScreeningServiceBindingPool {
+    /**
+     * A request to screen a single call using a pooled binding.
+     */
+    public interface ScreeningRequest {
+        /**
+         * @return The ID of the call being screened.
+         */
+        String getCallId();
+
+        /**
+         * @return The adapter responses for this call are forwarded to.
+         */
+        ICallScreeningAdapter getAdapter();
+
+        /**
+         * Called once the screening service is connected; the request should ask the service
+         * to screen its call, passing {@code pooledAdapter} as the adapter.
+         */
+        void onServiceConnected(ICallScreeningService service,
+                ICallScreeningAdapter pooledAdapter);
+
+        /**
+         * Called if the binding is lost before the request was released.
+         */
+        void onServiceLost();
+    }
+
+    private class PooledBinding implements ServiceConnection {
+        private final UserHandle mUserHandle;
+        private final String mPackageName;
+        /**
+         * Pending requests in the order they were made. The same call can have more than one
+         * request on a binding, e.g. when the carrier and default dialer screening apps are the
+         * same package, so requests are tracked individually rather than by call ID.
+         */
+        private final List<ScreeningRequest> mRequests = new ArrayList<>();
+        private final long mBindStartMillis;
+        private ICallScreeningService mService;
+        private Runnable mIdleUnbindRunnable;
+        private boolean mIsInvalidated = false;
+
+        private final ICallScreeningAdapter mPooledAdapter = new ICallScreeningAdapter.Stub() {
+            @Override
+            public void onScreeningResponse(String callId, ComponentName componentName,
+                    CallScreeningService.ParcelableCallResponse callResponse) {
+                ScreeningRequest request;
+                synchronized (mLock) {
+                    request = findRequest(callId);
+                }
+                if (request == null) {
+                    Log.w(CallScreeningServiceBindingPool.this,
+                            "onScreeningResponse: unknown call id %s", callId);
+                    return;
+                }
+                try {
+                    request.getAdapter().onScreeningResponse(callId, componentName,
+                            callResponse);
+                } catch (RemoteException e) {
+                    // The request adapters are local, this can't happen.
+                }
+            }
+        };
+
+        /**
+         * A service responds once per call it was asked to screen, so a response goes to the
+         * oldest pending request for the call.
+         */
+        private ScreeningRequest findRequest(String callId) {
+            for (ScreeningRequest request : mRequests) {
+                if (request.getCallId().equals(callId)) {
+                    return request;
+                }
+            }
+            return null;
+        }
+
+        PooledBinding(UserHandle userHandle, String packageName) {
+            mUserHandle = userHandle;
+            mPackageName = packageName;
+            mBindStartMillis = mClockProxy.elapsedRealtime();
+        }
+
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            Log.startSession("CSSBP.oSC");
+            try {
+                synchronized (mLock) {
+                    mService = ICallScreeningService.Stub.asInterface(service);
+                    mTotalBindLatencyMillis += mClockProxy.elapsedRealtime() - mBindStartMillis;
+                    mConnectedBindings++;
+                    Log.i(CallScreeningServiceBindingPool.this, "Connected to %s for %d requests",
+                            mPackageName, mRequests.size());
+                    for (ScreeningRequest request : new ArrayList<>(mRequests)) {
+                        request.onServiceConnected(mService, mPooledAdapter);
+                    }
+                    if (mRequests.isEmpty()) {
+                        scheduleIdleUnbind(this);
+                    }
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            onBindingLost("Service disconnected");
+        }
+
+        @Override
+        public void onBindingDied(ComponentName name) {
+            onBindingLost("Binding died");
+        }
+
+        @Override
+        public void onNullBinding(ComponentName name) {
+            onBindingLost("Null binding");
+        }
+
+        private void onBindingLost(String reason) {
+            Log.startSession("CSSBP.oBL");
+            try {
+                synchronized (mLock) {
+                    Log.i(CallScreeningServiceBindingPool.this, "%s: %s", reason, mPackageName);
+                    List<ScreeningRequest> requests = new ArrayList<>(mRequests);
+                    mRequests.clear();
+                    unbind(this);
+                    for (ScreeningRequest request : requests) {
+                        request.onServiceLost();
+                    }
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "[" + mPackageName + ", " + mUserHandle + ", connected=" + (mService != null)
+                    + ", requests=" + mRequests.size() + "]";
+        }
+    }
+
+    private final Context mContext;
+    private final TelecomSystem.SyncRoot mLock;
+    private final Timeouts.Adapter mTimeoutsAdapter;
+    private final ClockProxy mClockProxy;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<Pair<UserHandle, String>, PooledBinding> mBindings = new ArrayMap<>();
+
+    private int mBindCount = 0;
+    private int mReuseCount = 0;
+    private int mConnectedBindings = 0;
+    private long mTotalBindLatencyMillis = 0;
+
+    private final BroadcastReceiver mPackageChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Log.startSession("CSSBP.pCR");
+            try {
+                if (intent.getData() == null) {
+                    return;
+                }
+                synchronized (mLock) {
+                    invalidatePackage(intent.getData().getSchemeSpecificPart());
+                }
+            } finally {
+                Log.endSession();
+            }
+        }
+    };
+
+    public CallScreeningServiceBindingPool(Context context, TelecomSystem.SyncRoot lock,
+            Timeouts.Adapter timeoutsAdapter, ClockProxy clockProxy) {
+        mContext = context;
+        mLock = lock;
+        mTimeoutsAdapter = timeoutsAdapter;
+        mClockProxy = clockProxy;
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        mContext.registerReceiverAsUser(mPackageChangedReceiver, UserHandle.ALL, packageFilter,
+                null, null);
+    }
+
+    /**
+     * Starts screening a call with the screening service of the given package, reusing an
+     * existing binding when one is available.
+     *
+     * @return {@code true} if the request is in progress, {@code false} if the service could not
+     * be bound.
+     */
+    public boolean acquire(UserHandle userHandle, String packageName, ScreeningRequest request) {
+        synchronized (mLock) {
+            Pair<UserHandle, String> key = new Pair<>(userHandle, packageName);
+            PooledBinding binding = mBindings.get(key);
+            if (binding != null && !binding.mIsInvalidated) {
+                mReuseCount++;
+                cancelIdleUnbind(binding);
+                binding.mRequests.add(request);
+                Log.i(this, "acquire: reusing binding %s", binding);
+                if (binding.mService != null) {
+                    request.onServiceConnected(binding.mService, binding.mPooledAdapter);
+                }
+                return true;
+            }
+
+            binding = new PooledBinding(userHandle, packageName);
+            binding.mRequests.add(request);
+            if (!CallScreeningServiceHelper.bindCallScreeningService(mContext, userHandle,
+                    packageName, binding)) {
+                Log.i(this, "acquire: binding to %s failed", packageName);
+                return false;
+            }
+            mBindCount++;
+            mBindings.put(key, binding);
+            return true;
+        }
+    }
+
+    /**
+     * Indicates a request is complete. Once a binding has no more requests it is kept for the
+     * idle window before being unbound. Releasing a request which isn't pending is a no-op.
+     */
+    public void release(UserHandle userHandle, String packageName, ScreeningRequest request) {
+        synchronized (mLock) {
+            PooledBinding binding = mBindings.get(new Pair<>(userHandle, packageName));
+            if (binding == null || !binding.mRequests.remove(request)) {
+                return;
+            }
+            if (binding.mRequests.isEmpty()) {
+                if (binding.mIsInvalidated) {
+                    unbind(binding);
+                } else {
+                    scheduleIdleUnbind(binding);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops idle bindings for packages which are no longer used for call screening by the given
+     * user, e.g. after the call screening or dialer role moved to another app.
+     *
+     * @param userHandle The user.
+     * @param packageNames The packages currently used for call screening.
+     */
+    public void retainPackages(UserHandle userHandle, Collection<String> packageNames) {
+        synchronized (mLock) {
+            for (PooledBinding binding : new ArrayList<>(mBindings.values())) {
+                if (binding.mUserHandle.equals(userHandle)
+                        && !packageNames.contains(binding.mPackageName)) {
+                    invalidate(binding);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The users which have a binding in the pool.
+     */
+    public List<UserHandle> getBoundUsers() {
+        List<UserHandle> users = new ArrayList<>();
+        synchronized (mLock) {
+            for (PooledBinding binding : mBindings.values()) {
+                if (!users.contains(binding.mUserHandle)) {
+                    users.add(binding.mUserHandle);
+                }
+            }
+        }
+        return users;
+    }
+
+    private void invalidatePackage(String packageName) {
+        for (PooledBinding binding : new ArrayList<>(mBindings.values())) {
+            if (binding.mPackageName.equals(packageName)) {
+                invalidate(binding);
+            }
+        }
+    }
+
+    private void invalidate(PooledBinding binding) {
+        Log.i(this, "invalidate: %s", binding);
+        if (binding.mRequests.isEmpty()) {
+            unbind(binding);
+        } else {
+            // Let in-flight requests finish; new requests will get a fresh binding.
+            binding.mIsInvalidated = true;
+            mBindings.remove(new Pair<>(binding.mUserHandle, binding.mPackageName));
+        }
+    }
+
+    private void scheduleIdleUnbind(PooledBinding binding) {
+        cancelIdleUnbind(binding);
+        long idleMillis = mTimeoutsAdapter.getCallScreeningServiceIdleUnbindMillis(
+                mContext.getContentResolver());
+        if (idleMillis <= 0) {
+            unbind(binding);
+            return;
+        }
+        binding.mIdleUnbindRunnable = new Runnable("CSSBP.iU", mLock) {
+            @Override
+            public void loggedRun() {
+                binding.mIdleUnbindRunnable = null;
+                if (binding.mRequests.isEmpty()) {
+                    unbind(binding);
+                }
+            }
+        }.prepare();
+        mHandler.postDelayed(binding.mIdleUnbindRunnable, idleMillis);
+    }
+
+    private void cancelIdleUnbind(PooledBinding binding) {
+        if (binding.mIdleUnbindRunnable != null) {
+            mHandler.removeCallbacks(binding.mIdleUnbindRunnable);
+            binding.mIdleUnbindRunnable.cancel();
+            binding.mIdleUnbindRunnable = null;
+        }
+    }
+
+    private void unbind(PooledBinding binding) {
+        cancelIdleUnbind(binding);
+        Pair<UserHandle, String> key = new Pair<>(binding.mUserHandle, binding.mPackageName);
+        if (mBindings.get(key) == binding) {
+            mBindings.remove(key);
+        }
+        try {
+            mContext.unbindService(binding);
+        } catch (IllegalArgumentException e) {
+            Log.i(this, "Exception when unbind service %s : %s", binding, e.getMessage());
+        }
+    }
+
+    @VisibleForTesting
+    public int getBindCount() {
+        return mBindCount;
+    }
+
+    @VisibleForTesting
+    public int getReuseCount() {
+        return mReuseCount;
+    }
+
+    public void dump(IndentingPrintWriter pw) {
+        synchronized (mLock) {
+            int requests = mBindCount + mReuseCount;
+            pw.println("binds=" + mBindCount + ", reuses=" + mReuseCount
+                    + ", reuseRate=" + (requests == 0 ? 0 : (100 * mReuseCount / requests)) + "%"
+                    + ", avgBindLatencyMs=" + (mConnectedBindings == 0 ? 0
+                            : mTotalBindLatencyMillis / mConnectedBindings));
+            pw.increaseIndent();
+            for (PooledBinding binding : mBindings.values()) {
+                pw.println(binding);
+            }
+            pw.decreaseIndent();
+        }
+    }
+}
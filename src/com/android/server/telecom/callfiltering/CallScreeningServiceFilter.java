@@ -57,6 +57,8 @@ public class CallScreeningServiceFilter extends CallFilter {
     private final CallsManager mCallsManager;
     private CharSequence mAppName;
     private final ParcelableCallUtils.Converter mParcelableCallUtilsConverter;
+    private final CallScreeningServiceBindingPool mBindingPool;
+    private PooledScreeningRequest mPooledRequest;
 
     private class CallScreeningAdapter extends ICallScreeningAdapter.Stub {
         private CompletableFuture<CallFilteringResult> mResultFuture;
@@ -254,6 +256,51 @@ public class CallScreeningServiceFilter extends CallFilter {
         }
     }
 
+    /**
+     * Screens calls using a binding owned by a {@link CallScreeningServiceBindingPool}.
+     */
+    private class PooledScreeningRequest implements
+            CallScreeningServiceBindingPool.ScreeningRequest {
+        private final CompletableFuture<CallFilteringResult> mResultFuture;
+        private final CallScreeningAdapter mAdapter;
+
+        PooledScreeningRequest(CompletableFuture<CallFilteringResult> resultFuture) {
+            mResultFuture = resultFuture;
+            mAdapter = new CallScreeningAdapter(resultFuture);
+        }
+
+        @Override
+        public String getCallId() {
+            return mCall.getId();
+        }
+
+        @Override
+        public ICallScreeningAdapter getAdapter() {
+            return mAdapter;
+        }
+
+        @Override
+        public void onServiceConnected(ICallScreeningService service,
+                ICallScreeningAdapter pooledAdapter) {
+            try {
+                service.screenCall(pooledAdapter, mParcelableCallUtilsConverter
+                        .toParcelableCallForScreening(mCall, isSystemDialer()));
+            } catch (RemoteException e) {
+                Log.e(this, e, "Failed to set the call screening adapter");
+                mResultFuture.complete(mPriorStageResult);
+                unbindCallScreeningService();
+            }
+            Log.addEvent(mCall, LogUtils.Events.SCREENING_BOUND, mPackageName);
+        }
+
+        @Override
+        public void onServiceLost() {
+            Log.i(this, "Pooled binding lost.");
+            mResultFuture.complete(mPriorStageResult);
+            mPooledRequest = null;
+        }
+    }
+
     public CallScreeningServiceFilter(
             Call call,
             String packageName,
@@ -262,6 +309,23 @@ public class CallScreeningServiceFilter extends CallFilter {
             CallsManager callsManager,
             AppLabelProxy appLabelProxy,
             ParcelableCallUtils.Converter parcelableCallUtilsConverter) {
+        this(call, packageName, packageType, context, callsManager, appLabelProxy,
+                parcelableCallUtilsConverter, null);
+    }
+
+    /**
+     * @param bindingPool When non-null, the screening service binding is obtained from (and
+     *                    returned to) the pool rather than being bound for this call only.
+     */
+    public CallScreeningServiceFilter(
+            Call call,
+            String packageName,
+            int packageType,
+            Context context,
+            CallsManager callsManager,
+            AppLabelProxy appLabelProxy,
+            ParcelableCallUtils.Converter parcelableCallUtilsConverter,
+            CallScreeningServiceBindingPool bindingPool) {
         super();
         mCall = call;
         mPackageName = packageName;
@@ -272,6 +336,7 @@ public class CallScreeningServiceFilter extends CallFilter {
         mAppName = appLabelProxy.getAppLabel(mPackageName,
                 mCall.getAssociatedUser());
         mParcelableCallUtilsConverter = parcelableCallUtilsConverter;
+        mBindingPool = bindingPool;
     }
 
     @Override
@@ -317,6 +382,17 @@ public class CallScreeningServiceFilter extends CallFilter {
 
     private void bindCallScreeningService(
             CompletableFuture<CallFilteringResult> resultFuture) {
+        if (mBindingPool != null) {
+            PooledScreeningRequest request = new PooledScreeningRequest(resultFuture);
+            // Set before acquiring; an already connected binding screens the call immediately.
+            mPooledRequest = request;
+            if (!mBindingPool.acquire(mCall.getAssociatedUser(), mPackageName, request)) {
+                Log.i(this, "Call screening service binding failed.");
+                mPooledRequest = null;
+                resultFuture.complete(mPriorStageResult);
+            }
+            return;
+        }
         CallScreeningServiceConnection connection = new CallScreeningServiceConnection(
                 resultFuture);
         if (!CallScreeningServiceHelper.bindCallScreeningService(mContext,
@@ -329,6 +405,10 @@ public class CallScreeningServiceFilter extends CallFilter {
     }
 
     public void unbindCallScreeningService() {
+        if (mPooledRequest != null) {
+            mBindingPool.release(mCall.getAssociatedUser(), mPackageName, mPooledRequest);
+            mPooledRequest = null;
+        }
         if (mConnection != null) {
             try {
                 mContext.unbindService(mConnection);
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.callsequencing;
+
+import android.telecom.Log;
+import android.util.ArrayMap;
+
+import com.android.internal.util.IndentingPrintWriter;
+import com.android.server.telecom.Call;
+import com.android.server.telecom.ClockProxy;
+import com.android.server.telecom.Timeouts;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sends the same request, such as disconnect, to several calls at once rather than one after
+ * another, so that making room for a call takes as long as the slowest
+ * {@link android.telecom.ConnectionService} instead of the sum of all of them.
+ * <p>
+ * The requests share a single deadline, see {@link Timeouts#getCallFanOutDeadlineMillis}. Each
+ * call's outcome is logged, and the time each stage took is kept for dumpsys.
+ */
+public class CallFanOut {
+    public static final int OUTCOME_SUCCEEDED = 0;
+    public static final int OUTCOME_FAILED = 1;
+    public static final int OUTCOME_TIMED_OUT = 2;
+
+    /** Totals for one stage, such as the disconnects made for an emergency call. */
+    private static final class StageStats {
+        int count;
+        int calls;
+        int failed;
+        int timedOut;
+        long totalMillis;
+        long maxMillis;
+    }
+
+    private final ClockProxy mClockProxy;
+    // Guarded by this.
+    private final ArrayMap<String, StageStats> mStages = new ArrayMap<>();
+
+    public CallFanOut(ClockProxy clockProxy) {
+        mClockProxy = clockProxy;
+    }
+
+    /**
+     * Sends {@code request} to every call in {@code calls} without waiting for earlier requests.
+     *
+     * @param stage Name of the stage, used for logging and stats.
+     * @param calls The calls to send the request to.
+     * @param request Sends the request to a call, returning its result.
+     * @param deadlineMillis How long to wait for all of the requests.
+     * @param isTimeoutFailure Whether a request which hasn't completed by the deadline fails the
+     * stage. When {@code false}, such a request is only logged and counted, so that a call which
+     * never finishes disconnecting doesn't fail an emergency call.
+     * @return A future completed, once every request has completed or the deadline has passed,
+     * with {@code false} if any request failed, or timed out when {@code isTimeoutFailure} is
+     * set, and {@code true} otherwise.
+     */
+    public CompletableFuture<Boolean> requestAll(String stage, List<Call> calls,
+            Function<Call, CompletableFuture<Boolean>> request, long deadlineMillis,
+            boolean isTimeoutFailure) {
+        if (calls.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        long startMillis = mClockProxy.elapsedRealtime();
+        CompletableFuture<Boolean>[] results = new CompletableFuture[calls.size()];
+        for (int i = 0; i < calls.size(); i++) {
+            CompletableFuture<Boolean> result;
+            try {
+                result = request.apply(calls.get(i));
+            } catch (RuntimeException e) {
+                Log.w(this, "requestAll: %s: request for %s threw %s", stage, calls.get(i), e);
+                result = null;
+            }
+            results[i] = result == null
+                    ? CompletableFuture.completedFuture(false)
+                    : result.exceptionally(e -> false);
+        }
+        CompletableFuture<Boolean> allDone = new CompletableFuture<>();
+        CompletableFuture.allOf(results).whenComplete((v, e) -> allDone.complete(true));
+        return allDone.completeOnTimeout(false, deadlineMillis, TimeUnit.MILLISECONDS)
+                .thenApply(v -> {
+                    int[] outcomes = new int[results.length];
+                    boolean isSuccess = true;
+                    for (int i = 0; i < results.length; i++) {
+                        outcomes[i] = getOutcome(results[i]);
+                        if (outcomes[i] == OUTCOME_SUCCEEDED) {
+                            continue;
+                        }
+                        Log.i(this, "requestAll: %s: %s for %s", stage,
+                                outcomes[i] == OUTCOME_FAILED ? "failed" : "timed out",
+                                calls.get(i));
+                        if (outcomes[i] == OUTCOME_FAILED || isTimeoutFailure) {
+                            isSuccess = false;
+                        }
+                    }
+                    record(stage, outcomes, mClockProxy.elapsedRealtime() - startMillis);
+                    return isSuccess;
+                });
+    }
+
+    private static int getOutcome(CompletableFuture<Boolean> result) {
+        if (!result.isDone()) {
+            return OUTCOME_TIMED_OUT;
+        }
+        return Boolean.TRUE.equals(result.getNow(false)) ? OUTCOME_SUCCEEDED : OUTCOME_FAILED;
+    }
+
+    private synchronized void record(String stage, int[] outcomes, long durationMillis) {
+        StageStats stats = mStages.get(stage);
+        if (stats == null) {
+            stats = new StageStats();
+            mStages.put(stage, stats);
+        }
+        stats.count++;
+        stats.calls += outcomes.length;
+        for (int outcome : outcomes) {
+            if (outcome == OUTCOME_FAILED) {
+                stats.failed++;
+            } else if (outcome == OUTCOME_TIMED_OUT) {
+                stats.timedOut++;
+            }
+        }
+        stats.totalMillis += durationMillis;
+        stats.maxMillis = Math.max(stats.maxMillis, durationMillis);
+    }
+
+    public synchronized void dump(IndentingPrintWriter pw) {
+        for (int i = 0; i < mStages.size(); i++) {
+            StageStats stats = mStages.valueAt(i);
+            pw.println(mStages.keyAt(i) + ": count=" + stats.count + ", calls=" + stats.calls
+                    + ", failed=" + stats.failed + ", timedOut=" + stats.timedOut
+                    + ", avgMs=" + stats.totalMillis / stats.count + ", maxMs=" + stats.maxMillis);
+        }
+    }
+}
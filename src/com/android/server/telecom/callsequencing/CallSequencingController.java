@@ -47,6 +47,7 @@ import android.telephony.CarrierConfigManager;
 import android.util.Pair;
 
 import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.server.telecom.AnomalyReporterAdapter;
 import com.android.server.telecom.Call;
 import com.android.server.telecom.CallState;
@@ -64,6 +65,7 @@ import com.android.server.telecom.metrics.ErrorStats;
 import com.android.server.telecom.metrics.TelecomMetricsController;
 import com.android.server.telecom.stats.CallFailureCause;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -88,6 +90,7 @@ public class CallSequencingController {
     private final Context mContext;
     private final MmiUtils mMmiUtils;
     private final FeatureFlags mFeatureFlags;
+    private final CallFanOut mCallFanOut;
     private static String TAG = CallSequencingController.class.getSimpleName();
     public static final UUID SEQUENCING_CANNOT_HOLD_ACTIVE_CALL_UUID =
             UUID.fromString("ea094d77-6ea9-4e40-891e-14bff5d485d7");
@@ -109,6 +112,7 @@ public class CallSequencingController {
         mMmiUtils = mmiUtils;
         mFeatureFlags = featureFlags;
         mContext = context;
+        mCallFanOut = new CallFanOut(clockProxy);
     }
 
     /**
@@ -490,6 +494,13 @@ public class CallSequencingController {
         // bulk transaction, we will always opt to perform sequencing on this future. Note that this
         // future will always be completed with true if no disconnects occurred.
         CompletableFuture<Boolean> transactionFuture = disconnectCallsForEmergencyPair.second;
+        // With the fan out, the ringing call is rejected alongside the disconnects above rather
+        // than after them. Both are waited for, but as when the reject was chained after the
+        // disconnects, its result is the one used when there is a ringing call.
+        CompletableFuture<Boolean> disconnectsFuture = transactionFuture;
+        if (mFeatureFlags.parallelCallSequencingFanOut()) {
+            transactionFuture = CompletableFuture.completedFuture(true);
+        }
 
         Call ringingCall;
         if (mCallsManager.hasRingingOrSimulatedRingingCall() && !disconnectedCalls
@@ -533,6 +544,12 @@ public class CallSequencingController {
         } else {
             ringingCall = null;
         }
+        if (mFeatureFlags.parallelCallSequencingFanOut()) {
+            boolean hasRejectedRingingCall = ringingCall != null;
+            transactionFuture = disconnectsFuture.thenCombine(transactionFuture,
+                    (disconnectsResult, ringingResult) -> hasRejectedRingingCall
+                            ? ringingResult : disconnectsResult);
+        }
 
         // There is already room!
         if (!mCallsManager.hasMaximumLiveCalls(emergencyCall)) {
@@ -943,6 +960,7 @@ public class CallSequencingController {
     private Pair<Set<Call>, CompletableFuture<Boolean>> disconnectCallsForEmergencyCall(
             Call emergencyCall) {
         Set<Call> callsDisconnected = new HashSet<>();
+        List<Call> callsToDisconnect = new ArrayList<>();
         Call previousCall = null;
         Call ringingCall = mCallsManager.getRingingOrSimulatedRingingCall();
         CompletableFuture<Boolean> disconnectFuture = CompletableFuture.completedFuture(true);
@@ -954,6 +972,13 @@ public class CallSequencingController {
             call.getAnalytics().setCallIsInterrupted(true);
             call.setOverrideDisconnectCauseCode(new DisconnectCause(
                     DisconnectCause.LOCAL, DisconnectCause.REASON_EMERGENCY_CALL_PLACED));
+            callsDisconnected.add(call);
+            if (mFeatureFlags.parallelCallSequencingFanOut()) {
+                // None of these calls can be used for the emergency call, so there is no order
+                // they need to be disconnected in.
+                callsToDisconnect.add(call);
+                continue;
+            }
 
             Call finalPreviousCall = previousCall;
             disconnectFuture = disconnectFuture.thenComposeAsync((result) -> {
@@ -967,7 +992,14 @@ public class CallSequencingController {
             }, new LoggedHandlerExecutor(mHandler, "CSC.dAVC",
                     mCallsManager.getLock()));
             previousCall = call;
-            callsDisconnected.add(call);
+        }
+        if (mFeatureFlags.parallelCallSequencingFanOut()) {
+            disconnectFuture = disconnectFuture.thenComposeAsync((result) ->
+                    mCallFanOut.requestAll("disconnectForEmergency", callsToDisconnect,
+                            (call) -> call.disconnect("Disconnecting call with phone account "
+                                    + "that does not support emergency call"),
+                            getCallFanOutDeadlineMillis(), false /* isTimeoutFailure */),
+                    new LoggedHandlerExecutor(mHandler, "CSC.dAVC", mCallsManager.getLock()));
         }
         return new Pair<>(callsDisconnected, disconnectFuture);
     }
@@ -1058,6 +1090,10 @@ public class CallSequencingController {
                 CarrierConfigManager.KEY_ALLOW_HOLD_CALL_DURING_EMERGENCY_BOOL, true);
     }
 
+    public void dump(IndentingPrintWriter pw) {
+        mCallFanOut.dump(pw);
+    }
+
     @VisibleForTesting
     public boolean arePhoneAccountsSame(Call call1, Call call2) {
         if (call1 == null || call2 == null) {
@@ -1080,6 +1116,10 @@ public class CallSequencingController {
                 && callToUnhold.getState() == CallState.ON_HOLD;
     }
 
+    private long getCallFanOutDeadlineMillis() {
+        return mTimeoutsAdapter.getCallFanOutDeadlineMillis(mContext.getContentResolver());
+    }
+
     private CompletableFuture<Boolean> disconnectAllCallsWithPhoneAccount(
             PhoneAccountHandle handle, boolean excludeAccount) {
         CompletableFuture<Boolean> disconnectFuture = CompletableFuture.completedFuture(true);
@@ -1088,6 +1128,15 @@ public class CallSequencingController {
         List<Call> calls = mCallsManager.getCalls().stream()
                 .filter(c -> excludeAccount != c.getTargetPhoneAccount().equals(handle)
                         && c.getParentCall() == null).toList();
+        if (mFeatureFlags.parallelCallSequencingFanOut()) {
+            // Wait for all disconnects before we accept the new call, but send them together.
+            return disconnectFuture.thenComposeAsync((result) ->
+                    mCallFanOut.requestAll("disconnectAllWithAccount", calls,
+                            (call) -> call.disconnect("Call " + call + " disconnected "
+                                    + "in favor of new call."),
+                            getCallFanOutDeadlineMillis(), true /* isTimeoutFailure */),
+                    new LoggedHandlerExecutor(mHandler, "CSC.dACWPA", mCallsManager.getLock()));
+        }
         for (Call call: calls) {
             // Wait for all disconnects before we accept the new call.
             disconnectFuture = disconnectFuture.thenComposeAsync((result) -> {
@@ -26,6 +26,7 @@ import android.telecom.Connection;
 import android.telecom.Log;
 import android.telecom.PhoneAccountHandle;
 
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.server.telecom.Call;
 import com.android.server.telecom.CallAudioManager;
 import com.android.server.telecom.CallState;
@@ -296,6 +297,12 @@ public class CallsManagerCallSequencingAdapter {
         }
     }
 
+    public void dump(IndentingPrintWriter pw) {
+        if (mIsCallSequencingEnabled) {
+            mSequencingController.dump(pw);
+        }
+    }
+
     /**
      * Determines if we need to add the {@link Connection#EXTRA_ANSWERING_DROPS_FG_CALL} extra to
      * the incoming connection. This is set if the ongoing calls don't support hold.
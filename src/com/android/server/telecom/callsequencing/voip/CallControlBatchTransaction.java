@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.server.telecom.callsequencing.voip;
+
+import android.os.OutcomeReceiver;
+import android.telecom.CallException;
+import android.telecom.Log;
+
+import com.android.server.telecom.TelecomSystem;
+import com.android.server.telecom.callsequencing.CallTransaction;
+import com.android.server.telecom.callsequencing.CallTransactionResult;
+import com.android.server.telecom.callsequencing.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs call control operations which were requested back to back as a single transaction, so
+ * that they take one turn in the {@link TransactionManager} queue instead of one each.
+ * Operations can be added until the transaction starts. They run in the order they were added,
+ * and each one's result is passed to its own receiver as soon as it completes. Unlike
+ * {@link SerialTransaction}, a failed operation doesn't stop the ones after it, since they were
+ * requested independently.
+ * <p>
+ * The result of the whole transaction is its first failure, or success if every operation
+ * succeeded.
+ */
+public class CallControlBatchTransaction extends CallTransaction {
+    private static final String TAG = CallControlBatchTransaction.class.getSimpleName();
+
+    private final List<OutcomeReceiver<CallTransactionResult, CallException>> mReceivers =
+            new ArrayList<>();
+    // Guarded by this.
+    private boolean mIsStarted = false;
+    // Guarded by this. Number of operations whose result was passed to their receiver.
+    private int mNumReported = 0;
+    private CallTransactionResult mFirstFailure;
+
+    public CallControlBatchTransaction(TelecomSystem.SyncRoot lock) {
+        super(new ArrayList<>(), lock);
+    }
+
+    /**
+     * Adds an operation to the end of this transaction.
+     *
+     * @return {@code false} if this transaction has already started, in which case the operation
+     * was not added.
+     */
+    public synchronized boolean tryAppend(CallTransaction transaction,
+            OutcomeReceiver<CallTransactionResult, CallException> receiver) {
+        if (mIsStarted) {
+            return false;
+        }
+        mSubTransactions.add(transaction);
+        mReceivers.add(receiver);
+        return true;
+    }
+
+    /**
+     * @return The number of operations in this transaction.
+     */
+    public synchronized int size() {
+        return mSubTransactions.size();
+    }
+
+    @Override
+    public void processTransactions() {
+        synchronized (this) {
+            mIsStarted = true;
+        }
+        Log.d(TAG, "processTransactions: running %d operations", mSubTransactions.size());
+        if (mSubTransactions.isEmpty()) {
+            scheduleTransaction();
+            return;
+        }
+        startOperation(0);
+    }
+
+    private void startOperation(int index) {
+        CallTransaction transaction = mSubTransactions.get(index);
+        transaction.setCompleteListener(new TransactionManager.TransactionCompleteListener() {
+            @Override
+            public void onTransactionCompleted(CallTransactionResult result,
+                    String transactionName) {
+                onOperationComplete(index, result);
+            }
+
+            @Override
+            public void onTransactionTimeout(String transactionName) {
+                onOperationComplete(index, new CallTransactionResult(
+                        CallException.CODE_OPERATION_TIMED_OUT,
+                        String.format("sub transaction %s timed out", transactionName)));
+            }
+        });
+        transaction.start();
+    }
+
+    private void onOperationComplete(int index, CallTransactionResult result) {
+        if (!report(index, result)) {
+            // This transaction has already finished, most likely because it timed out.
+            return;
+        }
+        if (index + 1 < mSubTransactions.size()) {
+            startOperation(index + 1);
+            return;
+        }
+        CallTransactionResult batchResult;
+        synchronized (this) {
+            batchResult = mFirstFailure != null ? mFirstFailure
+                    : new CallTransactionResult(CallTransactionResult.RESULT_SUCCEED, null);
+        }
+        if (!mCompleted.getAndSet(true)) {
+            finish(batchResult);
+            if (mCompleteListener != null) {
+                mCompleteListener.onTransactionCompleted(batchResult, mTransactionName);
+            }
+        }
+    }
+
+    /**
+     * Passes the result of the operation at {@code index} to its receiver.
+     *
+     * @return {@code false} if the result was not passed on because the operation was already
+     * reported.
+     */
+    private boolean report(int index, CallTransactionResult result) {
+        synchronized (this) {
+            if (index != mNumReported) {
+                return false;
+            }
+            mNumReported++;
+            if (result.getResult() != CallTransactionResult.RESULT_SUCCEED
+                    && mFirstFailure == null) {
+                mFirstFailure = result;
+            }
+        }
+        OutcomeReceiver<CallTransactionResult, CallException> receiver = mReceivers.get(index);
+        if (result.getResult() == CallTransactionResult.RESULT_SUCCEED) {
+            receiver.onResult(result);
+        } else {
+            receiver.onError(new CallException(result.getMessage(), result.getResult()));
+        }
+        return true;
+    }
+
+    @Override
+    protected void finishTransaction() {
+        // If the whole transaction timed out, tell the operations which never completed.
+        for (int i = 0; i < mReceivers.size(); i++) {
+            report(i, new CallTransactionResult(CallException.CODE_OPERATION_TIMED_OUT,
+                    "call control batch timed out"));
+        }
+    }
+}
@@ -32,26 +32,31 @@ import android.content.ServiceConnection;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.RemoteException;
+import android.os.UserHandle;
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
 import android.telecom.Log;
 import android.telecom.PhoneAccountHandle;
+import android.util.ArrayMap;
 
 import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.server.LocalServices;
 import com.android.server.telecom.Call;
 import com.android.server.telecom.CallsManagerListenerBase;
 import com.android.server.telecom.LogUtils;
 import com.android.server.telecom.TelecomSystem;
+import com.android.server.telecom.flags.FeatureFlags;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class VoipCallMonitor extends CallsManagerListenerBase {
     public static final long NOTIFICATION_NOT_POSTED_IN_TIME_TIMEOUT = 5000L;
@@ -61,6 +66,13 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
     // This list caches calls that are added to the VoipCallMonitor and need an accompanying
     // Call-Style Notification!
     private final ConcurrentLinkedQueue<Call> mNewCallsMissingCallStyleNotification;
+    // mNewCallsMissingCallStyleNotification indexed by the user and package of each call's
+    // account, so a posted notification is matched without going through every waiting call.
+    // Both are only modified while holding this. Only kept when mIndexPendingCalls is set.
+    private final ArrayMap<UserHandle, ArrayMap<String, ArrayDeque<Call>>> mPendingCallsByUser =
+            new ArrayMap<>();
+    private final AtomicInteger mNotificationsInspected = new AtomicInteger();
+    private final AtomicInteger mNotificationsMatched = new AtomicInteger();
     private final ConcurrentHashMap<String, Call> mNotificationIdToCall;
     private final ConcurrentHashMap<PhoneAccountHandle, Set<Call>> mAccountHandleToCallMap;
     private final ConcurrentHashMap<PhoneAccountHandle, ServiceConnection> mServices;
@@ -69,11 +81,15 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
     private final Handler mHandlerForClass;
     private final Context mContext;
     private final TelecomSystem.SyncRoot mSyncRoot;
+    // Read once, so the index and the queue can't disagree if the flag changes at runtime.
+    private final boolean mIndexPendingCalls;
 
-    public VoipCallMonitor(Context context, Handler handler, TelecomSystem.SyncRoot lock) {
+    public VoipCallMonitor(Context context, Handler handler, TelecomSystem.SyncRoot lock,
+            FeatureFlags featureFlags) {
         mSyncRoot = lock;
         mContext = context;
         mHandlerForClass = handler;
+        mIndexPendingCalls = featureFlags.indexVoipCallsAwaitingNotification();
         mNewCallsMissingCallStyleNotification = new ConcurrentLinkedQueue<>();
         mNotificationIdToCall = new ConcurrentHashMap<>();
         mServices = new ConcurrentHashMap<>();
@@ -82,46 +98,44 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
         mNotificationListener = new NotificationListenerService() {
             @Override
             public void onNotificationPosted(StatusBarNotification sbn) {
+                mNotificationsInspected.incrementAndGet();
+                // Every notification on the device comes through here; only look further at
+                // those from an app which has a call waiting for its notification.
+                if (mIndexPendingCalls && !hasPendingCall(sbn.getUser(), sbn.getPackageName())) {
+                    return;
+                }
                 if (isCallStyleNotification(sbn)) {
                     Log.i(TAG, "onNotificationPosted: sbn=[%s]", sbn);
                     // Case 1: Call added to this class (via onCallAdded) BEFORE Call-Style
                     //         Notification is posted by the app (only supported scenario)
-                    Call newCallNoLongerAwaitingNotification = null;
-                    for (Call call : mNewCallsMissingCallStyleNotification) {
-                        if (isNotificationForCall(sbn, call)) {
-                            Log.i(TAG, "onNotificationPosted: found a pending "
-                                    + "call=[%s] for sbn.id=[%s]", call, sbn.getId());
-                            mNotificationIdToCall.put(
-                                    getNotificationIdToCallKey(sbn),
-                                    call);
-                            newCallNoLongerAwaitingNotification = call;
-                            break;
-                        }
-                    }
                     // Case 2: Call-Style Notification was posted BEFORE the Call was added
                     // --> Currently do not support this
                     // Case 3: Call-Style Notification was updated (ex. incoming -> ongoing)
                     // --> do nothing
-                    if (newCallNoLongerAwaitingNotification == null) {
+                    // Taking the call removes it from mNewCallsMissingCallStyleNotification so
+                    // FGS is not revoked when the timeout is hit in
+                    // VoipCallMonitor#startMonitoringNotification(...). The timeout ensures the
+                    // voip app posts a call-style notification within 5 seconds!
+                    Call call = mIndexPendingCalls
+                            ? takePendingCall(sbn.getUser(), sbn.getPackageName())
+                            : takePendingCall(sbn);
+                    if (call != null) {
+                        mNotificationsMatched.incrementAndGet();
+                        Log.i(TAG, "onNotificationPosted: found a pending "
+                                + "call=[%s] for sbn.id=[%s]", call, sbn.getId());
+                        mNotificationIdToCall.put(getNotificationIdToCallKey(sbn), call);
+                    } else {
                         Log.i(TAG, "onNotificationPosted: could not find a call for the"
                                 + " sbn.id=[%s]. This could mean the notification posted"
                                 + " BEFORE the call is added (error) or it's an update from"
                                 + " incoming to ongoing (ok).", sbn.getId());
-                    } else {
-                        // --> remove the newly added call from
-                        // mNewCallsMissingCallStyleNotification so FGS is not revoked when the
-                        // timeout is hit in VoipCallMonitor#startMonitoringNotification(...). The
-                        // timeout ensures the voip app posts a call-style notification within
-                        // 5 seconds!
-                        mNewCallsMissingCallStyleNotification
-                                .remove(newCallNoLongerAwaitingNotification);
                     }
                 }
             }
 
             @Override
             public void onNotificationRemoved(StatusBarNotification sbn) {
-                if (!isCallStyleNotification(sbn)) {
+                if (mNotificationIdToCall.isEmpty() || !isCallStyleNotification(sbn)) {
                     return;
                 }
                 Log.i(TAG, "onNotificationRemoved: Call-Style notification=[%s] removed", sbn);
@@ -142,6 +156,23 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
                 }
             }
 
+            /**
+             * Stops waiting for a notification for the first waiting call from the app which
+             * posted {@code sbn}.
+             * @return The call, or {@code null} if no call from the app is waiting.
+             */
+            private Call takePendingCall(StatusBarNotification sbn) {
+                synchronized (mPendingCallsByUser) {
+                    for (Call call : mNewCallsMissingCallStyleNotification) {
+                        if (isNotificationForCall(sbn, call)) {
+                            mNewCallsMissingCallStyleNotification.remove(call);
+                            return call;
+                        }
+                    }
+                    return null;
+                }
+            }
+
             // TODO:: b/383403913 fix gap in matching notifications
             private boolean isNotificationForCall(StatusBarNotification sbn, Call call) {
                 PhoneAccountHandle callHandle = getTargetPhoneAccount(call);
@@ -154,16 +185,7 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
             }
 
             private Call getCallFromStatusBarNotificationId(StatusBarNotification sbn) {
-                if (mNotificationIdToCall.size() == 0) {
-                    return null;
-                }
-                String targetKey = getNotificationIdToCallKey(sbn);
-                for (Map.Entry<String, Call> entry : mNotificationIdToCall.entrySet()) {
-                    if (targetKey.equals(entry.getKey())) {
-                        return entry.getValue();
-                    }
-                }
-                return null;
+                return mNotificationIdToCall.get(getNotificationIdToCallKey(sbn));
             }
 
             private String getNotificationIdToCallKey(StatusBarNotification sbn) {
@@ -179,9 +201,8 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
                 if (call == null || handle == null) {
                     return false;
                 }
-                return mAccountHandleToCallMap
-                        .computeIfAbsent(handle, k -> new HashSet<>())
-                        .contains(call);
+                Set<Call> calls = mAccountHandleToCallMap.get(handle);
+                return calls != null && calls.contains(call);
             }
         };
 
@@ -295,7 +316,7 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
                 toRemove.add(callAwaitingNotification);
             }
         }
-        mNewCallsMissingCallStyleNotification.removeAll(toRemove);
+        removePendingCalls(toRemove, handle);
 
         if (mActivityManagerInternal != null) {
             ServiceConnection fgsConnection = mServices.get(handle);
@@ -313,7 +334,7 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
         // Wait 5 seconds for a CallStyle notification to be posted for the call.
         // If the Call-Style Notification is not posted, FGS delegation needs to be revoked!
         Log.i(TAG, "startMonitoringNotification: starting timeout for call.id=[%s]", callId);
-        mNewCallsMissingCallStyleNotification.add(call);
+        addPendingCall(call, handle);
         // If no notification is posted, stop foreground service delegation!
         mHandlerForClass.postDelayed(() -> {
             if (mNewCallsMissingCallStyleNotification.contains(call)) {
@@ -328,6 +349,93 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
         }, NOTIFICATION_NOT_POSTED_IN_TIME_TIMEOUT);
     }
 
+    private void addPendingCall(Call call, PhoneAccountHandle handle) {
+        synchronized (mPendingCallsByUser) {
+            mNewCallsMissingCallStyleNotification.add(call);
+            if (!mIndexPendingCalls) {
+                return;
+            }
+            ArrayMap<String, ArrayDeque<Call>> callsByPackage =
+                    mPendingCallsByUser.get(handle.getUserHandle());
+            if (callsByPackage == null) {
+                callsByPackage = new ArrayMap<>();
+                mPendingCallsByUser.put(handle.getUserHandle(), callsByPackage);
+            }
+            String packageName = handle.getComponentName().getPackageName();
+            ArrayDeque<Call> calls = callsByPackage.get(packageName);
+            if (calls == null) {
+                calls = new ArrayDeque<>();
+                callsByPackage.put(packageName, calls);
+            }
+            calls.add(call);
+        }
+    }
+
+    private boolean hasPendingCall(UserHandle user, String packageName) {
+        synchronized (mPendingCallsByUser) {
+            ArrayMap<String, ArrayDeque<Call>> callsByPackage = mPendingCallsByUser.get(user);
+            return callsByPackage != null && callsByPackage.containsKey(packageName);
+        }
+    }
+
+    /**
+     * Stops waiting for a notification for the call from {@code packageName} which has waited
+     * the longest.
+     * @return The call, or {@code null} if no call from the package is waiting.
+     */
+    // TODO:: b/383403913 fix gap in matching notifications
+    private Call takePendingCall(UserHandle user, String packageName) {
+        synchronized (mPendingCallsByUser) {
+            ArrayMap<String, ArrayDeque<Call>> callsByPackage = mPendingCallsByUser.get(user);
+            if (callsByPackage == null) {
+                return null;
+            }
+            ArrayDeque<Call> calls = callsByPackage.get(packageName);
+            if (calls == null) {
+                return null;
+            }
+            Call call = calls.poll();
+            if (calls.isEmpty()) {
+                callsByPackage.remove(packageName);
+                if (callsByPackage.isEmpty()) {
+                    mPendingCallsByUser.remove(user);
+                }
+            }
+            mNewCallsMissingCallStyleNotification.remove(call);
+            return call;
+        }
+    }
+
+    private void removePendingCalls(List<Call> toRemove, PhoneAccountHandle handle) {
+        synchronized (mPendingCallsByUser) {
+            mNewCallsMissingCallStyleNotification.removeAll(toRemove);
+            ArrayMap<String, ArrayDeque<Call>> callsByPackage =
+                    mPendingCallsByUser.get(handle.getUserHandle());
+            if (callsByPackage == null) {
+                return;
+            }
+            String packageName = handle.getComponentName().getPackageName();
+            ArrayDeque<Call> calls = callsByPackage.get(packageName);
+            if (calls == null) {
+                return;
+            }
+            calls.removeAll(toRemove);
+            if (calls.isEmpty()) {
+                callsByPackage.remove(packageName);
+                if (callsByPackage.isEmpty()) {
+                    mPendingCallsByUser.remove(handle.getUserHandle());
+                }
+            }
+        }
+    }
+
+    public void dump(IndentingPrintWriter pw) {
+        pw.println("notificationsInspected=" + mNotificationsInspected.get()
+                + ", notificationsMatched=" + mNotificationsMatched.get()
+                + ", callsAwaitingNotification=" + mNewCallsMissingCallStyleNotification.size()
+                + ", trackedNotifications=" + mNotificationIdToCall.size());
+    }
+
     /**
      * Helpers
      */
@@ -432,4 +540,14 @@ public class VoipCallMonitor extends CallsManagerListenerBase {
     public  ConcurrentLinkedQueue<Call> getNewCallsMissingCallStyleNotificationQueue(){
         return mNewCallsMissingCallStyleNotification;
     }
+
+    @VisibleForTesting
+    public int getNotificationsInspected() {
+        return mNotificationsInspected.get();
+    }
+
+    @VisibleForTesting
+    public int getNotificationsMatched() {
+        return mNotificationsMatched.get();
+    }
 }
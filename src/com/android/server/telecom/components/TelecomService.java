@@ -206,7 +206,8 @@ public class TelecomService extends Service implements TelecomSystem.Component {
                                 }
                             },
                             new RoleManagerAdapterImpl(context,
-                                    (RoleManager) context.getSystemService(Context.ROLE_SERVICE)),
+                                    (RoleManager) context.getSystemService(Context.ROLE_SERVICE),
+                                    featureFlags),
                             new ContactsAsyncHelper.Factory(),
                             internalServiceRetriever.getDeviceIdleController(),
                             sysUiPackageName,
@@ -50,16 +50,24 @@ import android.os.Message;
 import android.os.SystemClock;
 import android.telecom.Log;
 import android.util.Pair;
+import android.util.SparseArray;
 import android.util.StatsEvent;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.server.telecom.AudioRoute;
+import com.android.server.telecom.CallAudioRouteAdapter;
 import com.android.server.telecom.PendingAudioRoute;
 import com.android.server.telecom.TelecomStatsLog;
 import com.android.server.telecom.nano.PulledAtomsClass;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -70,11 +78,28 @@ public class AudioRouteStats extends TelecomPulledAtom {
     public static final long THRESHOLD_REVERT_MS = 5000;
     @VisibleForTesting
     public static final int EVENT_REVERT_THRESHOLD_EXPIRED = EVENT_SUB_BASE + 1;
+    /**
+     * Upper bounds of the route latency histogram buckets; the last bucket counts everything
+     * slower than the last bound.
+     */
+    @VisibleForTesting
+    public static final int[] LATENCY_BUCKET_UPPER_BOUNDS_MS = {100, 250, 500, 1000, 2000, 4000};
+    @VisibleForTesting
+    public static final int LATENCY_BUCKET_COUNT = LATENCY_BUCKET_UPPER_BOUNDS_MS.length + 1;
+    @VisibleForTesting
+    public static final int MAX_RECENT_TRANSITIONS = 32;
+    private static final int MAX_SLOWEST_TRANSITIONS_DUMPED = 10;
+    private static final int NO_MESSAGE = -1;
     private static final String TAG = AudioRouteStats.class.getSimpleName();
     private static final String FILE_NAME = "audio_route_stats";
     private Map<AudioRouteStatsKey, AudioRouteStatsData> mAudioRouteStatsMap;
     private Pair<AudioRouteStatsKey, long[]> mCur;
+    // The pending message which arrived last for the current route
+    private int mCurLastMessage = NO_MESSAGE;
     private boolean mIsOngoing;
+    // Latency histograms keyed by the pending message which arrived last; dump only
+    private final SparseArray<int[]> mLastMessageHistograms = new SparseArray<>();
+    private final ArrayDeque<RouteTransition> mRecentTransitions = new ArrayDeque<>();
 
     public AudioRouteStats(@NonNull Context context, @NonNull Looper looper, boolean isTestMode) {
         super(context, looper, isTestMode);
@@ -114,7 +139,8 @@ public class AudioRouteStats extends TelecomPulledAtom {
             for (PulledAtomsClass.CallAudioRouteStats v : mPulledAtoms.callAudioRouteStats) {
                 mAudioRouteStatsMap.put(new AudioRouteStatsKey(v.getCallAudioRouteSource(),
                                 v.getCallAudioRouteDest(), v.getSuccess(), v.getRevert()),
-                        new AudioRouteStatsData(v.getCount(), v.getAverageLatencyMs()));
+                        new AudioRouteStatsData(v.getCount(), v.getAverageLatencyMs(),
+                                v.latencyHistogram));
             }
             mLastPulledTimestamps = mPulledAtoms.getCallAudioRouteStatsPullTimestampMillis();
         }
@@ -140,6 +166,8 @@ public class AudioRouteStats extends TelecomPulledAtom {
             mPulledAtoms.callAudioRouteStats[index[0]].setRevert(k.mIsRevert);
             mPulledAtoms.callAudioRouteStats[index[0]].setCount(v.mCount);
             mPulledAtoms.callAudioRouteStats[index[0]].setAverageLatencyMs(v.mAverageLatency);
+            mPulledAtoms.callAudioRouteStats[index[0]].latencyHistogram =
+                    v.mLatencyHistogram.clone();
             index[0]++;
         });
         save(DELAY_FOR_PERSISTENT_MILLIS);
@@ -147,7 +175,8 @@ public class AudioRouteStats extends TelecomPulledAtom {
 
     @VisibleForTesting
     public void log(int source, int target, boolean isSuccess, boolean isRevert, int latency) {
-        post(() -> onLog(new AudioRouteStatsKey(source, target, isSuccess, isRevert), latency));
+        post(() -> onLog(new AudioRouteStatsKey(source, target, isSuccess, isRevert), latency,
+                NO_MESSAGE));
     }
 
     public void onRouteEnter(PendingAudioRoute pendingRoute) {
@@ -172,6 +201,7 @@ public class AudioRouteStats extends TelecomPulledAtom {
                 }
                 mCur = new Pair<>(new AudioRouteStatsKey(sourceType, destType), new long[]{curTime,
                         -1});
+                mCurLastMessage = NO_MESSAGE;
                 if (hasMessages(EVENT_REVERT_THRESHOLD_EXPIRED)) {
                     // Only keep the latest event
                     removeMessages(EVENT_REVERT_THRESHOLD_EXPIRED);
@@ -185,6 +215,8 @@ public class AudioRouteStats extends TelecomPulledAtom {
     public void onRouteExit(PendingAudioRoute pendingRoute, boolean isSuccess) {
         // Check the dest type on the route exiting as it may be different as the enter
         int destType = convertAudioType(pendingRoute.getDestRoute(), false);
+        Pair<Integer, String> lastMessage = pendingRoute.getLastReceivedMessage();
+        int lastMessageCode = lastMessage != null ? lastMessage.first : NO_MESSAGE;
         long curTime = SystemClock.elapsedRealtime();
         post(() -> {
             if (mIsOngoing) {
@@ -194,6 +226,7 @@ public class AudioRouteStats extends TelecomPulledAtom {
                     mCur.first.setDestType(destType);
                     mCur.first.setSuccess(isSuccess);
                     mCur.second[1] = curTime;
+                    mCurLastMessage = lastMessageCode;
                 }
             }
         });
@@ -208,19 +241,85 @@ public class AudioRouteStats extends TelecomPulledAtom {
                 if (mCur.second[1] < 0) {
                     mCur.second[1] = SystemClock.elapsedRealtime();
                 }
-                onLog(mCur.first, (int) (mCur.second[1] - mCur.second[0]));
+                onLog(mCur.first, (int) (mCur.second[1] - mCur.second[0]), mCurLastMessage);
             }
             mCur = null;
+            mCurLastMessage = NO_MESSAGE;
         }
     }
 
-    private void onLog(AudioRouteStatsKey key, int latency) {
+    private void onLog(AudioRouteStatsKey key, int latency, int lastMessage) {
         AudioRouteStatsData data = mAudioRouteStatsMap.computeIfAbsent(key,
-                k -> new AudioRouteStatsData(0, 0));
+                k -> new AudioRouteStatsData(0, 0, null));
         data.add(latency);
+        synchronized (this) {
+            int[] histogram = mLastMessageHistograms.get(lastMessage);
+            if (histogram == null) {
+                histogram = new int[LATENCY_BUCKET_COUNT];
+                mLastMessageHistograms.put(lastMessage, histogram);
+            }
+            histogram[getLatencyBucket(latency)]++;
+            if (mRecentTransitions.size() >= MAX_RECENT_TRANSITIONS) {
+                mRecentTransitions.removeFirst();
+            }
+            mRecentTransitions.addLast(new RouteTransition(System.currentTimeMillis(), key,
+                    latency, lastMessage));
+        }
         onAggregate();
     }
 
+    @VisibleForTesting
+    public static int getLatencyBucket(int latency) {
+        for (int i = 0; i < LATENCY_BUCKET_UPPER_BOUNDS_MS.length; i++) {
+            if (latency < LATENCY_BUCKET_UPPER_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BUCKET_UPPER_BOUNDS_MS.length;
+    }
+
+    private static String getMessageName(int message) {
+        return message == NO_MESSAGE ? "none"
+                : CallAudioRouteAdapter.MESSAGE_CODE_TO_NAME.get(message, "unknown");
+    }
+
+    /**
+     * Dumps the latency histogram of each route, broken down by route and by the pending message
+     * which arrived last, followed by the slowest of the recent route transitions.
+     */
+    public synchronized void dump(IndentingPrintWriter pw) {
+        pw.println("AudioRouteStats: latency buckets (ms) <"
+                + Arrays.toString(LATENCY_BUCKET_UPPER_BOUNDS_MS) + ", >=last");
+        pw.increaseIndent();
+        pw.println("By route (source -> dest as CallAudioEnum):");
+        pw.increaseIndent();
+        if (mPulledAtoms != null && mPulledAtoms.callAudioRouteStats != null) {
+            for (PulledAtomsClass.CallAudioRouteStats v : mPulledAtoms.callAudioRouteStats) {
+                pw.println(v.getCallAudioRouteSource() + " -> " + v.getCallAudioRouteDest()
+                        + " success=" + v.getSuccess() + " revert=" + v.getRevert()
+                        + " count=" + v.getCount() + " avg=" + v.getAverageLatencyMs() + "ms"
+                        + " histogram=" + Arrays.toString(v.latencyHistogram));
+            }
+        }
+        pw.decreaseIndent();
+        pw.println("By last pending message:");
+        pw.increaseIndent();
+        for (int i = 0; i < mLastMessageHistograms.size(); i++) {
+            pw.println(getMessageName(mLastMessageHistograms.keyAt(i)) + " histogram="
+                    + Arrays.toString(mLastMessageHistograms.valueAt(i)));
+        }
+        pw.decreaseIndent();
+        pw.println("Slowest recent transitions:");
+        pw.increaseIndent();
+        List<RouteTransition> slowest = new ArrayList<>(mRecentTransitions);
+        slowest.sort(Comparator.comparingInt((RouteTransition t) -> t.mLatency).reversed());
+        for (int i = 0; i < Math.min(slowest.size(), MAX_SLOWEST_TRANSITIONS_DUMPED); i++) {
+            pw.println(slowest.get(i));
+        }
+        pw.decreaseIndent();
+        pw.decreaseIndent();
+    }
+
     private int convertAudioType(AudioRoute route, boolean isSource) {
         if (route != null) {
             switch (route.getType()) {
@@ -336,21 +435,57 @@ public class AudioRouteStats extends TelecomPulledAtom {
 
         int mCount;
         int mAverageLatency;
+        final int[] mLatencyHistogram;
 
-        AudioRouteStatsData(int count, int averageLatency) {
+        AudioRouteStatsData(int count, int averageLatency, int[] latencyHistogram) {
             mCount = count;
             mAverageLatency = averageLatency;
+            // Stats persisted before the histogram was added have no buckets
+            mLatencyHistogram = latencyHistogram != null
+                    ? Arrays.copyOf(latencyHistogram, LATENCY_BUCKET_COUNT)
+                    : new int[LATENCY_BUCKET_COUNT];
         }
 
         void add(int latency) {
             mCount++;
             mAverageLatency += (latency - mAverageLatency) / mCount;
+            mLatencyHistogram[getLatencyBucket(latency)]++;
         }
 
         @Override
         public String toString() {
             return "[AudioRouteStatsData: mCount=" + mCount + ", mAverageLatency:"
-                    + mAverageLatency + "]";
+                    + mAverageLatency + ", mLatencyHistogram="
+                    + Arrays.toString(mLatencyHistogram) + "]";
+        }
+    }
+
+    static class RouteTransition {
+
+        final long mTimestampMillis;
+        final int mSource;
+        final int mDest;
+        final boolean mIsSuccess;
+        final boolean mIsRevert;
+        final int mLatency;
+        final int mLastMessage;
+
+        RouteTransition(long timestampMillis, AudioRouteStatsKey key, int latency,
+                int lastMessage) {
+            mTimestampMillis = timestampMillis;
+            mSource = key.mSource;
+            mDest = key.mDest;
+            mIsSuccess = key.mIsSuccess;
+            mIsRevert = key.mIsRevert;
+            mLatency = latency;
+            mLastMessage = lastMessage;
+        }
+
+        @Override
+        public String toString() {
+            return Instant.ofEpochMilli(mTimestampMillis).atZone(ZoneOffset.UTC) + " " + mSource
+                    + " -> " + mDest + " latency=" + mLatency + "ms success=" + mIsSuccess
+                    + " revert=" + mIsRevert + " lastMessage=" + getMessageName(mLastMessage);
         }
     }
 }
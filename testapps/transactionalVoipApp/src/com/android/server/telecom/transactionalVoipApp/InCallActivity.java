@@ -95,7 +95,7 @@ public class InCallActivity extends Activity {
                 updateCurrentEndpoint();
                 if (canUseCallControl() && mCallDirection != DIRECTION_OUTGOING) {
                     mVoipCall.mCallControl.answer(AUDIO_CALL, Runnable::run,
-                            Utils.getLoggableOutcomeReceiver("answer"));
+                            Utils.getTimedOutcomeReceiver("answer"));
                     mAudioRecord.startRecording();
                     mMediaPlayer.start();
                 }
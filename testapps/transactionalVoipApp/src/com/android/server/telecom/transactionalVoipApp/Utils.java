@@ -30,6 +30,7 @@ import android.media.AudioRecordingConfiguration;
 import android.media.MediaPlayer;
 import android.media.MediaRecorder;
 import android.os.OutcomeReceiver;
+import android.os.SystemClock;
 import android.telecom.CallException;
 import android.telecom.PhoneAccount;
 import android.telecom.PhoneAccountHandle;
@@ -173,4 +174,25 @@ public class Utils {
             }
         };
     }
+
+    /**
+     * Same as {@link #getLoggableOutcomeReceiver}, but also logs how long Telecom took to reply,
+     * counted from when this method is called.
+     */
+    public static OutcomeReceiver<Void, CallException> getTimedOutcomeReceiver(String tag) {
+        long requestedMillis = SystemClock.elapsedRealtime();
+        return new OutcomeReceiver<Void, CallException>() {
+            @Override
+            public void onResult(Void result) {
+                Log.i(TAG, tag + " : onResult after "
+                        + (SystemClock.elapsedRealtime() - requestedMillis) + "ms");
+            }
+
+            @Override
+            public void onError(CallException exception) {
+                Log.i(TAG, tag + " : onError after "
+                        + (SystemClock.elapsedRealtime() - requestedMillis) + "ms");
+            }
+        };
+    }
 }
\ No newline at end of file
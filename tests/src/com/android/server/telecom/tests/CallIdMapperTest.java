@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.server.telecom.Call;
+import com.android.server.telecom.CallIdMapper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class CallIdMapperTest extends TelecomTestCase {
+    private static final int NUM_CALLS = 100;
+
+    @SmallTest
+    @Test
+    public void testLookupsInBothDirections() {
+        CallIdMapper.CallIndex index = new CallIdMapper.CallIndex();
+        Call call1 = mock(Call.class);
+        Call call2 = mock(Call.class);
+
+        assertTrue(index.put("TC@1", call1));
+        assertTrue(index.put("TC@2", call2));
+        // Neither an id nor a call can be mapped twice.
+        assertFalse(index.put("TC@1", call2));
+        assertFalse(index.put("TC@3", call1));
+        assertFalse(index.put(null, call1));
+
+        // Ids arriving over binder are equal but not the same instance.
+        assertSame(call1, index.getCall(new String("TC@1")));
+        assertEquals("TC@2", index.getId(call2));
+        assertNull(index.getCall("TC@3"));
+        assertNull(index.getId(mock(Call.class)));
+        assertEquals(2, index.size());
+    }
+
+    @SmallTest
+    @Test
+    public void testRemovalKeepsRemainingCallsReachable() {
+        CallIdMapper.CallIndex index = new CallIdMapper.CallIndex();
+        Call[] calls = new Call[NUM_CALLS];
+        for (int i = 0; i < NUM_CALLS; i++) {
+            calls[i] = mock(Call.class);
+            assertTrue(index.put("TC@" + i, calls[i]));
+        }
+
+        // Remove every other call, alternating between removing by id and by call.
+        Set<Call> remaining = new HashSet<>();
+        for (int i = 0; i < NUM_CALLS; i++) {
+            if (i % 2 == 1) {
+                remaining.add(calls[i]);
+            } else if (i % 4 == 0) {
+                assertTrue(index.remove("TC@" + i));
+            } else {
+                assertTrue(index.removeCall(calls[i]));
+            }
+        }
+
+        assertEquals(NUM_CALLS / 2, index.size());
+        for (int i = 0; i < NUM_CALLS; i++) {
+            if (i % 2 == 1) {
+                assertSame(calls[i], index.getCall("TC@" + i));
+                assertEquals("TC@" + i, index.getId(calls[i]));
+            } else {
+                assertNull(index.getCall("TC@" + i));
+                assertNull(index.getId(calls[i]));
+                assertFalse(index.remove("TC@" + i));
+            }
+        }
+        assertEquals(remaining, new HashSet<>(index.getCalls()));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.getCalls().isEmpty());
+        assertNull(index.getCall("TC@1"));
+    }
+}
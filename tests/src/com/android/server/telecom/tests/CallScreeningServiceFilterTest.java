@@ -17,6 +17,7 @@
 package com.android.server.telecom.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -25,7 +26,9 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -52,9 +55,13 @@ import com.android.internal.telecom.ICallScreeningService;
 import com.android.server.telecom.AppLabelProxy;
 import com.android.server.telecom.Call;
 import com.android.server.telecom.CallsManager;
+import com.android.server.telecom.ClockProxy;
 import com.android.server.telecom.ParcelableCallUtils;
 import com.android.server.telecom.PhoneAccountRegistrar;
+import com.android.server.telecom.TelecomSystem;
+import com.android.server.telecom.Timeouts;
 import com.android.server.telecom.callfiltering.CallFilteringResult;
+import com.android.server.telecom.callfiltering.CallScreeningServiceBindingPool;
 import com.android.server.telecom.callfiltering.CallScreeningServiceFilter;
 
 import org.junit.Before;
@@ -81,6 +88,9 @@ public class CallScreeningServiceFilterTest extends TelecomTestCase {
     @Mock PhoneAccountRegistrar mPhoneAccountRegistrar;
     @Mock ICallScreeningService mCallScreeningService;
     @Mock IBinder mBinder;
+    @Mock Timeouts.Adapter mTimeoutsAdapter;
+    @Mock ClockProxy mClockProxy;
+    private final TelecomSystem.SyncRoot mLock = new TelecomSystem.SyncRoot() { };
 
     private static final String CALL_ID = "u89prgt9ps78y5";
     private static final String PKG_NAME = "com.android.services.telecom.tests";
@@ -398,6 +408,96 @@ public class CallScreeningServiceFilterTest extends TelecomTestCase {
         serviceConnection.onServiceDisconnected(COMPONENT_NAME);
     }
 
+    @SmallTest
+    @Test
+    public void testPooledBindingReusedAcrossCalls() throws Exception {
+        when(mTimeoutsAdapter.getCallScreeningServiceIdleUnbindMillis(any()))
+                .thenReturn(10000L);
+        CallScreeningServiceBindingPool pool = new CallScreeningServiceBindingPool(mContext,
+                mLock, mTimeoutsAdapter, mClockProxy);
+        CallScreeningServiceFilter filter = new CallScreeningServiceFilter(mCall, PKG_NAME,
+                CallScreeningServiceFilter.PACKAGE_TYPE_CARRIER, mContext, mCallsManager,
+                mAppLabelProxy, mParcelableCallUtilsConverter, pool);
+        CompletionStage<CallFilteringResult> resultFuture = filter.startFilterLookup(inputResult);
+
+        ServiceConnection serviceConnection = verifyBindingIntent();
+        serviceConnection.onServiceConnected(COMPONENT_NAME, mBinder);
+        CallScreeningService.CallResponse allowCallResponse =
+                new CallScreeningService.CallResponse.Builder()
+                        .setDisallowCall(false)
+                        .setRejectCall(false)
+                        .setSilenceCall(false)
+                        .build();
+        getCallScreeningAdapter().onScreeningResponse(CALL_ID, COMPONENT_NAME,
+                allowCallResponse.toParcelable());
+        assertEquals(PASS_RESULT_WITH_NAME,
+                resultFuture.toCompletableFuture().get(
+                        CallScreeningServiceFilter.CALL_SCREENING_FILTER_TIMEOUT,
+                        TimeUnit.MILLISECONDS));
+        // The binding is kept for the next call rather than being torn down.
+        verify(mContext, never()).unbindService(nullable(ServiceConnection.class));
+
+        CallScreeningServiceFilter secondFilter = new CallScreeningServiceFilter(mCall,
+                PKG_NAME, CallScreeningServiceFilter.PACKAGE_TYPE_CARRIER, mContext,
+                mCallsManager, mAppLabelProxy, mParcelableCallUtilsConverter, pool);
+        CompletableFuture<CallFilteringResult> secondResult = secondFilter
+                .startFilterLookup(inputResult).toCompletableFuture();
+        verify(mCallScreeningService, times(2)).screenCall(any(ICallScreeningAdapter.class),
+                nullable(ParcelableCall.class));
+        verify(mContext, times(1)).bindServiceAsUser(nullable(Intent.class),
+                nullable(ServiceConnection.class), anyInt(), eq(PA_HANDLE.getUserHandle()));
+        assertEquals(1, pool.getBindCount());
+        assertEquals(1, pool.getReuseCount());
+
+        // Losing the binding completes the pending screening with the prior result.
+        serviceConnection.onBindingDied(COMPONENT_NAME);
+        assertEquals(inputResult, secondResult.get(
+                CallScreeningServiceFilter.CALL_SCREENING_FILTER_TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @SmallTest
+    @Test
+    public void testPooledBindingSamePackageForCarrierAndDialer() throws Exception {
+        when(mTimeoutsAdapter.getCallScreeningServiceIdleUnbindMillis(any()))
+                .thenReturn(10000L);
+        CallScreeningServiceBindingPool pool = new CallScreeningServiceBindingPool(mContext,
+                mLock, mTimeoutsAdapter, mClockProxy);
+        CallScreeningServiceFilter carrierFilter = new CallScreeningServiceFilter(mCall,
+                PKG_NAME, CallScreeningServiceFilter.PACKAGE_TYPE_CARRIER, mContext,
+                mCallsManager, mAppLabelProxy, mParcelableCallUtilsConverter, pool);
+        CallScreeningServiceFilter dialerFilter = new CallScreeningServiceFilter(mCall,
+                PKG_NAME, CallScreeningServiceFilter.PACKAGE_TYPE_DEFAULT_DIALER, mContext,
+                mCallsManager, mAppLabelProxy, mParcelableCallUtilsConverter, pool);
+        CompletableFuture<CallFilteringResult> carrierResult = carrierFilter
+                .startFilterLookup(inputResult).toCompletableFuture();
+        CompletableFuture<CallFilteringResult> dialerResult = dialerFilter
+                .startFilterLookup(inputResult).toCompletableFuture();
+
+        ServiceConnection serviceConnection = verifyBindingIntent();
+        serviceConnection.onServiceConnected(COMPONENT_NAME, mBinder);
+        ArgumentCaptor<ICallScreeningAdapter> captor =
+                ArgumentCaptor.forClass(ICallScreeningAdapter.class);
+        verify(mCallScreeningService, times(2)).screenCall(captor.capture(),
+                nullable(ParcelableCall.class));
+        CallScreeningService.CallResponse allowCallResponse =
+                new CallScreeningService.CallResponse.Builder()
+                        .setDisallowCall(false)
+                        .setRejectCall(false)
+                        .setSilenceCall(false)
+                        .build();
+
+        // Both requests are for the same call; each response completes one of them.
+        captor.getValue().onScreeningResponse(CALL_ID, COMPONENT_NAME,
+                allowCallResponse.toParcelable());
+        assertEquals(PASS_RESULT_WITH_NAME, carrierResult.get(
+                CallScreeningServiceFilter.CALL_SCREENING_FILTER_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertFalse(dialerResult.isDone());
+        captor.getValue().onScreeningResponse(CALL_ID, COMPONENT_NAME,
+                allowCallResponse.toParcelable());
+        assertEquals(PASS_RESULT_WITH_NAME, dialerResult.get(
+                CallScreeningServiceFilter.CALL_SCREENING_FILTER_TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
     private ServiceConnection verifyBindingIntent() {
         ArgumentCaptor<Intent> intentCaptor = ArgumentCaptor.forClass(Intent.class);
         ArgumentCaptor<ServiceConnection> serviceCaptor = ArgumentCaptor
@@ -88,6 +88,7 @@ import java.util.concurrent.TimeUnit;
 @RunWith(JUnit4.class)
 public class CallSequencingTests extends TelecomTestCase {
     private static final long SEQUENCING_TIMEOUT_MS = 2000L;
+    private static final long FAN_OUT_DEADLINE_MS = 5000L;
     private static final PhoneAccountHandle mHandle1 = new PhoneAccountHandle(
             new ComponentName("foo", "bar"), "1");
     private static final PhoneAccountHandle mHandle2 = new PhoneAccountHandle(
@@ -118,6 +119,7 @@ public class CallSequencingTests extends TelecomTestCase {
     public void setUp() throws Exception {
         super.setUp();
         when(mFeatureFlags.enableCallSequencing()).thenReturn(true);
+        when(mTimeoutsAdapter.getCallFanOutDeadlineMillis(any())).thenReturn(FAN_OUT_DEADLINE_MS);
         mController = new CallSequencingController(mCallsManager, mContext, mClockProxy,
                 mAnomalyReporter, mTimeoutsAdapter, mMetricsController, mMmiUtils, mFeatureFlags);
 
@@ -378,6 +380,34 @@ public class CallSequencingTests extends TelecomTestCase {
         assertTrue(waitForFutureResult(resultFuture, false));
     }
 
+    @Test
+    @SmallTest
+    public void testHoldCallForNewCall_DoesNotSupportHold_DisconnectsInParallel() {
+        when(mFeatureFlags.parallelCallSequencingFanOut()).thenReturn(true);
+        setPhoneAccounts(mNewCall, mActiveCall, false);
+        when(mHeldCall.getTargetPhoneAccount()).thenReturn(mHandle2);
+        setActiveCallFocus(mActiveCall);
+        when(mCallsManager.getCalls()).thenReturn(List.of(mActiveCall, mHeldCall));
+        when(mCallsManager.canHold(mActiveCall)).thenReturn(false);
+        when(mCallsManager.supportsHold(mActiveCall)).thenReturn(false);
+        when(mActiveCall.isEmergencyCall()).thenReturn(false);
+        CompletableFuture<Boolean> activeDisconnectFuture = new CompletableFuture<>();
+        when(mActiveCall.disconnect(anyString())).thenReturn(activeDisconnectFuture);
+        when(mHeldCall.disconnect(anyString())).thenReturn(
+                CompletableFuture.completedFuture(true));
+
+        CompletableFuture<Boolean> resultFuture = mController
+                .holdActiveCallForNewCallWithSequencing(mNewCall,
+                        CallsManager.REQUEST_ORIGIN_UNKNOWN);
+        // Both disconnects are sent without waiting for the first one to complete.
+        verify(mActiveCall, timeout(SEQUENCING_TIMEOUT_MS)).disconnect(anyString());
+        verify(mHeldCall, timeout(SEQUENCING_TIMEOUT_MS)).disconnect(anyString());
+        assertFalse(resultFuture.isDone());
+
+        activeDisconnectFuture.complete(true);
+        assertTrue(waitForFutureResult(resultFuture, false));
+    }
+
     @Test
     @SmallTest
     public void testHoldCallForNewCallFail_SupportsHold_VoipPstn() {
@@ -562,6 +592,61 @@ public class CallSequencingTests extends TelecomTestCase {
         verify(mActiveCall, timeout(SEQUENCING_TIMEOUT_MS)).disconnect(anyString());
     }
 
+    @SmallTest
+    @Test
+    public void testMakeRoomForOutgoingEmergencyCall_VoipDisconnectNeverCompletes_Parallel() {
+        when(mFeatureFlags.parallelCallSequencingFanOut()).thenReturn(true);
+        when(mTimeoutsAdapter.getCallFanOutDeadlineMillis(any())).thenReturn(100L);
+        setupMakeRoomForOutgoingEmergencyCallMocks();
+        setupCallAnalytics(List.of(mHeldCall));
+        when(mCallsManager.hasRingingOrSimulatedRingingCall()).thenReturn(false);
+        when(mCallsManager.hasMaximumLiveCalls(mNewCall)).thenReturn(false);
+        when(mHeldCall.getTargetPhoneAccount()).thenReturn(mHandle1);
+        when(mActiveCall.getTargetPhoneAccount()).thenReturn(mHandle1);
+        when(mNewCall.getTargetPhoneAccount()).thenReturn(mHandle2);
+        when(mCallsManager.getCalls()).thenReturn(List.of(mActiveCall, mHeldCall));
+        when(mHeldCall.isSelfManaged()).thenReturn(true);
+        when(mActiveCall.isSelfManaged()).thenReturn(true);
+        // The active call never finishes disconnecting.
+        when(mActiveCall.disconnect(anyString())).thenReturn(new CompletableFuture<>());
+        when(mHeldCall.disconnect(anyString())).thenReturn(
+                CompletableFuture.completedFuture(true));
+
+        CompletableFuture<Boolean> future = mController.makeRoomForOutgoingCall(true, mNewCall);
+        verify(mActiveCall, timeout(SEQUENCING_TIMEOUT_MS)).disconnect(anyString());
+        verify(mHeldCall, timeout(SEQUENCING_TIMEOUT_MS)).disconnect(anyString());
+        // The emergency call is still placed once the deadline passes.
+        assertTrue(waitForFutureResult(future, false));
+    }
+
+    @SmallTest
+    @Test
+    public void testMakeRoomForOutgoingEmergencyCall_VoipDisconnectFails_Parallel() {
+        when(mFeatureFlags.parallelCallSequencingFanOut()).thenReturn(true);
+        setupMakeRoomForOutgoingEmergencyCallMocks();
+        setupCallAnalytics(List.of(mHeldCall));
+        when(mHeldCall.getTargetPhoneAccount()).thenReturn(mHandle1);
+        when(mActiveCall.getTargetPhoneAccount()).thenReturn(mHandle1);
+        when(mNewCall.getTargetPhoneAccount()).thenReturn(mHandle2);
+        when(mRingingCall.getTargetPhoneAccount()).thenReturn(mHandle2);
+        // Both VoIP calls are disconnected for the emergency call, and one of them fails to.
+        when(mCallsManager.getCalls()).thenReturn(List.of(mHeldCall, mActiveCall, mRingingCall));
+        when(mHeldCall.isSelfManaged()).thenReturn(true);
+        when(mActiveCall.isSelfManaged()).thenReturn(true);
+        when(mHeldCall.disconnect(anyString())).thenReturn(
+                CompletableFuture.completedFuture(false));
+        when(mActiveCall.disconnect(anyString())).thenReturn(
+                CompletableFuture.completedFuture(true));
+
+        CompletableFuture<Boolean> future = mController.makeRoomForOutgoingCall(true, mNewCall);
+        verify(mHeldCall, timeout(SEQUENCING_TIMEOUT_MS)).disconnect(anyString());
+        verify(mActiveCall, timeout(SEQUENCING_TIMEOUT_MS)).disconnect(anyString());
+        verify(mRingingCall, timeout(SEQUENCING_TIMEOUT_MS))
+                .reject(anyBoolean(), eq(null), anyString());
+        // The emergency call is still placed.
+        assertTrue(waitForFutureResult(future, false));
+    }
+
     @Test
     @SmallTest
     public void testMakeRoomForOutgoingCall() {
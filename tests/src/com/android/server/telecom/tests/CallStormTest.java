@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.PackageManager;
+import android.os.Binder;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.telecom.Call;
+import android.telecom.Conference;
+import android.telecom.DisconnectCause;
+import android.telecom.Log;
+import android.telecom.ParcelableCall;
+import android.telecom.PhoneAccountHandle;
+import android.telephony.TelephonyRegistryManager;
+import android.util.ArrayMap;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+
+import com.android.internal.telecom.IInCallAdapter;
+import com.android.internal.util.IndentingPrintWriter;
+import com.android.server.telecom.LockStats;
+import com.android.server.telecom.TelecomSystem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a storm of calls through a real {@link TelecomSystem}, using the same fixtures as the
+ * other system tests, and reports throughput, latency percentiles per operation, Telecom lock
+ * contention and heap growth.
+ * <p>
+ * Each cycle receives a call, holds it, places a second call and then either merges the two into
+ * a conference or ends them one at a time, rotating through the registered phone accounts. At the
+ * end of every cycle Telecom must be back to no calls, which is what catches leaks.
+ * <p>
+ * By default a few cycles are run, so that the harness keeps working. For a stress run, pass
+ * instrumentation args, for example:
+ * <pre>
+ * atest TelecomUnitTests:CallStormTest -- \
+ *     --module-arg TelecomUnitTests:instrumentation-arg:callStormCycles:=1000 \
+ *     --module-arg TelecomUnitTests:instrumentation-arg:callStormOpsPerSecond:=20
+ * </pre>
+ */
+@RunWith(JUnit4.class)
+public class CallStormTest extends TelecomSystemTest {
+    private static final String ARG_CYCLES = "callStormCycles";
+    private static final String ARG_OPS_PER_SECOND = "callStormOpsPerSecond";
+    private static final int DEFAULT_CYCLES = 8;
+    // Every third cycle on the same ConnectionService merges its calls into a conference.
+    private static final int CONFERENCE_INTERVAL = 3;
+    // Cycles run before measuring, so that binding the InCallServices isn't counted.
+    private static final int WARMUP_CYCLES = 1;
+
+    private static final String OP_INCOMING = "incoming";
+    private static final String OP_OUTGOING = "outgoing";
+    private static final String OP_HOLD = "hold";
+    private static final String OP_UNHOLD = "unhold";
+    private static final String OP_CONFERENCE = "conference";
+    private static final String OP_DISCONNECT = "disconnect";
+
+    private final ArrayMap<String, List<Long>> mLatenciesNanos = new ArrayMap<>();
+    private long mOpIntervalNanos;
+    private long mNextOpNanos;
+    private int mMaxGraphHandlerThreads;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        doReturn(mContext).when(mContext).createContextAsUser(any(UserHandle.class), anyInt());
+        PackageManager packageManager = mContext.getPackageManager();
+        when(packageManager.getPackageUid(anyString(), eq(0))).thenReturn(Binder.getCallingUid());
+        // Calls on the multi-user account are associated with another user.
+        when(mFeatureFlags.associatedUserRefactorForWorkProfile()).thenReturn(true);
+        InCallServiceFixture.setIgnoreOverrideAdapterFlag(true);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        InCallServiceFixture.setIgnoreOverrideAdapterFlag(false);
+        super.tearDown();
+    }
+
+    @LargeTest
+    @Test
+    public void testCallStorm() throws Exception {
+        Bundle args = InstrumentationRegistry.getArguments();
+        int cycles = Integer.parseInt(args.getString(ARG_CYCLES, String.valueOf(DEFAULT_CYCLES)));
+        int opsPerSecond = Integer.parseInt(args.getString(ARG_OPS_PER_SECOND, "0"));
+        mOpIntervalNanos = opsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / opsPerSecond : 0;
+
+        PhoneAccountHandle[] accounts = {
+                mPhoneAccountA0.getAccountHandle(),
+                mPhoneAccountB0.getAccountHandle(),
+                mPhoneAccountA1.getAccountHandle(),
+                mPhoneAccountMultiUser.getAccountHandle(),
+        };
+        ConnectionServiceFixture[] fixtures = {
+                mConnectionServiceFixtureA,
+                mConnectionServiceFixtureB,
+                mConnectionServiceFixtureA,
+                mConnectionServiceFixtureA,
+        };
+
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            runCycle(i, accounts[0], fixtures[0], false /* merge */);
+        }
+        mLatenciesNanos.clear();
+        LockStats lockStats = ((TelecomSystem.SyncRoot) mTelecomSystem.getLock()).getLockStats();
+        lockStats.reset();
+        lockStats.setEnabled(true);
+        int startThreads = Thread.activeCount();
+        long startHeapBytes = getUsedHeapBytes();
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+
+        for (int i = 0; i < cycles; i++) {
+            int account = i % accounts.length;
+            boolean merge = fixtures[account] == mConnectionServiceFixtureA
+                    && (i / accounts.length) % CONFERENCE_INTERVAL == 0;
+            runCycle(i, accounts[account], fixtures[account], merge);
+        }
+
+        long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        long heapGrowthBytes = getUsedHeapBytes() - startHeapBytes;
+        lockStats.setEnabled(false);
+        report(cycles, elapsedNanos, heapGrowthBytes, Thread.activeCount() - startThreads,
+                lockStats);
+
+        assertTrue(mTelecomSystem.getCallsManager().getCalls().isEmpty());
+        assertTrue("Filter graph threads kept: " + mMaxGraphHandlerThreads,
+                mMaxGraphHandlerThreads <= 1);
+    }
+
+    /**
+     * Runs one cycle, which starts and ends with no calls.
+     */
+    private void runCycle(int cycle, PhoneAccountHandle handle,
+            ConnectionServiceFixture fixture, boolean merge) throws Exception {
+        IdPair incoming = timed(OP_INCOMING, () -> startAndMakeActiveIncomingCall(
+                getNumber(cycle, 0), handle, fixture));
+        timed(OP_HOLD, () -> hold(incoming, fixture));
+        IdPair outgoing = timed(OP_OUTGOING, () -> startAndMakeActiveOutgoingCall(
+                getNumber(cycle, 1), handle, fixture));
+
+        if (merge) {
+            String conferenceCallId = timed(OP_CONFERENCE, () -> merge(outgoing, incoming));
+            Conference conference = fixture.mLatestConference;
+            timed(OP_DISCONNECT, () -> disconnect(outgoing, fixture));
+            timed(OP_DISCONNECT, () -> disconnect(incoming, fixture));
+            timed(OP_DISCONNECT, () -> {
+                conference.setDisconnected(new DisconnectCause(DisconnectCause.LOCAL));
+                conference.destroy();
+                waitForState(conferenceCallId, Call.STATE_DISCONNECTED);
+                return null;
+            });
+        } else {
+            timed(OP_DISCONNECT, () -> disconnect(outgoing, fixture));
+            timed(OP_UNHOLD, () -> unhold(incoming, fixture));
+            timed(OP_DISCONNECT, () -> disconnect(incoming, fixture));
+        }
+
+        assertTrueWithTimeout(v -> mTelecomSystem.getCallsManager().getCalls().isEmpty());
+        mMaxGraphHandlerThreads = Math.max(mMaxGraphHandlerThreads,
+                mTelecomSystem.getCallsManager().getGraphHandlerThreads().size());
+        clearFixtures();
+    }
+
+    private Void hold(IdPair ids, ConnectionServiceFixture fixture) throws Exception {
+        mInCallServiceFixtureX.mInCallAdapter.holdCall(ids.mCallId);
+        verify(fixture.getTestDouble(), timeout(TEST_TIMEOUT)).hold(eq(ids.mConnectionId), any());
+        fixture.sendSetOnHold(ids.mConnectionId);
+        waitForState(ids.mCallId, Call.STATE_HOLDING);
+        return null;
+    }
+
+    private Void unhold(IdPair ids, ConnectionServiceFixture fixture) throws Exception {
+        mInCallServiceFixtureX.mInCallAdapter.unholdCall(ids.mCallId);
+        verify(fixture.getTestDouble(), timeout(TEST_TIMEOUT))
+                .unhold(eq(ids.mConnectionId), any());
+        fixture.sendSetActive(ids.mConnectionId);
+        waitForState(ids.mCallId, Call.STATE_ACTIVE);
+        return null;
+    }
+
+    /**
+     * Merges two calls, as the ConnectionService fixture does for any pair of calls.
+     * @return The id of the conference call.
+     */
+    private String merge(IdPair first, IdPair second) throws Exception {
+        IInCallAdapter inCallAdapter = mInCallServiceFixtureX.getInCallAdapter();
+        inCallAdapter.conference(first.mCallId, second.mCallId);
+        assertTrueWithTimeout(v -> getParentCallId(first) != null
+                && getParentCallId(second) != null);
+        assertEquals(getParentCallId(first), getParentCallId(second));
+        return getParentCallId(first);
+    }
+
+    private Void disconnect(IdPair ids, ConnectionServiceFixture fixture) throws Exception {
+        mInCallServiceFixtureX.mInCallAdapter.disconnectCall(ids.mCallId);
+        verify(fixture.getTestDouble(), timeout(TEST_TIMEOUT))
+                .disconnect(eq(ids.mConnectionId), any());
+        fixture.sendSetDisconnected(ids.mConnectionId, DisconnectCause.LOCAL);
+        fixture.sendRemoveCall(ids.mConnectionId);
+        waitForState(ids.mCallId, Call.STATE_DISCONNECTED);
+        return null;
+    }
+
+    private String getParentCallId(IdPair ids) {
+        ParcelableCall call = mInCallServiceFixtureX.getCall(ids.mCallId);
+        return call == null ? null : call.getParentCallId();
+    }
+
+    private void waitForState(String callId, int state) {
+        assertTrueWithTimeout(v -> mInCallServiceFixtureX.getCall(callId) != null
+                && mInCallServiceFixtureX.getCall(callId).getState() == state);
+    }
+
+    /**
+     * Drops what the fixtures remember about finished calls, so that the heap measured is
+     * Telecom's and the fixtures don't slow down as the run goes on.
+     */
+    private void clearFixtures() {
+        waitForHandlerAction(new Handler(Looper.getMainLooper()), TEST_TIMEOUT);
+        mInCallServiceFixtureX.mCallById.clear();
+        mInCallServiceFixtureY.mCallById.clear();
+        for (ConnectionServiceFixture fixture : new ConnectionServiceFixture[] {
+                mConnectionServiceFixtureA, mConnectionServiceFixtureB}) {
+            fixture.mConnectionById.clear();
+            fixture.mConferenceById.clear();
+        }
+        mCallerInfoAsyncQueryFactoryFixture.mRequests.clear();
+        clearInvocations(mContext.getSystemService(TelephonyRegistryManager.class));
+    }
+
+    /**
+     * Runs {@code operation}, waiting first if needed to keep to the configured rate, and records
+     * how long it took.
+     */
+    private <T> T timed(String op, Callable<T> operation) throws Exception {
+        if (mOpIntervalNanos > 0) {
+            long waitNanos = mNextOpNanos - SystemClock.elapsedRealtimeNanos();
+            if (waitNanos > 0) {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+            mNextOpNanos = SystemClock.elapsedRealtimeNanos() + mOpIntervalNanos;
+        }
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        T result = operation.call();
+        List<Long> latencies = mLatenciesNanos.get(op);
+        if (latencies == null) {
+            latencies = new ArrayList<>();
+            mLatenciesNanos.put(op, latencies);
+        }
+        latencies.add(SystemClock.elapsedRealtimeNanos() - startNanos);
+        return result;
+    }
+
+    private void report(int cycles, long elapsedNanos, long heapGrowthBytes, int threadGrowth,
+            LockStats lockStats) {
+        StringWriter report = new StringWriter();
+        IndentingPrintWriter pw = new IndentingPrintWriter(report, "  ");
+        int ops = 0;
+        for (int i = 0; i < mLatenciesNanos.size(); i++) {
+            ops += mLatenciesNanos.valueAt(i).size();
+        }
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        pw.println(String.format(Locale.US,
+                "cycles=%d, calls=%d, ops=%d, seconds=%.1f, calls/s=%.2f, ops/s=%.2f",
+                cycles, cycles * 2, ops, seconds, cycles * 2 / seconds, ops / seconds));
+        pw.println("Latency (ms):");
+        pw.increaseIndent();
+        for (int i = 0; i < mLatenciesNanos.size(); i++) {
+            List<Long> latencies = mLatenciesNanos.valueAt(i);
+            Collections.sort(latencies);
+            pw.println(String.format(Locale.US, "%s: count=%d, p50=%.1f, p90=%.1f, p99=%.1f, "
+                            + "max=%.1f", mLatenciesNanos.keyAt(i), latencies.size(),
+                    getPercentileMillis(latencies, 50), getPercentileMillis(latencies, 90),
+                    getPercentileMillis(latencies, 99), getPercentileMillis(latencies, 100)));
+        }
+        pw.decreaseIndent();
+        pw.println("heapGrowthKb=" + heapGrowthBytes / 1024 + ", heapGrowthPerCycleBytes="
+                + heapGrowthBytes / Math.max(cycles, 1) + ", threadGrowth=" + threadGrowth
+                + ", maxGraphHandlerThreads=" + mMaxGraphHandlerThreads);
+        pw.println("Telecom lock:");
+        pw.increaseIndent();
+        lockStats.dump(pw);
+        pw.decreaseIndent();
+        pw.flush();
+        for (String line : report.toString().split("\n")) {
+            Log.i(this, "%s", line);
+        }
+    }
+
+    private static double getPercentileMillis(List<Long> sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.size()) - 1;
+        long nanos = sortedNanos.get(Math.max(0, Math.min(index, sortedNanos.size() - 1)));
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static long getUsedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.runFinalization();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String getNumber(int cycle, int call) {
+        return String.format(Locale.US, "650-555-%04d", (cycle * 2 + call) % 10000);
+    }
+}
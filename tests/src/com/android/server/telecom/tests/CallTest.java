@@ -55,6 +55,8 @@ import android.telecom.StatusHints;
 import android.telecom.TelecomManager;
 import android.telecom.VideoProfile;
 import android.telephony.CallQuality;
+import android.telephony.TelephonyCallback;
+import android.telephony.TelephonyManager;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
@@ -71,6 +73,7 @@ import com.android.server.telecom.CallsManager;
 import com.android.server.telecom.ClockProxy;
 import com.android.server.telecom.ConnectionServiceWrapper;
 import com.android.server.telecom.EmergencyCallHelper;
+import com.android.server.telecom.EmergencyNumberIndex;
 import com.android.server.telecom.PhoneAccountRegistrar;
 import com.android.server.telecom.PhoneNumberUtilsAdapter;
 import com.android.server.telecom.TelecomSystem;
@@ -87,6 +90,7 @@ import org.mockito.Mockito;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 @RunWith(AndroidJUnit4.class)
 public class CallTest extends TelecomTestCase {
@@ -1095,6 +1099,50 @@ public class CallTest extends TelecomTestCase {
         assertTrue(!testCall2.isEmergencyCall());
     }
 
+    /**
+     * Verify that with emergency numbers indexed, a Call's handle is only classified once.
+     */
+    @Test
+    @SmallTest
+    public void testEmergencyNumberClassifiedOncePerHandle() {
+        when(mMockCallsManager.getEmergencyNumberIndex()).thenReturn(
+                new EmergencyNumberIndex(mContext, Runnable::run));
+        when(mComponentContextFixture.getTelephonyManager().isEmergencyNumber(any()))
+                .thenReturn(true);
+        Call testCall = createCall("1", Call.CALL_DIRECTION_OUTGOING, Uri.parse("tel:08"));
+        assertTrue(testCall.isEmergencyCall());
+        assertTrue(testCall.isEmergencyNumber("08"));
+
+        verify(mComponentContextFixture.getTelephonyManager(), times(1))
+                .isEmergencyNumber("08");
+    }
+
+    /**
+     * Verify that a Call checks its handle again once the emergency number list changes.
+     */
+    @Test
+    @SmallTest
+    public void testEmergencyNumberRecheckedWhenListChanges() {
+        TelephonyManager tm = mComponentContextFixture.getTelephonyManager();
+        when(mMockCallsManager.getEmergencyNumberIndex()).thenReturn(
+                new EmergencyNumberIndex(mContext, Runnable::run));
+        ArgumentCaptor<TelephonyCallback> callbackCaptor =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        verify(tm).registerTelephonyCallback(any(Executor.class), callbackCaptor.capture());
+        when(tm.isEmergencyNumber(any())).thenReturn(false);
+        Call testCall = createCall("1", Call.CALL_DIRECTION_OUTGOING, Uri.parse("tel:08"));
+        assertFalse(testCall.isEmergencyNumber("08"));
+
+        // The carrier adds 08 as an emergency number.
+        when(tm.isEmergencyNumber(any())).thenReturn(true);
+        ((TelephonyCallback.EmergencyNumberListListener) callbackCaptor.getValue())
+                .onEmergencyNumberListChanged(Collections.emptyMap());
+
+        assertTrue(testCall.isEmergencyNumber("08"));
+        assertTrue(testCall.isEmergencyNumber("08"));
+        verify(tm, times(2)).isEmergencyNumber("08");
+    }
+
     @Test
     @SmallTest
     public void testExcludesConnectionServiceWithoutModifyStatePermissionFromDoNotLogCallExtra() {
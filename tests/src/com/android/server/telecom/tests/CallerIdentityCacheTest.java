@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.BroadcastReceiver;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import android.os.UserHandle;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.server.telecom.CallerIdentityCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+@RunWith(JUnit4.class)
+public class CallerIdentityCacheTest extends TelecomTestCase {
+    private static final String PKG1 = "com.example.one";
+    private static final String PKG2 = "com.example.two";
+    private static final int UID1 = 10001;
+    private static final int UID2 = 10002;
+
+    private CallerIdentityCache mCache;
+    private BroadcastReceiver mReceiver;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mContext = mComponentContextFixture.getTestDouble().getApplicationContext();
+        mCache = new CallerIdentityCache(mContext);
+
+        ArgumentCaptor<BroadcastReceiver> receiverCaptor =
+                ArgumentCaptor.forClass(BroadcastReceiver.class);
+        verify(mContext, times(2)).registerReceiverAsUser(receiverCaptor.capture(),
+                eq(UserHandle.ALL), any(IntentFilter.class), isNull(), isNull());
+        mReceiver = receiverCaptor.getValue();
+    }
+
+    @SmallTest
+    @Test
+    public void testOnlyVerifiedPairsAreCached() {
+        assertFalse(mCache.isVerified(UID1, PKG1));
+        mCache.setVerified(UID1, PKG1);
+        assertTrue(mCache.isVerified(UID1, PKG1));
+        // A different uid claiming the same package must not be accepted.
+        assertFalse(mCache.isVerified(UID2, PKG1));
+        assertFalse(mCache.isVerified(UID1, PKG2));
+        assertFalse(mCache.isVerified(UID1, null));
+    }
+
+    @SmallTest
+    @Test
+    public void testPackageRemovedInvalidates() {
+        mCache.setVerified(UID1, PKG1);
+        mCache.setVerified(UID2, PKG2);
+        mReceiver.onReceive(mContext, new Intent(Intent.ACTION_PACKAGE_REMOVED,
+                Uri.fromParts("package", PKG1, null)));
+        assertFalse(mCache.isVerified(UID1, PKG1));
+        assertTrue(mCache.isVerified(UID2, PKG2));
+    }
+
+    @SmallTest
+    @Test
+    public void testPackageReplacedInvalidates() {
+        mCache.setVerified(UID1, PKG1);
+        mReceiver.onReceive(mContext, new Intent(Intent.ACTION_PACKAGE_REPLACED,
+                Uri.fromParts("package", PKG1, null)));
+        assertFalse(mCache.isVerified(UID1, PKG1));
+    }
+
+    @SmallTest
+    @Test
+    public void testUidRemovedInvalidates() {
+        mCache.setVerified(UID1, PKG1);
+        mCache.setVerified(UID1, PKG2);
+        mCache.setVerified(UID2, PKG2);
+        mReceiver.onReceive(mContext, new Intent(Intent.ACTION_UID_REMOVED)
+                .putExtra(Intent.EXTRA_UID, UID1));
+        assertFalse(mCache.isVerified(UID1, PKG1));
+        assertFalse(mCache.isVerified(UID1, PKG2));
+        assertTrue(mCache.isVerified(UID2, PKG2));
+    }
+
+    @SmallTest
+    @Test
+    public void testCacheIsBounded() {
+        for (int i = 0; i <= CallerIdentityCache.MAX_ENTRIES; i++) {
+            mCache.setVerified(UID1 + i, PKG1);
+        }
+        // The least recently used entry was evicted.
+        assertFalse(mCache.isVerified(UID1, PKG1));
+        assertTrue(mCache.isVerified(UID1 + CallerIdentityCache.MAX_ENTRIES, PKG1));
+    }
+}
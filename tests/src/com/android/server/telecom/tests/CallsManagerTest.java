@@ -3655,6 +3655,26 @@ public class CallsManagerTest extends TelecomTestCase {
                 eq(false));
     }
 
+    /**
+     * Verify the call state snapshot is republished when a call moves to another user, so lock
+     * free call state queries see the call under its new user.
+     */
+    @SmallTest
+    @Test
+    public void testCallStateSnapshotFollowsAssociatedUser() {
+        when(mFeatureFlags.lockFreeCallStateQueries()).thenReturn(true);
+        Call call = createCall(SIM_1_HANDLE, CallState.ACTIVE);
+        call.setAssociatedUser(UserHandle.of(SECONDARY_USER_ID));
+        mCallsManager.addCall(call);
+        assertFalse(mCallsManager.getCallStateSnapshot().hasOngoingCalls(TEST_USER_HANDLE,
+                false /* hasCrossUserAccess */));
+
+        call.setAssociatedUser(TEST_USER_HANDLE);
+
+        assertTrue(mCallsManager.getCallStateSnapshot().hasOngoingCalls(TEST_USER_HANDLE,
+                false /* hasCrossUserAccess */));
+    }
+
     /**
      * Verify CallsManager#isInSelfManagedCall(packageName, userHandle) returns true when
      * CallsManager is first made aware of the incoming call in processIncomingCallIntent.
@@ -27,6 +27,10 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.platform.test.annotations.DisableFlags;
+import android.platform.test.annotations.EnableFlags;
+import android.platform.test.flag.junit.SetFlagsRule;
+
 import androidx.test.filters.SmallTest;
 
 import com.android.server.telecom.Call;
@@ -34,9 +38,11 @@ import com.android.server.telecom.CallState;
 import com.android.server.telecom.CallsManager;
 import com.android.server.telecom.ConnectionServiceFocusManager;
 import com.android.server.telecom.ConnectionServiceFocusManager.*;
+import com.android.server.telecom.flags.Flags;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -46,6 +52,8 @@ import org.mockito.Mockito;
 
 @RunWith(JUnit4.class)
 public class ConnectionServiceFocusManagerTest extends TelecomTestCase {
+    @Rule
+    public final SetFlagsRule mSetFlagsRule = new SetFlagsRule();
 
     @Mock CallsManagerRequester mockCallsManagerRequester;
     @Mock RequestFocusCallback mockRequestFocusCallback;
@@ -327,6 +335,52 @@ public class ConnectionServiceFocusManagerTest extends TelecomTestCase {
         assertEquals(mActiveCall, mFocusManagerUT.getCurrentFocusCall());
     }
 
+    @SmallTest
+    @Test
+    @EnableFlags(Flags.FLAG_INDEX_FOCUS_CALLS_BY_CONNECTION_SERVICE)
+    public void testConnectionServiceChangedMovesCallToNewConnectionService() {
+        // GIVEN the ConnectionServiceFocusManager with the focus ConnectionService
+        requestFocus(mActiveCall, null);
+        assertEquals(1, mFocusManagerUT.getCompletedFocusRequestCount());
+
+        // and a call added before its ConnectionService is known.
+        Call call = createFakeCall(null, CallState.ACTIVE);
+        mCallsManagerListener.onCallAdded(call);
+        mCallsManagerListener.onCallRemoved((Call) mActiveCall);
+        waitForHandlerAction(mFocusManagerUT.getHandler(), CHECK_HANDLER_INTERVAL_MS);
+        assertNull(mFocusManagerUT.getCurrentFocusCall());
+
+        // WHEN the call's ConnectionService becomes the focus ConnectionService.
+        when(call.getConnectionServiceWrapper()).thenReturn(mActiveConnectionService);
+        mCallsManagerListener.onConnectionServiceChanged(call, null, null);
+        waitForHandlerAction(mFocusManagerUT.getHandler(), CHECK_HANDLER_INTERVAL_MS);
+
+        // THEN the call becomes the focus call.
+        assertEquals(call, mFocusManagerUT.getCurrentFocusCall());
+    }
+
+    @SmallTest
+    @Test
+    @DisableFlags(Flags.FLAG_INDEX_FOCUS_CALLS_BY_CONNECTION_SERVICE)
+    public void testConnectionServiceChangedWithoutEventWhenCallIndexDisabled() {
+        // GIVEN the ConnectionServiceFocusManager with the focus ConnectionService
+        requestFocus(mActiveCall, null);
+
+        // and a call added before its ConnectionService is known.
+        Call call = createFakeCall(null, CallState.ACTIVE);
+        mCallsManagerListener.onCallAdded(call);
+        waitForHandlerAction(mFocusManagerUT.getHandler(), CHECK_HANDLER_INTERVAL_MS);
+
+        // WHEN the call's ConnectionService changes without an event, and the focus call is
+        // removed.
+        when(call.getConnectionServiceWrapper()).thenReturn(mActiveConnectionService);
+        mCallsManagerListener.onCallRemoved((Call) mActiveCall);
+        waitForHandlerAction(mFocusManagerUT.getHandler(), CHECK_HANDLER_INTERVAL_MS);
+
+        // THEN the call is still found as the focus call.
+        assertEquals(call, mFocusManagerUT.getCurrentFocusCall());
+    }
+
     private void requestFocus(CallFocus call, RequestFocusCallback callback) {
         mCallsManagerListener.onCallAdded((Call) call);
         mFocusManagerUT.requestFocus(call, callback);
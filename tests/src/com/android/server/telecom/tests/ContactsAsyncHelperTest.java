@@ -16,6 +16,7 @@
 
 package com.android.server.telecom.tests;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -25,6 +26,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.graphics.Bitmap;
@@ -47,6 +49,7 @@ import org.mockito.ArgumentCaptor;
 
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(JUnit4.class)
 public class ContactsAsyncHelperTest extends TelecomTestCase {
@@ -169,6 +172,44 @@ public class ContactsAsyncHelperTest extends TelecomTestCase {
         assertTrue(capturedPhoto.sameAs(iconCaptor.getValue()));
     }
 
+    @SmallTest
+    @Test
+    public void testSampledDecodeIsCached() {
+        when(mFeatureFlags.sampledContactPhotoDecode()).thenReturn(true);
+        AtomicInteger openCount = new AtomicInteger();
+        ContactsAsyncHelper cah = new ContactsAsyncHelper((context, uri) -> {
+            openCount.incrementAndGet();
+            return context.getContentResolver().openInputStream(uri);
+        }, Looper.getMainLooper(), mFeatureFlags);
+        int iconSize = mContext.getResources()
+                .getDimensionPixelSize(R.dimen.notification_icon_size);
+        Bitmap fullPhoto = getExpectedPhoto(SAMPLE_CONTACT_PHOTO_URI);
+
+        cah.startObtainPhotoAsync(TOKEN, mContext, SAMPLE_CONTACT_PHOTO_URI, mListener, COOKIE);
+        ArgumentCaptor<Drawable> photoCaptor = ArgumentCaptor.forClass(Drawable.class);
+        ArgumentCaptor<Bitmap> iconCaptor = ArgumentCaptor.forClass(Bitmap.class);
+        verify(mListener, timeout(TEST_TIMEOUT)).onImageLoadComplete(eq(TOKEN),
+                photoCaptor.capture(), iconCaptor.capture(), eq(COOKIE));
+
+        // The photo is decoded no smaller than the icon, and no larger than twice its size.
+        Bitmap capturedPhoto = ((BitmapDrawable) photoCaptor.getValue()).getBitmap();
+        int longerEdge = Math.max(capturedPhoto.getWidth(), capturedPhoto.getHeight());
+        assertTrue(longerEdge >= iconSize);
+        assertTrue(longerEdge < 2 * iconSize
+                || longerEdge == Math.max(fullPhoto.getWidth(), fullPhoto.getHeight()));
+        assertTrue(iconSize >= iconCaptor.getValue().getHeight());
+        assertTrue(iconSize >= iconCaptor.getValue().getWidth());
+        // One pass for the bounds and one for the sampled decode.
+        assertEquals(2, openCount.get());
+
+        cah.startObtainPhotoAsync(TOKEN, mContext, SAMPLE_CONTACT_PHOTO_URI, mListener, COOKIE);
+        verify(mListener, timeout(TEST_TIMEOUT).times(2)).onImageLoadComplete(eq(TOKEN),
+                photoCaptor.capture(), iconCaptor.capture(), eq(COOKIE));
+        assertTrue(capturedPhoto.sameAs(
+                ((BitmapDrawable) photoCaptor.getValue()).getBitmap()));
+        assertEquals(2, openCount.get());
+    }
+
     private Bitmap getExpectedPhoto(Uri uri) {
         InputStream is;
         try {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.server.telecom.CopyOnWriteListenerArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CopyOnWriteListenerArrayTest extends TelecomTestCase {
+    private final CopyOnWriteListenerArray<Runnable> mListeners =
+            new CopyOnWriteListenerArray<>(new Runnable[0]);
+    private final Runnable mListener1 = () -> {};
+    private final Runnable mListener2 = () -> {};
+    private final Runnable mListener3 = () -> {};
+
+    @SmallTest
+    @Test
+    public void testKeepsInsertionOrderWithoutDuplicates() {
+        assertTrue(mListeners.add(mListener2));
+        assertTrue(mListeners.add(mListener1));
+        assertTrue(mListeners.add(mListener3));
+        assertFalse(mListeners.add(mListener1));
+        assertArrayEquals(new Runnable[] {mListener2, mListener1, mListener3},
+                mListeners.snapshot());
+
+        assertTrue(mListeners.remove(mListener1));
+        assertFalse(mListeners.remove(mListener1));
+        assertArrayEquals(new Runnable[] {mListener2, mListener3}, mListeners.snapshot());
+    }
+
+    @SmallTest
+    @Test
+    public void testSnapshotUnaffectedByLaterChanges() {
+        mListeners.add(mListener1);
+        mListeners.add(mListener2);
+        Runnable[] snapshot = mListeners.snapshot();
+        // Reading again without changes returns the same array, so dispatch doesn't allocate.
+        assertSame(snapshot, mListeners.snapshot());
+
+        mListeners.remove(mListener1);
+        mListeners.add(mListener3);
+        assertArrayEquals(new Runnable[] {mListener1, mListener2}, snapshot);
+        assertArrayEquals(new Runnable[] {mListener2, mListener3}, mListeners.snapshot());
+    }
+}
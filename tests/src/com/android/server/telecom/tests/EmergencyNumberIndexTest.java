@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyCallback;
+import android.telephony.TelephonyManager;
+import android.telephony.emergency.EmergencyNumber;
+import android.util.ArrayMap;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.server.telecom.EmergencyNumberIndex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+@RunWith(JUnit4.class)
+public class EmergencyNumberIndexTest extends TelecomTestCase {
+    private static final EmergencyNumber NUMBER_911 = new EmergencyNumber("911", "US", null, 0,
+            Collections.EMPTY_LIST, EmergencyNumber.EMERGENCY_NUMBER_SOURCE_DATABASE, 0);
+    private static final EmergencyNumber NUMBER_112 = new EmergencyNumber("112", "US", null, 0,
+            Collections.EMPTY_LIST, EmergencyNumber.EMERGENCY_NUMBER_SOURCE_DATABASE, 0);
+    private static final EmergencyNumber TEST_NUMBER = new EmergencyNumber("555", "US", null, 0,
+            Collections.EMPTY_LIST, EmergencyNumber.EMERGENCY_NUMBER_SOURCE_TEST, 0);
+
+    private TelephonyManager mTelephonyManager;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mContext = mComponentContextFixture.getTestDouble().getApplicationContext();
+        mTelephonyManager = mComponentContextFixture.getTelephonyManager();
+        when(mTelephonyManager.getEmergencyNumberList()).thenReturn(
+                makeEmergencyNumberList(NUMBER_911, TEST_NUMBER));
+    }
+
+    @SmallTest
+    @Test
+    public void testListedNumberIsAnsweredLocally() {
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+
+        assertTrue(index.isEmergencyNumber("911"));
+        assertTrue(index.isEmergencyNumber("9-1-1"));
+        assertEquals(NUMBER_911, index.getEmergencyNumber("911"));
+        verify(mTelephonyManager, never()).isEmergencyNumber(anyString());
+        verify(mTelephonyManager, times(1)).getEmergencyNumberList();
+    }
+
+    @SmallTest
+    @Test
+    public void testUnlistedNumberIsCheckedWithTelephony() {
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+        when(mTelephonyManager.isEmergencyNumber("08")).thenReturn(true);
+
+        // Telephony matches more numbers than the list holds, so its answer is the one used.
+        assertTrue(index.isEmergencyNumber("08"));
+        assertFalse(index.isEmergencyNumber("6505551212"));
+        assertNull(index.getEmergencyNumber("6505551212"));
+        assertFalse(index.isEmergencyNumber(null));
+    }
+
+    @SmallTest
+    @Test
+    public void testSipAddressIsNotEmergencyNumber() {
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+
+        assertFalse(index.isEmergencyNumber("911@example.com"));
+        assertFalse(index.isEmergencyNumber("support112@corp.com"));
+        verify(mTelephonyManager, never()).isEmergencyNumber(anyString());
+    }
+
+    @SmallTest
+    @Test
+    public void testNumberWithLettersIsCheckedWithTelephony() {
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+
+        assertFalse(index.isEmergencyNumber("9x11"));
+        verify(mTelephonyManager).isEmergencyNumber("9x11");
+    }
+
+    @SmallTest
+    @Test
+    public void testTestNumbers() {
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+
+        assertTrue(index.isTestEmergencyNumber("555"));
+        assertFalse(index.isTestEmergencyNumber("911"));
+    }
+
+    @SmallTest
+    @Test
+    public void testListChangeRefreshesIndex() {
+        ArgumentCaptor<TelephonyCallback> callbackCaptor =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+        verify(mTelephonyManager).registerTelephonyCallback(any(Executor.class),
+                callbackCaptor.capture());
+        assertTrue(index.isEmergencyNumber("911"));
+
+        ((TelephonyCallback.EmergencyNumberListListener) callbackCaptor.getValue())
+                .onEmergencyNumberListChanged(makeEmergencyNumberList(NUMBER_112));
+
+        assertEquals(NUMBER_112, index.getEmergencyNumber("112"));
+        assertNull(index.getEmergencyNumber("911"));
+        verify(mTelephonyManager, times(1)).getEmergencyNumberList();
+    }
+
+    @SmallTest
+    @Test
+    public void testNothingKeptWhenNotListening() {
+        doThrow(new UnsupportedOperationException()).when(mTelephonyManager)
+                .registerTelephonyCallback(any(Executor.class), any(TelephonyCallback.class));
+        EmergencyNumberIndex index = new EmergencyNumberIndex(mContext, Runnable::run);
+        when(mTelephonyManager.isEmergencyNumber("911")).thenReturn(true);
+
+        assertFalse(index.isListening());
+        assertTrue(index.isEmergencyNumber("911"));
+        assertEquals(NUMBER_911, index.getEmergencyNumber("911"));
+        assertEquals(NUMBER_911, index.getEmergencyNumber("911"));
+        verify(mTelephonyManager, times(2)).getEmergencyNumberList();
+    }
+
+    private static Map<Integer, List<EmergencyNumber>> makeEmergencyNumberList(
+            EmergencyNumber... numbers) {
+        Map<Integer, List<EmergencyNumber>> list = new ArrayMap<>();
+        list.put(SubscriptionManager.DEFAULT_SUBSCRIPTION_ID, Arrays.asList(numbers));
+        return list;
+    }
+}
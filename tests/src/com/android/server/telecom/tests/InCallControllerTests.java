@@ -34,6 +34,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -432,6 +434,128 @@ public class InCallControllerTests extends TelecomTestCase {
         assertNull(bindIntent.getExtras());
     }
 
+    @MediumTest
+    @Test
+    public void testSpeculativeBinding_UnbindsWhenCallNotAdded() throws Exception {
+        when(mFeatureFlags.speculativeIncallServiceBinding()).thenReturn(true);
+        when(mMockCallsManager.getCurrentUserHandle()).thenReturn(mUserHandle);
+        when(mMockContext.getPackageManager()).thenReturn(mMockPackageManager);
+        when(mMockCallsManager.isInEmergencyCall()).thenReturn(false);
+        when(mMockCallsManager.getCalls()).thenReturn(Collections.emptyList());
+        when(mMockCall.isIncoming()).thenReturn(true);
+        when(mMockCall.isExternalCall()).thenReturn(false);
+        when(mMockCall.getTargetPhoneAccount()).thenReturn(PA_HANDLE);
+        when(mTimeoutsAdapter.getEmergencyCallbackWindowMillis(any(ContentResolver.class)))
+                .thenReturn(300_000L);
+        when(mMockContext.bindServiceAsUser(any(Intent.class), any(ServiceConnection.class),
+                eq(serviceBindingFlags), eq(mUserHandle))).thenReturn(true);
+        setupMockPackageManager(false /* default */, true /* system */, false /* external calls */);
+
+        mInCallController.maybeStartSpeculativeBinding(mMockCall);
+        ArgumentCaptor<ServiceConnection> serviceConnectionCaptor =
+                ArgumentCaptor.forClass(ServiceConnection.class);
+        verify(mMockContext).bindServiceAsUser(any(Intent.class),
+                serviceConnectionCaptor.capture(), eq(serviceBindingFlags), eq(mUserHandle));
+
+        // The call gets blocked, so the binding should be released.
+        mInCallController.onIncomingCallFilteringComplete(mMockCall);
+        verify(mMockContext).unbindService(serviceConnectionCaptor.getValue());
+    }
+
+    @MediumTest
+    @Test
+    public void testSpeculativeBinding_ReusedWhenCallAdded() throws Exception {
+        when(mFeatureFlags.speculativeIncallServiceBinding()).thenReturn(true);
+        when(mMockCallsManager.getCurrentUserHandle()).thenReturn(mUserHandle);
+        when(mMockContext.getPackageManager()).thenReturn(mMockPackageManager);
+        when(mMockCallsManager.isInEmergencyCall()).thenReturn(false);
+        when(mMockCall.isIncoming()).thenReturn(true);
+        when(mMockCall.isExternalCall()).thenReturn(false);
+        when(mMockCall.getTargetPhoneAccount()).thenReturn(PA_HANDLE);
+        when(mTimeoutsAdapter.getEmergencyCallbackWindowMillis(any(ContentResolver.class)))
+                .thenReturn(300_000L);
+        when(mMockContext.bindServiceAsUser(any(Intent.class), any(ServiceConnection.class),
+                eq(serviceBindingFlags), eq(mUserHandle))).thenReturn(true);
+        setupMockPackageManager(false /* default */, true /* system */, false /* external calls */);
+
+        mInCallController.maybeStartSpeculativeBinding(mMockCall);
+        when(mMockCallsManager.getCalls()).thenReturn(Collections.singletonList(mMockCall));
+        mInCallController.onCallAdded(mMockCall);
+        mInCallController.onIncomingCallFilteringComplete(mMockCall);
+
+        // Only the speculative binding should have been made and it must be kept.
+        verify(mMockContext, times(1)).bindServiceAsUser(any(Intent.class),
+                any(ServiceConnection.class), eq(serviceBindingFlags), eq(mUserHandle));
+        verify(mMockContext, never()).unbindService(any(ServiceConnection.class));
+    }
+
+    @MediumTest
+    @Test
+    public void testInCallServiceComponentsCachedUntilInvalidated() throws Exception {
+        when(mFeatureFlags.cacheIncallServiceComponents()).thenReturn(true);
+        when(mMockCallsManager.getCurrentUserHandle()).thenReturn(mUserHandle);
+        when(mMockContext.getPackageManager()).thenReturn(mMockPackageManager);
+        when(mMockCallsManager.isInEmergencyCall()).thenReturn(false);
+        when(mMockCall.isIncoming()).thenReturn(true);
+        when(mMockCall.isExternalCall()).thenReturn(false);
+        when(mMockCall.getTargetPhoneAccount()).thenReturn(PA_HANDLE);
+        when(mTimeoutsAdapter.getEmergencyCallbackWindowMillis(any(ContentResolver.class)))
+                .thenReturn(300_000L);
+        setupMockPackageManager(false /* default */, true /* system */, false /* external calls */);
+
+        // Cold cache: components are resolved through the package manager.
+        mInCallController.bindToServices(mMockCall);
+        verify(mMockPackageManager, atLeastOnce()).queryIntentServicesAsUser(
+                any(Intent.class), anyInt(), anyInt());
+        mInCallController.unbindFromServices(mUserHandle);
+
+        // Warm cache: rebinding doesn't query the package manager again.
+        clearInvocations(mMockPackageManager);
+        mInCallController.bindToServices(mMockCall);
+        verify(mMockPackageManager, never()).queryIntentServicesAsUser(
+                any(Intent.class), anyInt(), anyInt());
+        mInCallController.unbindFromServices(mUserHandle);
+
+        // Once invalidated the components are resolved again.
+        mInCallController.invalidateInCallServiceInfoCache(mUserHandle);
+        mInCallController.bindToServices(mMockCall);
+        verify(mMockPackageManager, atLeastOnce()).queryIntentServicesAsUser(
+                any(Intent.class), anyInt(), anyInt());
+    }
+
+    @MediumTest
+    @Test
+    public void testInCallServiceComponentsCacheInvalidatedByAppOpChange() throws Exception {
+        when(mFeatureFlags.cacheIncallServiceComponents()).thenReturn(true);
+        mInCallController = new InCallController(mMockContext, mLock, mMockCallsManager,
+                mMockSystemStateHelper, mDefaultDialerCache, mTimeoutsAdapter,
+                mEmergencyCallHelper, mCarModeTracker, mClockProxy, mFeatureFlags);
+        ArgumentCaptor<AppOpsManager.OnOpChangedListener> opListenerCaptor =
+                ArgumentCaptor.forClass(AppOpsManager.OnOpChangedListener.class);
+        verify(mMockAppOpsManager).startWatchingMode(
+                eq(AppOpsManager.OPSTR_MANAGE_ONGOING_CALLS), nullable(String.class),
+                opListenerCaptor.capture());
+        when(mMockCallsManager.getCurrentUserHandle()).thenReturn(mUserHandle);
+        when(mMockContext.getPackageManager()).thenReturn(mMockPackageManager);
+        when(mMockCallsManager.isInEmergencyCall()).thenReturn(false);
+        when(mMockCall.isIncoming()).thenReturn(true);
+        when(mMockCall.isExternalCall()).thenReturn(false);
+        when(mMockCall.getTargetPhoneAccount()).thenReturn(PA_HANDLE);
+        when(mTimeoutsAdapter.getEmergencyCallbackWindowMillis(any(ContentResolver.class)))
+                .thenReturn(300_000L);
+        setupMockPackageManager(false /* default */, true /* system */, false /* external calls */);
+        mInCallController.bindToServices(mMockCall);
+        mInCallController.unbindFromServices(mUserHandle);
+
+        // A companion app being granted MANAGE_ONGOING_CALLS changes which services are bound.
+        clearInvocations(mMockPackageManager);
+        opListenerCaptor.getValue().onOpChanged(AppOpsManager.OPSTR_MANAGE_ONGOING_CALLS,
+                COMPANION_PKG);
+        mInCallController.bindToServices(mMockCall);
+        verify(mMockPackageManager, atLeastOnce()).queryIntentServicesAsUser(
+                any(Intent.class), anyInt(), anyInt());
+    }
+
     @MediumTest
     @Test
     public void testBindToService_NoServicesFound_OutgoingCall() throws Exception {
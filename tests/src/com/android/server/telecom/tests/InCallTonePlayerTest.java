@@ -54,6 +54,9 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RunWith(JUnit4.class)
 public class InCallTonePlayerTest extends TelecomTestCase {
 
@@ -176,6 +179,48 @@ public class InCallTonePlayerTest extends TelecomTestCase {
         assertFalse(mInCallTonePlayer.startTone());
     }
 
+    @SmallTest
+    @Test
+    public void testPooledTonePlayback() {
+        when(mFeatureFlags.pooledTonePlayback()).thenReturn(true);
+        mInCallTonePlayer = mFactory.createPlayer(mCall, InCallTonePlayer.TONE_RING_BACK);
+        assertTrue(mInCallTonePlayer.startTone());
+        verify(mToneGenerator, timeout(TEST_TIMEOUT)).startTone(anyInt());
+        // The tone plays on a pool thread; the player's own thread is never started.
+        assertFalse(mInCallTonePlayer.isAlive());
+
+        mInCallTonePlayer.stopTone();
+        verify(mCallAudioManager, timeout(TEST_TIMEOUT)).setIsTonePlaying(any(Call.class),
+                eq(false));
+        assertFalse(mInCallTonePlayer.startTone());
+    }
+
+    @SmallTest
+    @Test
+    public void testPooledTonePlaybackDoesNotWaitForLongTones() {
+        when(mFeatureFlags.pooledTonePlayback()).thenReturn(true);
+        // Three tones which play until they are stopped.
+        List<InCallTonePlayer> longTones = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            InCallTonePlayer player = mFactory.createPlayer(mCall, InCallTonePlayer.TONE_RING_BACK);
+            assertTrue(player.startTone());
+            longTones.add(player);
+        }
+        verify(mToneGenerator, timeout(TEST_TIMEOUT).times(3)).startTone(anyInt());
+
+        // A fourth tone starts while they are still playing.
+        mInCallTonePlayer = mFactory.createPlayer(mCall, InCallTonePlayer.TONE_CALL_WAITING);
+        assertTrue(mInCallTonePlayer.startTone());
+        verify(mToneGenerator, timeout(TEST_TIMEOUT).times(4)).startTone(anyInt());
+
+        mInCallTonePlayer.stopTone();
+        for (InCallTonePlayer player : longTones) {
+            player.stopTone();
+        }
+        verify(mCallAudioManager, timeout(TEST_TIMEOUT)).setIsTonePlaying(any(Call.class),
+                eq(false));
+    }
+
     @SmallTest
     @Test
     public void testInterruptToneGenerator() {
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.server.telecom.LockStats;
+import com.android.server.telecom.TelecomSystem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class LockStatsTest extends TelecomTestCase {
+    private final LockStats mLockStats = new LockStats(true);
+    private final TelecomSystem.SyncRoot mLock = new TelecomSystem.SyncRoot() {
+        @Override
+        public LockStats getLockStats() {
+            return mLockStats;
+        }
+    };
+
+    @SmallTest
+    @Test
+    public void testRunLockedRecordsSite() {
+        boolean[] heldLock = new boolean[1];
+        LockStats.runLocked(mLock, "LST.tRLRS", () -> heldLock[0] = Thread.holdsLock(mLock));
+
+        assertTrue(heldLock[0]);
+        List<LockStats.Acquisition> worstHolders = mLockStats.getWorstHolders();
+        assertEquals(1, worstHolders.size());
+        assertEquals("LST.tRLRS", worstHolders.get(0).site);
+    }
+
+    @SmallTest
+    @Test
+    public void testCallLockedReturnsValueAndRecordsSite() {
+        assertTrue(LockStats.callLocked(mLock, "LST.tCLRV", () -> Thread.holdsLock(mLock)));
+
+        List<LockStats.Acquisition> worstHolders = mLockStats.getWorstHolders();
+        assertEquals(1, worstHolders.size());
+        assertEquals("LST.tCLRV", worstHolders.get(0).site);
+    }
+
+    @SmallTest
+    @Test
+    public void testDisabledRecordsNothing() {
+        mLockStats.setEnabled(false);
+        boolean[] heldLock = new boolean[1];
+        LockStats.runLocked(mLock, "LST.tDRN", () -> heldLock[0] = Thread.holdsLock(mLock));
+
+        assertTrue(heldLock[0]);
+        assertTrue(mLockStats.getWorstHolders().isEmpty());
+    }
+
+    @SmallTest
+    @Test
+    public void testKeepsLongestHoldersAndWaitHistogram() {
+        for (int i = 0; i < 2 * LockStats.MAX_WORST_HOLDERS; i++) {
+            mLockStats.record("site" + i, TimeUnit.MILLISECONDS.toNanos(i),
+                    TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        List<LockStats.Acquisition> worstHolders = mLockStats.getWorstHolders();
+        assertEquals(LockStats.MAX_WORST_HOLDERS, worstHolders.size());
+        for (int i = 0; i < LockStats.MAX_WORST_HOLDERS; i++) {
+            assertEquals("site" + (2 * LockStats.MAX_WORST_HOLDERS - 1 - i),
+                    worstHolders.get(i).site);
+        }
+        int[] waitHistogram = mLockStats.getWaitHistogram();
+        assertEquals(2 * LockStats.MAX_WORST_HOLDERS, Arrays.stream(waitHistogram).sum());
+        // Only the 0ms wait falls below the first bound of 1ms.
+        assertEquals(1, waitHistogram[0]);
+
+        mLockStats.reset();
+        assertTrue(mLockStats.getWorstHolders().isEmpty());
+    }
+}
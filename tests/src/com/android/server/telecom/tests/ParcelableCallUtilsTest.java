@@ -4,6 +4,7 @@ import static com.android.server.telecom.TelecomSystem.SyncRoot;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -38,6 +39,8 @@ import org.junit.runners.JUnit4;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.List;
+
 @RunWith(JUnit4.class)
 public class ParcelableCallUtilsTest extends TelecomTestCase {
 
@@ -194,6 +197,93 @@ public class ParcelableCallUtilsTest extends TelecomTestCase {
         assertEquals(connectionVerificationStatus, call.getCallerNumberVerificationStatus());
     }
 
+    @SmallTest
+    @Test
+    public void testChildCallIdsReusedUntilChildrenChange() {
+        Call child1 = createCall("2");
+        Call child2 = createCall("3");
+        child1.setChildOf(mCall);
+
+        ParcelableCall first = ParcelableCallUtils.toParcelableCall(mCall,
+                false /* includevideoProvider */,
+                null /* phoneAccountRegistrar */,
+                false /* supportsExternalCalls */,
+                false /* includeRttCall */,
+                true /* isForSystemDialer */);
+        ParcelableCall second = ParcelableCallUtils.toParcelableCall(mCall,
+                false /* includevideoProvider */,
+                null /* phoneAccountRegistrar */,
+                false /* supportsExternalCalls */,
+                false /* includeRttCall */,
+                true /* isForSystemDialer */);
+        assertEquals(List.of("2"), first.getChildCallIds());
+        assertSame(first.getChildCallIds(), second.getChildCallIds());
+        assertTrue(first.getConferenceableCallIds().isEmpty());
+
+        child2.setChildOf(mCall);
+        ParcelableCall third = ParcelableCallUtils.toParcelableCall(mCall,
+                false /* includevideoProvider */,
+                null /* phoneAccountRegistrar */,
+                false /* supportsExternalCalls */,
+                false /* includeRttCall */,
+                true /* isForSystemDialer */);
+        assertEquals(List.of("2", "3"), third.getChildCallIds());
+    }
+
+    @SmallTest
+    @Test
+    public void testSanitizedExtrasReusedUntilExtrasChange() {
+        mCall.putConnectionServiceExtras(getSomeExtras());
+        Bundle first = ParcelableCallUtils.toParcelableCall(mCall,
+                false /* includevideoProvider */,
+                null /* phoneAccountRegistrar */,
+                false /* supportsExternalCalls */,
+                false /* includeRttCall */,
+                false /* isForSystemDialer */).getExtras();
+        Bundle second = ParcelableCallUtils.toParcelableCall(mCall,
+                false /* includevideoProvider */,
+                null /* phoneAccountRegistrar */,
+                false /* supportsExternalCalls */,
+                false /* includeRttCall */,
+                false /* isForSystemDialer */).getExtras();
+        assertSame(first, second);
+
+        Bundle moreExtras = new Bundle();
+        moreExtras.putString(Connection.EXTRA_CHILD_ADDRESS, "6505551213");
+        moreExtras.putString("AnotherExtra", "foo");
+        mCall.putConnectionServiceExtras(moreExtras);
+        Bundle third = ParcelableCallUtils.toParcelableCall(mCall,
+                false /* includevideoProvider */,
+                null /* phoneAccountRegistrar */,
+                false /* supportsExternalCalls */,
+                false /* includeRttCall */,
+                false /* isForSystemDialer */).getExtras();
+        assertTrue(third.containsKey(Connection.EXTRA_CHILD_ADDRESS));
+        assertFalse(third.containsKey("AnotherExtra"));
+        assertFalse(third.containsKey(Connection.EXTRA_SIP_INVITE));
+        assertTrue(third.containsKey(Connection.EXTRA_CALL_SUBJECT));
+    }
+
+    private Call createCall(String id) {
+        return new Call(id,
+                mContext /* context */,
+                mCallsManager,
+                mLock,
+                null /* ConnectionServiceRepository */,
+                mPhoneNumberUtilsAdapter,
+                Uri.fromParts("tel", "6505551212", null),
+                null /* GatewayInfo */,
+                null /* connectionMgr */,
+                new PhoneAccountHandle(
+                        ComponentName.unflattenFromString("com.test/Class"), "test"),
+                Call.CALL_DIRECTION_INCOMING,
+                false /* shouldAttachToExistingConnection */,
+                false /* isConference */,
+                mClockProxy /* ClockProxy */,
+                mToastProxy,
+                mFeatureFlags);
+    }
+
     private Bundle getSomeExtras() {
         Bundle extras = new Bundle();
         extras.putString(Connection.EXTRA_SIP_INVITE, "scary data");
@@ -45,6 +45,7 @@ import android.graphics.BitmapFactory;
 import android.graphics.Rect;
 import android.graphics.drawable.Icon;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.PersistableBundle;
@@ -99,6 +100,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(JUnit4.class)
 public class PhoneAccountRegistrarTest extends TelecomTestCase {
@@ -110,6 +113,7 @@ public class PhoneAccountRegistrarTest extends TelecomTestCase {
     private static final String FILE_NAME = "phone-account-registrar-test-1223.xml";
     private static final String TEST_LABEL = "right";
     private static final String TEST_ID = "123";
+    private static final int TEST_TIMEOUT = 1000;
     private final String PACKAGE_1 = "PACKAGE_1";
     private final String PACKAGE_2 = "PACKAGE_2";
     private final String COMPONENT_NAME = "com.android.server.telecom.tests.MockConnectionService";
@@ -196,6 +200,65 @@ public class PhoneAccountRegistrarTest extends TelecomTestCase {
         assertPhoneAccountEquals(input, result);
     }
 
+    @SmallTest
+    @Test
+    public void testCopyStateIsIndependentOfSource() {
+        PhoneAccountRegistrar.State state = new PhoneAccountRegistrar.State();
+        PhoneAccount account = makeQuickAccountBuilder("id0", 0, null).build();
+        state.accounts.add(account);
+        state.versionNumber = 5;
+
+        PhoneAccountRegistrar.State copy = PhoneAccountRegistrar.copyState(state);
+        state.accounts.add(makeQuickAccountBuilder("id1", 1, null).build());
+        state.versionNumber = 6;
+        // The enabled state is changed in place when an account is enabled or re-registered.
+        account.setIsEnabled(true);
+
+        assertEquals(1, copy.accounts.size());
+        assertEquals(account.getAccountHandle(), copy.accounts.get(0).getAccountHandle());
+        assertFalse(copy.accounts.get(0).isEnabled());
+        assertEquals(5, copy.versionNumber);
+    }
+
+    @MediumTest
+    @Test
+    public void testWriteOffLockWritesLatestState() throws Exception {
+        when(mFeatureFlags.serializePhoneAccountsOffLock()).thenReturn(true);
+        mComponentContextFixture.addConnectionService(makeQuickConnectionServiceComponentName(),
+                Mockito.mock(IConnectionService.class));
+        PhoneAccount account0 = makeQuickAccountBuilder("id0", 0, null)
+                .setCapabilities(PhoneAccount.CAPABILITY_CALL_PROVIDER)
+                .build();
+        PhoneAccount account1 = makeQuickAccountBuilder("id1", 1, null)
+                .setCapabilities(PhoneAccount.CAPABILITY_CALL_PROVIDER)
+                .build();
+
+        // Hold up the write executor so that the writes below are still pending when the next
+        // one arrives, and each replaces the previous one.
+        CountDownLatch writeExecutorBlocked = new CountDownLatch(1);
+        AsyncTask.SERIAL_EXECUTOR.execute(() -> {
+            try {
+                writeExecutorBlocked.await();
+            } catch (InterruptedException e) {
+                // Fall through and let the pending write run.
+            }
+        });
+        mRegistrar.registerPhoneAccount(account0);
+        mRegistrar.registerPhoneAccount(account1);
+        mRegistrar.enablePhoneAccount(account1.getAccountHandle(), true);
+        writeExecutorBlocked.countDown();
+        CountDownLatch writesDone = new CountDownLatch(1);
+        AsyncTask.SERIAL_EXECUTOR.execute(writesDone::countDown);
+        assertTrue(writesDone.await(TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+
+        PhoneAccountRegistrar registrar = new PhoneAccountRegistrar(
+                mComponentContextFixture.getTestDouble().getApplicationContext(), mLock, FILE_NAME,
+                mDefaultDialerCache, mAppLabelProxy, mTelephonyFeatureFlags, mFeatureFlags);
+        assertNotNull(registrar.getPhoneAccountUnchecked(account0.getAccountHandle()));
+        assertFalse(registrar.getPhoneAccountUnchecked(account0.getAccountHandle()).isEnabled());
+        assertTrue(registrar.getPhoneAccountUnchecked(account1.getAccountHandle()).isEnabled());
+    }
+
     @MediumTest
     @Test
     public void testPhoneAccountParsing_simultaneousCallingRestriction() throws Exception {
@@ -16,6 +16,7 @@
 
 package com.android.server.telecom.tests;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -28,14 +29,20 @@ import static org.mockito.Mockito.when;
 
 import android.content.ComponentName;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.telecom.PhoneAccountHandle;
 import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+import android.telephony.TelephonyRegistryManager;
 import android.telephony.emergency.EmergencyNumber;
 import android.util.ArrayMap;
 
 import com.android.server.telecom.Call;
+import com.android.server.telecom.CallState;
 import com.android.server.telecom.CallsManager;
 import com.android.server.telecom.PhoneStateBroadcaster;
+import com.android.server.telecom.TelecomSystem;
 
 import org.junit.After;
 import org.junit.Before;
@@ -50,6 +57,8 @@ import java.util.Map;
 
 @RunWith(JUnit4.class)
 public class PhoneStateBroadcasterTest extends TelecomTestCase {
+    private static final int TEST_TIMEOUT = 1000;
+
     @Override
     @Before
     public void setUp() throws Exception {
@@ -122,4 +131,55 @@ public class PhoneStateBroadcasterTest extends TelecomTestCase {
                         eq(SubscriptionManager.INVALID_SUBSCRIPTION_ID),
                         any(EmergencyNumber.class));
     }
+
+    /**
+     * Tests that when coalescing, a state which flaps back before the looper gets to report it
+     * never reaches TelephonyRegistry.
+     */
+    @Test
+    public void testFlappingStateIsCoalesced() {
+        CallsManager cm = mock(CallsManager.class);
+        TelecomSystem.SyncRoot lock = new TelecomSystem.SyncRoot() { };
+        when(cm.getContext()).thenReturn(mContext);
+        when(cm.getLock()).thenReturn(lock);
+        HandlerThread handlerThread = new HandlerThread("PhoneStateBroadcasterTest");
+        handlerThread.start();
+        Handler handler = handlerThread.getThreadHandler();
+        PhoneStateBroadcaster psb = new PhoneStateBroadcaster(cm, true /* isCoalescing */,
+                handler);
+        TelephonyRegistryManager registry = mComponentContextFixture.getTelephonyRegistryManager();
+        Call activeCall = makeCall(CallState.ACTIVE);
+        Call ringingCall = makeCall(CallState.RINGING);
+
+        try {
+            psb.onCallAdded(activeCall);
+            waitForHandlerAction(handler, TEST_TIMEOUT);
+            verify(registry).notifyCallStateChangedForAllSubscriptions(
+                    eq(TelephonyManager.CALL_STATE_OFFHOOK), any());
+
+            // Holding the lock keeps the notification from running until the state settles.
+            synchronized (lock) {
+                psb.onCallAdded(ringingCall);
+                assertEquals(TelephonyManager.CALL_STATE_RINGING, psb.getCallState());
+                psb.onCallRemoved(ringingCall);
+                assertEquals(TelephonyManager.CALL_STATE_OFFHOOK, psb.getCallState());
+            }
+            waitForHandlerAction(handler, TEST_TIMEOUT);
+
+            verify(registry, never()).notifyCallStateChangedForAllSubscriptions(
+                    eq(TelephonyManager.CALL_STATE_RINGING), any());
+            assertEquals(2, psb.getSuppressedNotifications());
+        } finally {
+            handlerThread.quitSafely();
+        }
+    }
+
+    private static Call makeCall(int state) {
+        Call call = mock(Call.class);
+        when(call.isExternalCall()).thenReturn(false);
+        when(call.getState()).thenReturn(state);
+        when(call.getChildCalls()).thenReturn(Collections.emptyList());
+        when(call.getHandle()).thenReturn(Uri.parse("tel:6505551212"));
+        return call;
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.server.telecom.CallsManager;
+import com.android.server.telecom.QuickResponseUtils;
+import com.android.server.telecom.RespondViaSmsManager;
+import com.android.server.telecom.TelecomSystem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.io.File;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class RespondViaSmsManagerTest extends TelecomTestCase {
+    private static final String DEFAULT_RESPONSE = "Can't talk now";
+
+    @Mock Context mUserContext;
+    @Mock SharedPreferences mPrefs;
+    @Mock Resources mResources;
+    @Mock File mPrefsFile;
+
+    private RespondViaSmsManager mRespondViaSmsManager;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        when(mFeatureFlags.cacheCannedSmsResponses()).thenReturn(true);
+        when(mUserContext.getUserId()).thenReturn(0);
+        when(mUserContext.getSharedPreferencesPath(QuickResponseUtils.SHARED_PREFERENCES_NAME))
+                .thenReturn(mPrefsFile);
+        when(mUserContext.getSharedPreferences(anyString(), anyInt())).thenReturn(mPrefs);
+        when(mUserContext.getResources()).thenReturn(mResources);
+        when(mUserContext.createPackageContext(anyString(), anyInt()))
+                .thenThrow(new PackageManager.NameNotFoundException());
+        when(mResources.getString(anyInt())).thenReturn(DEFAULT_RESPONSE);
+        // The user has set their own responses, so there is nothing to migrate.
+        when(mPrefs.contains(anyString())).thenReturn(true);
+        when(mPrefs.getString(anyString(), any())).thenAnswer(i -> i.getArgument(1));
+        when(mPrefsFile.lastModified()).thenReturn(1000L);
+
+        mRespondViaSmsManager = new RespondViaSmsManager(mock(CallsManager.class),
+                new TelecomSystem.SyncRoot() { }, Runnable::run, mFeatureFlags);
+    }
+
+    @SmallTest
+    @Test
+    public void testCannedResponsesAreCached() {
+        List<String> first = mRespondViaSmsManager.getCannedTextMessages(mUserContext);
+        List<String> second = mRespondViaSmsManager.getCannedTextMessages(mUserContext);
+
+        assertEquals(QuickResponseUtils.NUM_CANNED_RESPONSES, first.size());
+        assertEquals(DEFAULT_RESPONSE, first.get(0));
+        assertSame(first, second);
+        verifyResponsesRead(1);
+    }
+
+    @SmallTest
+    @Test
+    public void testPreferenceChangeClearsCache() {
+        mRespondViaSmsManager.getCannedTextMessages(mUserContext);
+        ArgumentCaptor<SharedPreferences.OnSharedPreferenceChangeListener> listenerCaptor =
+                ArgumentCaptor.forClass(SharedPreferences.OnSharedPreferenceChangeListener.class);
+        verify(mPrefs).registerOnSharedPreferenceChangeListener(listenerCaptor.capture());
+
+        listenerCaptor.getValue().onSharedPreferenceChanged(mPrefs,
+                QuickResponseUtils.KEY_CANNED_RESPONSE_PREF_1);
+        mRespondViaSmsManager.getCannedTextMessages(mUserContext);
+
+        verifyResponsesRead(2);
+        // The listener is only registered once.
+        verify(mPrefs).registerOnSharedPreferenceChangeListener(any());
+    }
+
+    @SmallTest
+    @Test
+    public void testPreferencesWrittenByAnotherProcessAreReloaded() {
+        mRespondViaSmsManager.getCannedTextMessages(mUserContext);
+
+        // The settings UI runs in another process, so no change is delivered to the listener.
+        when(mPrefsFile.lastModified()).thenReturn(2000L);
+        mRespondViaSmsManager.getCannedTextMessages(mUserContext);
+        mRespondViaSmsManager.getCannedTextMessages(mUserContext);
+
+        verifyResponsesRead(2);
+    }
+
+    private void verifyResponsesRead(int times) {
+        verify(mPrefs, times(times)).getString(
+                eq(QuickResponseUtils.KEY_CANNED_RESPONSE_PREF_1), eq(DEFAULT_RESPONSE));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.server.telecom.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.role.OnRoleHoldersChangedListener;
+import android.app.role.RoleManager;
+import android.os.UserHandle;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.server.telecom.RoleManagerAdapterImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@RunWith(JUnit4.class)
+public class RoleManagerAdapterImplTest extends TelecomTestCase {
+    private static final String SCREENING_APP_1 = "com.example.screening1";
+    private static final String SCREENING_APP_2 = "com.example.screening2";
+    private static final UserHandle USER_0 = UserHandle.of(0);
+    private static final UserHandle USER_10 = UserHandle.of(10);
+
+    @Mock RoleManager mRoleManager;
+
+    private RoleManagerAdapterImpl mAdapter;
+    private OnRoleHoldersChangedListener mRoleListener;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mContext = mComponentContextFixture.getTestDouble().getApplicationContext();
+        when(mFeatureFlags.cacheRoleHoldersAndAppLabels()).thenReturn(true);
+        mAdapter = new RoleManagerAdapterImpl(mContext, mRoleManager, mFeatureFlags);
+
+        ArgumentCaptor<OnRoleHoldersChangedListener> listenerCaptor =
+                ArgumentCaptor.forClass(OnRoleHoldersChangedListener.class);
+        verify(mRoleManager).addOnRoleHoldersChangedListenerAsUser(any(Executor.class),
+                listenerCaptor.capture(), eq(UserHandle.ALL));
+        mRoleListener = listenerCaptor.getValue();
+    }
+
+    @SmallTest
+    @Test
+    public void testRoleHolderCachedUntilRoleChanges() {
+        when(mRoleManager.getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING, USER_0))
+                .thenReturn(List.of(SCREENING_APP_1));
+        assertEquals(SCREENING_APP_1, mAdapter.getDefaultCallScreeningApp(USER_0));
+        assertEquals(SCREENING_APP_1, mAdapter.getDefaultCallScreeningApp(USER_0));
+        verify(mRoleManager, times(1)).getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING,
+                USER_0);
+
+        when(mRoleManager.getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING, USER_0))
+                .thenReturn(List.of(SCREENING_APP_2));
+        // Another role or user changing must not invalidate the entry.
+        mRoleListener.onRoleHoldersChanged(RoleManager.ROLE_DIALER, USER_0);
+        mRoleListener.onRoleHoldersChanged(RoleManager.ROLE_CALL_SCREENING, USER_10);
+        assertEquals(SCREENING_APP_1, mAdapter.getDefaultCallScreeningApp(USER_0));
+
+        mRoleListener.onRoleHoldersChanged(RoleManager.ROLE_CALL_SCREENING, USER_0);
+        assertEquals(SCREENING_APP_2, mAdapter.getDefaultCallScreeningApp(USER_0));
+    }
+
+    @SmallTest
+    @Test
+    public void testRoleHoldersCachedPerUser() {
+        when(mRoleManager.getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING, USER_0))
+                .thenReturn(List.of(SCREENING_APP_1));
+        when(mRoleManager.getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING, USER_10))
+                .thenReturn(Collections.emptyList());
+        assertEquals(SCREENING_APP_1, mAdapter.getDefaultCallScreeningApp(USER_0));
+        assertNull(mAdapter.getDefaultCallScreeningApp(USER_10));
+        // An empty result is cached too.
+        assertNull(mAdapter.getDefaultCallScreeningApp(USER_10));
+        verify(mRoleManager, times(1)).getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING,
+                USER_10);
+    }
+
+    @SmallTest
+    @Test
+    public void testRoleHolderChangedDuringLookupIsNotCached() {
+        // The role holder changes while the old holder is being looked up.
+        when(mRoleManager.getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING, USER_0))
+                .thenAnswer(invocation -> {
+                    mRoleListener.onRoleHoldersChanged(RoleManager.ROLE_CALL_SCREENING, USER_0);
+                    return List.of(SCREENING_APP_1);
+                });
+        assertEquals(SCREENING_APP_1, mAdapter.getDefaultCallScreeningApp(USER_0));
+
+        when(mRoleManager.getRoleHoldersAsUser(RoleManager.ROLE_CALL_SCREENING, USER_0))
+                .thenReturn(List.of(SCREENING_APP_2));
+        assertEquals(SCREENING_APP_2, mAdapter.getDefaultCallScreeningApp(USER_0));
+    }
+
+    @SmallTest
+    @Test
+    public void testCallScreeningAppObserverNotifiedForScreeningRoles() {
+        List<Integer> changedUsers = new ArrayList<>();
+        mAdapter.observeCallScreeningApps(Runnable::run, changedUsers::add);
+        ArgumentCaptor<OnRoleHoldersChangedListener> listenerCaptor =
+                ArgumentCaptor.forClass(OnRoleHoldersChangedListener.class);
+        verify(mRoleManager, times(2)).addOnRoleHoldersChangedListenerAsUser(
+                any(Executor.class), listenerCaptor.capture(), eq(UserHandle.ALL));
+        OnRoleHoldersChangedListener observer = listenerCaptor.getValue();
+
+        observer.onRoleHoldersChanged(RoleManager.ROLE_CALL_SCREENING, USER_0);
+        observer.onRoleHoldersChanged(RoleManager.ROLE_DIALER, USER_10);
+        observer.onRoleHoldersChanged(RoleManager.ROLE_SMS, USER_0);
+        assertEquals(List.of(0, 10), changedUsers);
+    }
+}
@@ -71,6 +71,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -444,6 +445,26 @@ public class TelecomPulledAtomTest extends TelecomTestCase {
                 VALUE_AUDIO_ROUTE_LATENCY);
     }
 
+    @Test
+    public void testAudioRouteStatsLatencyHistogram() throws Exception {
+        AudioRouteStats audioRouteStats = spy(new AudioRouteStats(mSpyContext, mLooper, false));
+        int[] latencies = {50, VALUE_AUDIO_ROUTE_LATENCY, VALUE_AUDIO_ROUTE_LATENCY, 5000};
+
+        for (int latency : latencies) {
+            audioRouteStats.log(VALUE_AUDIO_ROUTE_TYPE1, VALUE_AUDIO_ROUTE_TYPE2, true, false,
+                    latency);
+        }
+        waitForHandlerAction(audioRouteStats, TEST_TIMEOUT);
+
+        assertEquals(audioRouteStats.mPulledAtoms.callAudioRouteStats.length, 1);
+        int[] histogram = audioRouteStats.mPulledAtoms.callAudioRouteStats[0].latencyHistogram;
+        assertEquals(AudioRouteStats.LATENCY_BUCKET_COUNT, histogram.length);
+        assertEquals(1, histogram[AudioRouteStats.getLatencyBucket(50)]);
+        assertEquals(2, histogram[AudioRouteStats.getLatencyBucket(VALUE_AUDIO_ROUTE_LATENCY)]);
+        assertEquals(1, histogram[AudioRouteStats.LATENCY_BUCKET_COUNT - 1]);
+        assertEquals(latencies.length, Arrays.stream(histogram).sum());
+    }
+
     @Test
     public void testAudioRouteStatsOnEnterThenExit() throws Exception {
         int latency = 500;
@@ -87,6 +87,7 @@ import com.android.server.telecom.AnomalyReporterAdapter;
 import com.android.server.telecom.Call;
 import com.android.server.telecom.CallIntentProcessor;
 import com.android.server.telecom.CallState;
+import com.android.server.telecom.CallStateSnapshot;
 import com.android.server.telecom.CallsManager;
 import com.android.server.telecom.DefaultDialerCache;
 import com.android.server.telecom.InCallController;
@@ -119,6 +120,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.IntConsumer;
 
 @RunWith(JUnit4.class)
@@ -2292,6 +2294,35 @@ public class TelecomServiceImplTest extends TelecomTestCase {
         assertFalse(mTSIBinder.isInCall(DEFAULT_DIALER_PACKAGE, null));
     }
 
+    @SmallTest
+    @Test
+    public void testCallStateQueriesUseSnapshotWithoutLock() throws Exception {
+        when(mFeatureFlags.lockFreeCallStateQueries()).thenReturn(true);
+        Call call = mock(Call.class);
+        when(call.getState()).thenReturn(CallState.RINGING);
+        when(call.isSelfManaged()).thenReturn(true);
+        when(call.getAssociatedUser()).thenReturn(Binder.getCallingUserHandle());
+        when(mFakeCallsManager.getCallStateSnapshot()).thenReturn(CallStateSnapshot.create(
+                List.of(call), TelephonyManager.CALL_STATE_RINGING));
+
+        synchronized (mLock) {
+            // This thread holds the lock while the query runs on another thread, so the query
+            // only completes if it doesn't wait for the lock.
+            CompletableFuture<Boolean> isInCall = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return mTSIBinder.isInCall(DEFAULT_DIALER_PACKAGE, null);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(isInCall.get(TelecomSystemTest.TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        assertFalse(mTSIBinder.isInManagedCall(DEFAULT_DIALER_PACKAGE, null));
+        verify(mFakeCallsManager, never()).hasOngoingCalls(any(UserHandle.class), anyBoolean());
+        verify(mFakeCallsManager, never()).hasOngoingManagedCalls(any(UserHandle.class),
+                anyBoolean());
+    }
+
     @SmallTest
     @Test
     public void testIsInCallFail() throws Exception {
@@ -584,8 +584,10 @@ public class TelecomSystemTest extends TelecomTestCase{
                 new ContactsAsyncHelper.Factory() {
                     @Override
                     public ContactsAsyncHelper create(
-                            ContactsAsyncHelper.ContentResolverAdapter adapter) {
-                        return new ContactsAsyncHelper(adapter, mHandlerThread.getLooper());
+                            ContactsAsyncHelper.ContentResolverAdapter adapter,
+                            FeatureFlags featureFlags) {
+                        return new ContactsAsyncHelper(adapter, mHandlerThread.getLooper(),
+                                featureFlags);
                     }
                 }, mDeviceIdleControllerAdapter, SYSTEM_UI_PACKAGE,
                 mAccessibilityManagerAdapter,
@@ -29,6 +29,7 @@ import android.os.IBinder;
 import android.os.OutcomeReceiver;
 import android.os.RemoteException;
 import android.os.ResultReceiver;
+import android.telecom.CallEndpoint;
 import android.telecom.DisconnectCause;
 import android.telecom.PhoneAccountHandle;
 
@@ -40,6 +41,7 @@ import com.android.server.telecom.CallsManager;
 import com.android.server.telecom.TelecomSystem;
 import com.android.server.telecom.TransactionalServiceRepository;
 import com.android.server.telecom.TransactionalServiceWrapper;
+import com.android.server.telecom.callsequencing.voip.CallControlBatchTransaction;
 import com.android.server.telecom.callsequencing.voip.EndCallTransaction;
 import com.android.server.telecom.callsequencing.voip.HoldCallTransaction;
 import com.android.server.telecom.callsequencing.voip.SerialTransaction;
@@ -50,6 +52,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -182,4 +185,34 @@ public class TransactionalServiceWrapperTest extends TelecomTestCase {
         verify(mTransactionManager, times(1))
                 .addTransaction(isA(HoldCallTransaction.class), isA(OutcomeReceiver.class));
     }
+
+    @Test
+    public void testCallControlOperationsJoinQueuedBatch() throws RemoteException {
+        // GIVEN
+        Mockito.when(mFeatureFlags.batchCallControlOperations()).thenReturn(true);
+        mTransactionalServiceWrapper.trackCall(mMockCall1);
+        ArgumentCaptor<CallControlBatchTransaction> batchCaptor =
+                ArgumentCaptor.forClass(CallControlBatchTransaction.class);
+
+        // WHEN the transaction manager hasn't started the first batch yet
+        ICallControl callControl = mTransactionalServiceWrapper.getICallControl();
+        callControl.setMuteState(true, new ResultReceiver(null));
+        callControl.requestCallEndpointChange(
+                new CallEndpoint("Speaker", CallEndpoint.TYPE_SPEAKER),
+                new ResultReceiver(null));
+
+        // THEN both operations run as one transaction
+        verify(mTransactionManager, times(1))
+                .addTransaction(batchCaptor.capture(), isA(OutcomeReceiver.class));
+        assertEquals(2, batchCaptor.getValue().size());
+
+        // WHEN a state change is requested, operations after it go in a new batch
+        callControl.setActive(CALL_ID_1, new ResultReceiver(null));
+        callControl.setMuteState(false, new ResultReceiver(null));
+
+        // THEN
+        verify(mTransactionManager, times(2))
+                .addTransaction(isA(CallControlBatchTransaction.class),
+                        isA(OutcomeReceiver.class));
+    }
 }
@@ -96,7 +96,7 @@ public class VoipCallMonitorTest extends TelecomTestCase {
     public void setUp() throws Exception {
         super.setUp();
         mHandler = mock(Handler.class);
-        mMonitor = new VoipCallMonitor(mContext, mHandler, mLock);
+        mMonitor = new VoipCallMonitor(mContext, mHandler, mLock, mFeatureFlags);
         mActivityManagerInternal = mock(ActivityManagerInternal.class);
         mMonitor.setActivityManagerInternal(mActivityManagerInternal);
         mMonitor.registerNotificationListener();
@@ -340,6 +340,37 @@ public class VoipCallMonitorTest extends TelecomTestCase {
                 .stopForegroundServiceDelegate(any(ServiceConnection.class));
     }
 
+    /**
+     * Verify notifications from apps without a call waiting for a notification are only counted,
+     * and that a waiting call is matched to its app's notification.
+     */
+    @SmallTest
+    @Test
+    public void testOnlyNotificationsFromAppsWithWaitingCallsAreMatched() {
+        when(mFeatureFlags.indexVoipCallsAwaitingNotification()).thenReturn(true);
+        mMonitor.unregisterNotificationListener();
+        mMonitor = new VoipCallMonitor(mContext, mHandler, mLock, mFeatureFlags);
+        mMonitor.setActivityManagerInternal(mActivityManagerInternal);
+        mMonitor.registerNotificationListener();
+        Call call = createTestCall("testCall", mHandle1User1);
+        StatusBarNotification otherAppSbn = createStatusBarNotificationFromHandle(mHandle2User1, 1);
+        StatusBarNotification sbn = createStatusBarNotificationFromHandle(mHandle1User1, 1);
+
+        addCallAndVerifyFgsIsGained(call);
+        mMonitor.postNotification(otherAppSbn);
+        assertTrue(mMonitor.getNewCallsMissingCallStyleNotificationQueue().contains(call));
+        assertEquals(1, mMonitor.getNotificationsInspected());
+        assertEquals(0, mMonitor.getNotificationsMatched());
+
+        mMonitor.postNotification(sbn);
+        assertFalse(mMonitor.getNewCallsMissingCallStyleNotificationQueue().contains(call));
+        assertEquals(2, mMonitor.getNotificationsInspected());
+        assertEquals(1, mMonitor.getNotificationsMatched());
+
+        mMonitor.onCallRemoved(call);
+        mMonitor.removeNotification(sbn);
+    }
+
     /**
      * Helpers for testing
      */
@@ -17,6 +17,7 @@
 package com.android.server.telecom.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import android.os.OutcomeReceiver;
@@ -25,6 +26,7 @@ import android.telecom.CallException;
 import androidx.test.filters.SmallTest;
 
 import com.android.server.telecom.TelecomSystem;
+import com.android.server.telecom.callsequencing.voip.CallControlBatchTransaction;
 import com.android.server.telecom.callsequencing.voip.ParallelTransaction;
 import com.android.server.telecom.callsequencing.voip.SerialTransaction;
 import com.android.server.telecom.callsequencing.TransactionManager;
@@ -179,6 +181,59 @@ public class VoipCallTransactionTest extends TelecomTestCase {
         verifyTransactionsFinished(t1, t2, t3);
     }
 
+    @SmallTest
+    @Test
+    public void testCallControlBatchReportsEachOperation()
+            throws ExecutionException, InterruptedException, TimeoutException {
+        TestVoipCallTransaction t1 = new TestVoipCallTransaction("t1", 100L,
+                TestVoipCallTransaction.SUCCESS);
+        TestVoipCallTransaction t2 = new TestVoipCallTransaction("t2", 100L,
+                TestVoipCallTransaction.FAILED);
+        TestVoipCallTransaction t3 = new TestVoipCallTransaction("t3", 100L,
+                TestVoipCallTransaction.SUCCESS);
+        List<CompletableFuture<Integer>> resultCodes = new ArrayList<>();
+        CallControlBatchTransaction batch = new CallControlBatchTransaction(mLock);
+        for (CallTransaction t : List.of(t1, t2, t3)) {
+            CompletableFuture<Integer> resultCode = new CompletableFuture<>();
+            resultCodes.add(resultCode);
+            assertTrue(batch.tryAppend(t, new OutcomeReceiver<>() {
+                @Override
+                public void onResult(CallTransactionResult result) {
+                    resultCode.complete(result.getResult());
+                }
+
+                @Override
+                public void onError(CallException e) {
+                    resultCode.complete(e.getCode());
+                }
+            }));
+        }
+        CompletableFuture<Integer> batchResultCode = new CompletableFuture<>();
+        mTransactionManager.addTransaction(batch, new OutcomeReceiver<>() {
+            @Override
+            public void onResult(CallTransactionResult result) {
+                batchResultCode.complete(result.getResult());
+            }
+
+            @Override
+            public void onError(CallException e) {
+                batchResultCode.complete(e.getCode());
+            }
+        });
+
+        // The failure of t2 doesn't stop t3, which was requested independently.
+        assertEquals(CallException.CODE_ERROR_UNKNOWN,
+                (int) batchResultCode.get(5000L, TimeUnit.MILLISECONDS));
+        assertEquals(CallTransactionResult.RESULT_SUCCEED, (int) resultCodes.get(0).get());
+        assertEquals(CallException.CODE_ERROR_UNKNOWN, (int) resultCodes.get(1).get());
+        assertEquals(CallTransactionResult.RESULT_SUCCEED, (int) resultCodes.get(2).get());
+        assertEquals("t1 success;\nt2 failed;\nt3 success;\n", mLog.toString());
+        // Once started, the batch can't be joined.
+        assertFalse(batch.tryAppend(new TestVoipCallTransaction("t4", 100L,
+                TestVoipCallTransaction.SUCCESS), result -> { }));
+        verifyTransactionsFinished(t1, t2, t3);
+    }
+
     @SmallTest
     @Test
     public void testParallelTransactionSuccess()